@@ -0,0 +1,33 @@
+package com.example.chatbotnasoft.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "concurrency")
+public class ConcurrencyProperties {
+
+    // Threads virtuels (Java 21+) pour le traitement des fichiers et les appels bloquants ; ignoré sur Java 17
+    private boolean virtualThreads = false;
+
+    // Nombre de workers de traitement des fichiers (threads virtuels ou plateforme selon le mode)
+    private int fileProcessingThreads = 2;
+
+    // Fichiers stabilisés en attente de traitement ; au-delà, ils restent en stabilisation
+    private int queueCapacity = 100;
+
+    // Ordre de traitement de la file d'attente
+    private QueuePriority queuePriority = QueuePriority.OLDEST_FIRST;
+
+    // Attente maximale des traitements en cours à l'arrêt avant interruption
+    private long shutdownTimeoutSeconds = 30;
+
+    public enum QueuePriority {
+        // Ordre d'arrivée
+        OLDEST_FIRST,
+        // Les petits fichiers passent devant (à taille égale, ordre d'arrivée)
+        SMALLEST_FIRST
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.chatbotnasoft.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "embedding-sync")
+public class EmbeddingSyncProperties {
+
+    // Ré-indexation incrémentale automatique des mappings modifiés
+    private boolean enabled = true;
+
+    // Ecoute du change stream MongoDB sur la collection feed (nécessite un replica set)
+    private boolean changeStreamEnabled = true;
+
+    // Intervalle de traitement des mappings modifiés (regroupés par lot)
+    private long flushIntervalMs = 2000;
+
+    // Synchronisation complète périodique quand le change stream est indisponible
+    private long fallbackPollIntervalMs = 60000;
+}
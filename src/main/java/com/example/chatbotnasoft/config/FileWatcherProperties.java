@@ -4,19 +4,60 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
 @Data
 @Component
 @ConfigurationProperties(prefix = "file-watcher")
 public class FileWatcherProperties {
 
     private String inputDirectory = "input/feeds";
+    // Racines surveillées en plus de input-directory
+    private List<String> additionalDirectories = new ArrayList<>();
+    // Surveillance des sous-répertoires (ex. un sous-répertoire par partenaire), y compris ceux créés ensuite
+    private boolean recursive = true;
+    // Threads de surveillance ; les répertoires sont répartis entre eux
+    private int watcherThreads = 2;
     private String filePattern = "FEED*.txt";
-    private int stabilizationDelayMinutes = 5;
+    // Fractions acceptées (0.083 = 5 secondes)
+    private double stabilizationDelayMinutes = 5;
     private int checkIntervalSeconds = 30;
     private long maxFileSizeMb = 100;
 
+    // Fichier marqueur de fin d'écriture (FEED_x.txt + suffixe) ; vide = désactivé
+    private String completionMarkerSuffix = ".done";
+    // Si vrai, un fichier n'est libéré que par son marqueur (pas par le délai de stabilisation)
+    private boolean requireCompletionMarker = false;
+
+    // Fichiers alimentés en continu (ex. FEED*_DAILY.txt) : suivis à l'offset au lieu d'être stabilisés ; vide = désactivé
+    private String tailFollowPattern = "";
+    // Regroupement des écritures successives avant lecture des nouvelles lignes
+    private long tailFollowBatchDelayMillis = 500;
+    // Relecture périodique de la taille (écritures non signalées, ex. partage réseau)
+    private int tailFollowPollSeconds = 5;
+    // Suivi suspendu après cette inactivité ; il reprend à l'offset journalisé au prochain ajout
+    private int tailFollowIdleMinutes = 60;
+
+    public Set<String> getRootDirectories() {
+        Set<String> roots = new LinkedHashSet<>();
+        roots.add(inputDirectory);
+        roots.addAll(additionalDirectories);
+        return roots;
+    }
+
     public long getStabilizationDelayMillis() {
-        return stabilizationDelayMinutes * 60 * 1000L;
+        return Math.round(stabilizationDelayMinutes * 60 * 1000L);
+    }
+
+    public boolean isCompletionMarkerEnabled() {
+        return completionMarkerSuffix != null && !completionMarkerSuffix.isEmpty();
+    }
+
+    public boolean isTailFollowEnabled() {
+        return tailFollowPattern != null && !tailFollowPattern.isEmpty();
     }
 
     public long getMaxFileSizeBytes() {
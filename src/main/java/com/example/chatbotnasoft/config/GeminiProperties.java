@@ -3,6 +3,9 @@ package com.example.chatbotnasoft.config;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Data
 @ConfigurationProperties(prefix = "gemini")
 public class GeminiProperties {
@@ -16,4 +19,30 @@ public class GeminiProperties {
     private int maxRetries = 3;
     private double temperature = 0.1;
     private int maxTokens = 1024;
+
+    // Analyse groupée : plusieurs msg-types par requête generateContent
+    private boolean batchAnalysisEnabled = true;
+    private int batchMaxMsgTypes = 20;
+    private int batchPromptTokenBudget = 8000;
+
+    // Nombre de textes par requête batchEmbedContents (100 maximum côté API)
+    private int embeddingBatchSize = 100;
+
+    // Régulation côté client : quotas par modèle (clé = nom du modèle), défaut pour les autres
+    private Map<String, ModelQuota> quotas = new HashMap<>();
+    private ModelQuota defaultQuota = new ModelQuota();
+
+    // Délai après un 429/503 (doublé à chaque échec consécutif, avec jitter)
+    private long backoffInitialMs = 1000;
+    private long backoffMaxMs = 60000;
+
+    public ModelQuota quotaFor(String model) {
+        return quotas.getOrDefault(model, defaultQuota);
+    }
+
+    @Data
+    public static class ModelQuota {
+        private int requestsPerMinute = 60;
+        private int maxConcurrent = 5;
+    }
 }
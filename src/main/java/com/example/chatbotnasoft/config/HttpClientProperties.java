@@ -0,0 +1,44 @@
+package com.example.chatbotnasoft.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "http-client")
+public class HttpClientProperties {
+
+    // Pool de connexions partagé par tous les appels sortants (Gemini, Qdrant, HuggingFace, OpenAI)
+    private int maxConnections = 200;
+    private int pendingAcquireMaxCount = 1000;
+    private long pendingAcquireTimeoutMs = 10000;
+    private long maxIdleTimeMs = 30000;
+    private long maxLifeTimeMs = 300000;
+
+    // Taille maximale d'une réponse gardée en mémoire
+    private int maxInMemorySizeBytes = 16 * 1024 * 1024;
+
+    // Timeouts et protocole par service distant (clé = gemini, qdrant, huggingface, openai)
+    private Map<String, Endpoint> endpoints = new HashMap<>();
+    private Endpoint defaultEndpoint = new Endpoint();
+
+    public Endpoint endpointFor(String name) {
+        return endpoints.getOrDefault(name, defaultEndpoint);
+    }
+
+    @Data
+    public static class Endpoint {
+
+        private long connectTimeoutMs = 5000;
+
+        // Délai maximal d'attente de la réponse
+        private long readTimeoutMs = 60000;
+
+        // HTTP/2 négocié par ALPN (TLS uniquement), repli automatique sur HTTP/1.1
+        private boolean http2 = false;
+    }
+}
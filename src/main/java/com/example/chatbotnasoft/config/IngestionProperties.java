@@ -0,0 +1,55 @@
+package com.example.chatbotnasoft.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "ingestion")
+public class IngestionProperties {
+
+    // Nombre de lignes lues avant de passer un lot au parsing / à l'anonymisation
+    private int chunkSize = 5000;
+
+    // Nombre de lignes conservées par msg-type (échantillon envoyé au LLM)
+    private int sampleLinesPerMsgType = 10;
+
+    // Nombre maximum d'erreurs de parsing conservées en mémoire (le compteur reste exact)
+    private int maxRetainedErrors = 1000;
+
+    // Parsing parallèle des gros fichiers par plages d'octets alignées sur les lignes
+    private boolean parallelParsingEnabled = true;
+
+    // Taille à partir de laquelle le parsing parallèle est utilisé
+    private long parallelThresholdMb = 64;
+
+    // Nombre de workers fork-join (0 = nombre de coeurs disponibles)
+    private int parallelism = 0;
+
+    // Journal d'ingestion sur disque : reprise des fichiers en cours après un arrêt brutal
+    private boolean journalEnabled = true;
+    private String journalPath = "data/ingestion.journal";
+
+    // Octets lus entre deux points de reprise (offset + échantillons par msg-type)
+    private long checkpointIntervalMb = 16;
+
+    // Taille du journal au-delà de laquelle il est compacté (seuls les fichiers non terminés sont gardés)
+    private long journalCompactionThresholdMb = 64;
+
+    public long getParallelThresholdBytes() {
+        return parallelThresholdMb * 1024 * 1024L;
+    }
+
+    public int getEffectiveParallelism() {
+        return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    public long getCheckpointIntervalBytes() {
+        return checkpointIntervalMb * 1024 * 1024L;
+    }
+
+    public long getJournalCompactionThresholdBytes() {
+        return journalCompactionThresholdMb * 1024 * 1024L;
+    }
+}
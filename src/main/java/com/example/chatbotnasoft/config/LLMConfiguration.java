@@ -3,21 +3,11 @@ package com.example.chatbotnasoft.config;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
-
-import java.time.Duration;
 
 @Configuration
 @EnableConfigurationProperties({GeminiProperties.class, QdrantProperties.class})
 public class LLMConfiguration {
 
-    @Bean
-    public RestTemplate restTemplate() {
-        RestTemplate restTemplate = new RestTemplate();
-        // Configurer les timeouts avec SimpleClientHttpRequestFactory
-        return restTemplate;
-    }
-
     @Bean
     public com.fasterxml.jackson.databind.ObjectMapper objectMapper() {
         return new com.fasterxml.jackson.databind.ObjectMapper();
@@ -0,0 +1,30 @@
+package com.example.chatbotnasoft.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "llm-cache")
+public class LlmCacheProperties {
+
+    // Cache des réponses Gemini (clé = hash du modèle et du prompt)
+    private boolean enabled = true;
+
+    // Durée de vie d'une réponse en cache
+    private long ttlHours = 168;
+
+    // Nombre maximum de réponses conservées dans MongoDB (les moins récemment utilisées sont supprimées)
+    private int maxEntries = 5000;
+
+    // Nombre de réponses gardées en mémoire devant MongoDB
+    private int memoryMaxEntries = 500;
+
+    // Intervalle d'écriture groupée des accès (nombre de hits, date du dernier accès)
+    private long hitFlushIntervalMs = 60000;
+
+    public long getTtlMillis() {
+        return ttlHours * 3600_000L;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.chatbotnasoft.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "mapping-cache")
+public class MappingCacheProperties {
+
+    private boolean enabled = true;
+
+    // Nombre maximum de msg-types gardés en mémoire (éviction LRU au-delà)
+    private int maxEntries = 10000;
+
+    // Durée de vie d'une entrée, filet de sécurité pour les écritures faites hors de l'application
+    private long ttlSeconds = 300;
+
+    public long getTtlMillis() {
+        return ttlSeconds * 1000L;
+    }
+}
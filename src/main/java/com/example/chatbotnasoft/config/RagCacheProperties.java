@@ -0,0 +1,19 @@
+package com.example.chatbotnasoft.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "rag-cache")
+public class RagCacheProperties {
+
+    private boolean enabled = true;
+
+    // Niveau 1 : question normalisée -> embedding
+    private int embeddingMaxEntries = 2000;
+
+    // Niveau 2 : question + versions des mappings du contexte -> réponse finale
+    private int answerMaxEntries = 500;
+}
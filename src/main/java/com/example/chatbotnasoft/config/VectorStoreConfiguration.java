@@ -0,0 +1,55 @@
+package com.example.chatbotnasoft.config;
+
+import com.example.chatbotnasoft.service.InMemoryVectorStore;
+import com.example.chatbotnasoft.service.QdrantClient;
+import com.example.chatbotnasoft.service.VectorStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.nio.file.Path;
+
+/**
+ * Choix du stockage vectoriel : Qdrant (par défaut) ou index dans la JVM ({@code vector-store.type: memory}),
+ * dont le snapshot est chargé au démarrage et réécrit périodiquement et à l'arrêt.
+ */
+@Configuration
+@RequiredArgsConstructor
+@Slf4j
+public class VectorStoreConfiguration {
+
+    private final VectorStoreProperties properties;
+
+    private InMemoryVectorStore inMemoryVectorStore;
+
+    @Bean
+    @Primary
+    public VectorStore vectorStore(QdrantClient qdrantClient, QdrantProperties qdrantProperties, ObjectMapper objectMapper) {
+        if (!properties.isInMemory()) {
+            log.info("🗄️ Stockage vectoriel: Qdrant ({})", qdrantProperties.getUrl());
+            return qdrantClient;
+        }
+
+        inMemoryVectorStore = new InMemoryVectorStore(qdrantProperties.getDistance(), objectMapper);
+        inMemoryVectorStore.loadSnapshot(Path.of(properties.getSnapshotPath()));
+        log.info("🗄️ Stockage vectoriel: index mémoire ({} points)", inMemoryVectorStore.size());
+        return inMemoryVectorStore;
+    }
+
+    @Scheduled(fixedDelayString = "${vector-store.snapshot-interval-ms:60000}")
+    public void snapshot() {
+        if (inMemoryVectorStore != null) {
+            inMemoryVectorStore.snapshotIfDirty(Path.of(properties.getSnapshotPath()));
+        }
+    }
+
+    @PreDestroy
+    public void snapshotOnShutdown() {
+        snapshot();
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.chatbotnasoft.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "vector-store")
+public class VectorStoreProperties {
+
+    // qdrant (serveur) ou memory (index dans la JVM)
+    private String type = "qdrant";
+
+    // Fichier de snapshot de l'index mémoire
+    private String snapshotPath = "data/vector-store.snapshot";
+
+    // Intervalle d'écriture du snapshot (seulement si l'index a changé)
+    private long snapshotIntervalMs = 60000;
+
+    public boolean isInMemory() {
+        return "memory".equalsIgnoreCase(type);
+    }
+}
@@ -2,6 +2,7 @@ package com.example.chatbotnasoft.controller;
 
 import com.example.chatbotnasoft.dto.AnonymisationResponse;
 import com.example.chatbotnasoft.service.AnonymisationFeedService;
+import com.example.chatbotnasoft.service.FeedCompression;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -67,7 +68,7 @@ public class AnonymisationFeedController {
     @GetMapping("/anonymiser/{fileName}")
     public ResponseEntity<Map<String, Object>> anonymiserFichierGet(@PathVariable String fileName) {
         try {
-            if (!fileName.endsWith(".txt")) {
+            if (!FeedCompression.hasFeedExtension(fileName)) {
                 fileName += ".txt";
             }
             
@@ -1,6 +1,7 @@
 package com.example.chatbotnasoft.controller;
 
 import com.example.chatbotnasoft.service.EmbeddingIndexationService;
+import com.example.chatbotnasoft.service.EmbeddingSyncService;
 import com.example.chatbotnasoft.service.QdrantClient;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -21,12 +22,23 @@ public class EmbeddingIndexationController {
 
     private final EmbeddingIndexationService embeddingIndexationService;
     private final QdrantClient qdrantClient;
+    private final EmbeddingSyncService embeddingSyncService;
 
     @PostMapping("/index")
     public ResponseEntity<EmbeddingIndexationService.IndexationResult> indexAllValidatedActive() {
         return ResponseEntity.ok(embeddingIndexationService.indexAllValidatedActive());
     }
 
+    @PostMapping("/index/incremental")
+    public ResponseEntity<EmbeddingIndexationService.IndexationResult> indexIncremental() {
+        return ResponseEntity.ok(embeddingIndexationService.indexIncremental());
+    }
+
+    @GetMapping("/sync/status")
+    public ResponseEntity<Map<String, Object>> syncStatus() {
+        return ResponseEntity.ok(embeddingSyncService.getStatus());
+    }
+
     @GetMapping("/qdrant/scroll")
     public ResponseEntity<String> scroll(@RequestParam(defaultValue = "5") int limit) {
         String result = qdrantClient.scrollRaw(limit);
@@ -3,6 +3,7 @@ package com.example.chatbotnasoft.controller;
 import com.example.chatbotnasoft.entity.FeedMappingHistory;
 import com.example.chatbotnasoft.entity.FeedMapping;
 import com.example.chatbotnasoft.entity.MappingStatus;
+import com.example.chatbotnasoft.service.FeedMappingCache;
 import com.example.chatbotnasoft.service.FeedMappingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,6 +21,8 @@ import java.util.Optional;
 public class FeedMappingController {
     
     private final FeedMappingService feedMappingService;
+
+    private final FeedMappingCache feedMappingCache;
     
     /**
      * Récupérer tous les mappings
@@ -105,4 +108,21 @@ public class FeedMappingController {
         log.info("📊 Statistiques des mappings: {} mappings au total", totalMappings);
         return ResponseEntity.ok(stats);
     }
+
+    /**
+     * Statistiques du cache mémoire des mappings (hits / misses / évictions)
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(feedMappingCache.getStatistics());
+    }
+
+    /**
+     * Vider le cache mémoire des mappings
+     */
+    @PostMapping("/cache/invalidate")
+    public ResponseEntity<Map<String, Object>> invalidateCache() {
+        feedMappingCache.invalidateAll();
+        return ResponseEntity.ok(feedMappingCache.getStatistics());
+    }
 }
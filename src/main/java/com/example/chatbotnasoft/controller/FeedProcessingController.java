@@ -1,7 +1,7 @@
 package com.example.chatbotnasoft.controller;
 
 import com.example.chatbotnasoft.dto.RawFeedLine;
-import com.example.chatbotnasoft.service.FeedProcessingService;
+import com.example.chatbotnasoft.service.FileProcessingExecutor;
 import com.example.chatbotnasoft.service.FileReadingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -22,7 +22,7 @@ import java.util.stream.Stream;
 @Slf4j
 public class FeedProcessingController {
 
-    private final FeedProcessingService feedProcessingService;
+    private final FileProcessingExecutor fileProcessingExecutor;
     private final FileReadingService fileReadingService;
 
     @PostMapping("/process-ready-files")
@@ -30,10 +30,11 @@ public class FeedProcessingController {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            feedProcessingService.processReadyFiles();
+            int offered = fileProcessingExecutor.offerReadyFiles();
             
             response.put("success", true);
             response.put("message", "Traitement des fichiers prêts lancé");
+            response.put("queuedCount", offered);
             response.put("timestamp", java.time.LocalDateTime.now());
             
             return ResponseEntity.ok(response);
@@ -1,6 +1,7 @@
 package com.example.chatbotnasoft.controller;
 
 import com.example.chatbotnasoft.dto.ReadableFeedLine;
+import com.example.chatbotnasoft.service.FeedCompression;
 import com.example.chatbotnasoft.service.FeedReadableService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -119,7 +120,7 @@ public class FeedReadableController {
     @GetMapping("/generate/{fileName}")
     public ResponseEntity<Map<String, Object>> generateReadableFeedGet(@PathVariable String fileName) {
         try {
-            if (!fileName.endsWith(".txt")) {
+            if (!FeedCompression.hasFeedExtension(fileName)) {
                 fileName += ".txt";
             }
             
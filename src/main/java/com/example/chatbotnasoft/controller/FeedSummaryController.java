@@ -1,6 +1,7 @@
 package com.example.chatbotnasoft.controller;
 
 import com.example.chatbotnasoft.dto.ReadableFeedLine;
+import com.example.chatbotnasoft.service.FeedCompression;
 import com.example.chatbotnasoft.service.FeedSummaryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -198,7 +199,7 @@ public class FeedSummaryController {
                 ));
             }
             
-            File[] files = inputDir.listFiles((dir, name) -> name.startsWith("FEED") && name.endsWith(".txt"));
+            File[] files = inputDir.listFiles((dir, name) -> FeedCompression.isFeedFileName(name));
             
             List<String> fileNames = new java.util.ArrayList<>();
             if (files != null) {
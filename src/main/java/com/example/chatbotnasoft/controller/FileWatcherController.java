@@ -1,9 +1,12 @@
 package com.example.chatbotnasoft.controller;
 
 import com.example.chatbotnasoft.config.FileWatcherProperties;
+import com.example.chatbotnasoft.service.FileProcessingExecutor;
 import com.example.chatbotnasoft.service.FileProcessingService;
 import com.example.chatbotnasoft.service.FileStabilizationService;
 import com.example.chatbotnasoft.service.FileWatcherService;
+import com.example.chatbotnasoft.service.IngestionJournal;
+import com.example.chatbotnasoft.service.TailFollowService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -23,6 +26,9 @@ public class FileWatcherController {
     private final FileWatcherService fileWatcherService;
     private final FileStabilizationService stabilizationService;
     private final FileProcessingService processingService;
+    private final FileProcessingExecutor processingExecutor;
+    private final IngestionJournal ingestionJournal;
+    private final TailFollowService tailFollowService;
     private final FileWatcherProperties properties;
 
     @GetMapping("/status")
@@ -31,6 +37,7 @@ public class FileWatcherController {
         
         status.put("isWatching", fileWatcherService.isWatching());
         status.put("inputDirectory", properties.getInputDirectory());
+        status.put("watcher", fileWatcherService.getStatistics());
         status.put("filePattern", properties.getFilePattern());
         status.put("stabilizationDelayMinutes", properties.getStabilizationDelayMinutes());
         status.put("checkIntervalSeconds", properties.getCheckIntervalSeconds());
@@ -43,9 +50,11 @@ public class FileWatcherController {
             fileInfo.put("startTime", info.getStartTime());
             fileInfo.put("lastModificationTime", info.getLastModificationTime());
             fileInfo.put("lastKnownSize", info.getLastKnownSize());
+            fileInfo.put("completionMarker", info.isCompleted());
             stabilizingFiles.put(path.getFileName().toString(), fileInfo);
         });
         status.put("stabilizingFiles", stabilizingFiles);
+        status.put("stabilization", stabilizationService.getStatistics());
         
         // Fichiers prêts pour traitement
         Map<String, Object> readyFiles = new HashMap<>();
@@ -54,6 +63,9 @@ public class FileWatcherController {
         });
         status.put("readyFiles", readyFiles);
         status.put("readyFilesCount", processingService.getReadyFilesCount());
+        status.put("processing", processingExecutor.getStatistics());
+        status.put("journal", ingestionJournal.getStatistics());
+        status.put("tailFollow", tailFollowService.getStatistics());
         
         return ResponseEntity.ok(status);
     }
@@ -90,4 +102,26 @@ public class FileWatcherController {
         
         return ResponseEntity.ok(response);
     }
+
+    @GetMapping("/processing")
+    public ResponseEntity<Map<String, Object>> getProcessingStatistics() {
+        Map<String, Object> response = new HashMap<>(processingExecutor.getStatistics());
+        response.put("timestamp", LocalDateTime.now());
+
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/cancel")
+    public ResponseEntity<Map<String, Object>> cancelProcessing(@RequestParam String fileName) {
+        Path filePath = Path.of(properties.getInputDirectory()).resolve(fileName);
+        boolean cancelled = processingExecutor.cancel(filePath);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("fileName", fileName);
+        response.put("cancelled", cancelled);
+        response.put("message", cancelled ? "Traitement annulé" : "Aucun traitement en cours pour ce fichier");
+        response.put("timestamp", LocalDateTime.now());
+
+        return ResponseEntity.ok(response);
+    }
 }
@@ -4,7 +4,9 @@ import com.example.chatbotnasoft.dto.AnonymizationResult;
 import com.example.chatbotnasoft.dto.LLMAnalysisResult;
 import com.example.chatbotnasoft.service.AnonymizationService;
 import com.example.chatbotnasoft.service.FileReadingService;
+import com.example.chatbotnasoft.service.GeminiRateGovernor;
 import com.example.chatbotnasoft.service.LLMService;
+import com.example.chatbotnasoft.service.LlmResponseCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -26,6 +28,8 @@ public class LLMController {
     private final LLMService llmService;
     private final AnonymizationService anonymizationService;
     private final FileReadingService fileReadingService;
+    private final LlmResponseCache llmResponseCache;
+    private final GeminiRateGovernor geminiRateGovernor;
 
     @PostMapping("/analyze-file/{fileName}")
     public ResponseEntity<Map<String, Object>> analyzeFile(@PathVariable String fileName) {
@@ -147,4 +151,24 @@ public class LLMController {
             return ResponseEntity.status(500).body(response);
         }
     }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStatistics() {
+        return ResponseEntity.ok(llmResponseCache.getStatistics());
+    }
+
+    @GetMapping("/governor/stats")
+    public ResponseEntity<Map<String, Object>> getGovernorStatistics() {
+        return ResponseEntity.ok(geminiRateGovernor.getStatistics());
+    }
+
+    @DeleteMapping("/cache")
+    public ResponseEntity<Map<String, Object>> clearCache() {
+        llmResponseCache.clear();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Cache des réponses Gemini vidé");
+        return ResponseEntity.ok(response);
+    }
 }
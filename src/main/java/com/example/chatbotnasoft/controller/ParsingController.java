@@ -2,6 +2,7 @@ package com.example.chatbotnasoft.controller;
 
 import com.example.chatbotnasoft.dto.ParsingResult;
 import com.example.chatbotnasoft.dto.RawFeedLine;
+import com.example.chatbotnasoft.service.FeedLineTokenizer;
 import com.example.chatbotnasoft.service.FeedParsingService;
 import com.example.chatbotnasoft.service.FileReadingService;
 import lombok.RequiredArgsConstructor;
@@ -79,18 +80,16 @@ public class ParsingController {
             boolean isValid = feedParsingService.isValidFeedLine(content);
             String msgType = null;
             
+            FeedLineTokenizer fields = FeedLineTokenizer.of(content);
             if (isValid) {
-                String[] fields = content.split(";");
-                if (fields.length >= 2) {
-                    msgType = fields[1].trim();
-                }
+                msgType = fields.msgType();
             }
             
             response.put("success", true);
             response.put("content", content);
             response.put("isValid", isValid);
             response.put("msgType", msgType);
-            response.put("fieldCount", content.split(";").length);
+            response.put("fieldCount", fields.fieldCountWithoutTrailingEmpty());
             response.put("timestamp", java.time.LocalDateTime.now());
             
             return ResponseEntity.ok(response);
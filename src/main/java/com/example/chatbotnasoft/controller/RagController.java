@@ -1,5 +1,6 @@
 package com.example.chatbotnasoft.controller;
 
+import com.example.chatbotnasoft.service.RagCache;
 import com.example.chatbotnasoft.service.RagService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -15,6 +16,7 @@ import java.util.Map;
 public class RagController {
 
     private final RagService ragService;
+    private final RagCache ragCache;
 
     @PostMapping("/ask")
     public ResponseEntity<RagService.RagResponse> ask(@RequestBody Map<String, Object> body) {
@@ -37,4 +39,15 @@ public class RagController {
             return ResponseEntity.internalServerError().body(response);
         }
     }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStatistics() {
+        return ResponseEntity.ok(ragCache.getStatistics());
+    }
+
+    @DeleteMapping("/cache")
+    public ResponseEntity<Map<String, Object>> clearCache() {
+        ragCache.clear();
+        return ResponseEntity.ok(Map.of("success", true, "message", "Cache RAG vidé"));
+    }
 }
@@ -1,6 +1,7 @@
 package com.example.chatbotnasoft.controller;
 
 import com.example.chatbotnasoft.dto.ResumeResponse;
+import com.example.chatbotnasoft.service.FeedCompression;
 import com.example.chatbotnasoft.service.ResumeFeedService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -62,7 +63,7 @@ public class ResumeFeedController {
     @GetMapping("/generate/{fileName}")
     public ResponseEntity<Map<String, Object>> generateResumeGet(@PathVariable String fileName) {
         try {
-            if (!fileName.endsWith(".txt")) {
+            if (!FeedCompression.hasFeedExtension(fileName)) {
                 fileName += ".txt";
             }
             
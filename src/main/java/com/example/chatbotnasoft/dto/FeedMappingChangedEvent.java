@@ -0,0 +1,8 @@
+package com.example.chatbotnasoft.dto;
+
+/**
+ * Publié par FeedMappingService après création, mise à jour ou suppression d'un mapping.
+ * Sert aussi de source de changements locale quand le change stream MongoDB n'est pas disponible.
+ */
+public record FeedMappingChangedEvent(String mappingId, String msgType) {
+}
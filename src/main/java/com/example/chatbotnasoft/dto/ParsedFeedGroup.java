@@ -50,4 +50,22 @@ public class ParsedFeedGroup {
         lines.add(line);
         totalLines = lines.size();
     }
+
+    /**
+     * Fusionne un autre groupe du même msg-type : le compteur de lignes reste exact,
+     * mais seules les {@code maxRetainedLines} premières lignes sont conservées.
+     */
+    public void absorb(ParsedFeedGroup other, int maxRetainedLines) {
+        for (RawFeedLine line : other.getLines()) {
+            if (lines.size() >= maxRetainedLines) {
+                break;
+            }
+            lines.add(line);
+        }
+        totalLines += other.getTotalLines();
+
+        if (sourceFileName == null) {
+            sourceFileName = other.getSourceFileName();
+        }
+    }
 }
@@ -0,0 +1,34 @@
+package com.example.chatbotnasoft.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Etat d'indexation d'un mapping dans Qdrant : empreinte du texte embeddé et version indexée.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "embedding_index_state")
+public class EmbeddingIndexState {
+
+    // Identifiant du FeedMapping indexé
+    @Id
+    private String mappingId;
+
+    private String msgType;
+
+    private String pointId;
+
+    // SHA-256 du texte produit par buildEmbeddingText
+    private String fingerprint;
+
+    private int version;
+
+    private LocalDateTime indexedAt;
+}
@@ -0,0 +1,30 @@
+package com.example.chatbotnasoft.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "llm_response_cache")
+public class LlmResponseCacheEntry {
+
+    // SHA-256 du modèle et du prompt
+    @Id
+    private String key;
+
+    private String model;
+
+    private String response;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime lastAccessedAt;
+
+    private long hitCount;
+}
@@ -0,0 +1,9 @@
+package com.example.chatbotnasoft.repository;
+
+import com.example.chatbotnasoft.entity.EmbeddingIndexState;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface EmbeddingIndexStateRepository extends MongoRepository<EmbeddingIndexState, String> {
+}
@@ -5,6 +5,7 @@ import com.example.chatbotnasoft.entity.MappingStatus;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +19,11 @@ public interface FeedMappingRepository extends MongoRepository<FeedMapping, Stri
 
     FeedMapping findByMsgTypeAndIsActive(String msgType, boolean isActive);
 
+    /**
+     * Rechercher plusieurs msg-types en une seule requête ($in)
+     */
+    List<FeedMapping> findByMsgTypeIn(Collection<String> msgTypes);
+
     List<FeedMapping> findByStatusIn(List<MappingStatus> statuses);
 
     List<FeedMapping> findByStatusAndIsActive(MappingStatus status, Boolean isActive);
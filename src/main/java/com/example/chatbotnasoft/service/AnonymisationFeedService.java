@@ -5,8 +5,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -28,7 +28,7 @@ public class AnonymisationFeedService {
         List<LigneAnonymisee> lignesAnonymisees = new ArrayList<>();
         String fileName = extractFileName(filePath);
         
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+        try (BufferedReader reader = FeedCompression.newReader(Path.of(filePath))) {
             String ligne;
             int numeroLigne = 0;
             
@@ -69,24 +69,25 @@ public class AnonymisationFeedService {
     private LigneAnonymisee anonymiserLigne(String ligne, int numeroLigne) {
         try {
             // Extraire les champs séparés par ";"
-            String[] champs = ligne.split(";");
+            FeedLineTokenizer champs = FeedLineTokenizer.of(ligne);
+            int nombreChamps = champs.fieldCountWithoutTrailingEmpty();
             
             // Vérifier qu'on a au moins 2 champs pour extraire le msgType
-            if (champs.length < 2) {
+            if (nombreChamps < 2) {
                 String erreur = "Ligne " + numeroLigne + ": Moins de 2 champs trouvés";
                 log.warn("⚠️ {}", erreur);
                 return new LigneAnonymisee(ligne, erreur);
             }
             
             // Extraire le msgType (2ème champ)
-            String msgType = champs[1].trim();
+            String msgType = champs.trimmedField(1);
             log.debug("🔍 MsgType extrait: '{}' pour ligne {}", msgType, numeroLigne);
             
             // Anonymiser chaque champ selon les règles
             List<ChampAnonymise> champsAnonymises = new ArrayList<>();
-            for (int i = 0; i < champs.length; i++) {
+            for (int i = 0; i < nombreChamps; i++) {
                 String nomChamp = "Champ " + (i + 1);
-                String valeurOriginale = champs[i].trim();
+                String valeurOriginale = champs.trimmedField(i);
                 
                 ChampAnonymise champAnonymise = anonymiserChamp(nomChamp, valeurOriginale, i + 1);
                 champsAnonymises.add(champAnonymise);
@@ -112,7 +113,7 @@ public class AnonymisationFeedService {
      * @param numeroChamp Numéro du champ (1-based)
      * @return ChampAnonymise avec les détails de l'anonymisation
      */
-    private ChampAnonymise anonymiserChamp(String nomChamp, String valeurOriginale, int numeroChamp) {
+    static ChampAnonymise anonymiserChamp(String nomChamp, String valeurOriginale, int numeroChamp) {
         
         // Règle 1: Conserver exactement les 3 premiers champs sans modification
         if (numeroChamp <= 3) {
@@ -127,119 +128,113 @@ public class AnonymisationFeedService {
         }
         
         String valeurTrim = valeurOriginale.trim();
-        TypeChamp typeChamp = detecterTypeChamp(valeurTrim);
-        String valeurAnonymisee = appliquerRegleAnonymisation(valeurTrim, typeChamp, numeroChamp);
-        String regleAppliquee = getRegleAppliquee(typeChamp, valeurTrim, valeurAnonymisee);
-        
-        return new ChampAnonymise(nomChamp, valeurOriginale, valeurAnonymisee, 
-                                typeChamp, regleAppliquee);
+        ChampAnonymise champ = anonymiserSelonType(valeurTrim);
+        champ.setNomChamp(nomChamp);
+        champ.setValeurOriginale(valeurOriginale);
+        champ.setRegleAppliquee(getRegleAppliquee(champ.getTypeChamp(), valeurTrim, champ.getValeurAnonymisee()));
+        return champ;
     }
 
     /**
-     * Détecte le type d'un champ selon son contenu
-     * @param valeur Valeur à analyser
-     * @return TypeChamp détecté
+     * Détecte le type d'une valeur non vide et l'anonymise, en un seul parcours des caractères :
+     * <ul>
+     *   <li>DATE : 8 chiffres commençant par 19 ou 20 → conservée (YYYYMMDD)</li>
+     *   <li>HEURE : 6 chiffres avec HH &lt;= 23, MM et SS &lt;= 59 → conservée (HHMMSS)</li>
+     *   <li>IDENTIFIANT : au moins 8 lettres/chiffres, casse ignorée → ID_ + 4 premiers caractères en majuscules + X</li>
+     *   <li>NOMBRE : chiffres uniquement → NUM_ + un X par chiffre</li>
+     *   <li>CODE : tout le reste → CODE_ + valeur si 3 caractères au plus, sinon CODE_XX</li>
+     * </ul>
+     * Une valeur contenant un caractère non ASCII passe par {@link String#toUpperCase()} comme avant
+     * (ex: "ß" devient "SS"), pour garder exactement les mêmes résultats.
      */
-    private TypeChamp detecterTypeChamp(String valeur) {
-        if (valeur == null || valeur.trim().isEmpty()) {
-            return TypeChamp.VIDE;
+    private static ChampAnonymise anonymiserSelonType(String valeur) {
+        int longueur = valeur.length();
+        boolean chiffres = true;
+        for (int i = 0; i < longueur; i++) {
+            char c = valeur.charAt(i);
+            if (c >= '0' && c <= '9') {
+                continue;
+            }
+            chiffres = false;
+            char majuscule = (char) (c & ~0x20);
+            if (majuscule >= 'A' && majuscule <= 'Z' && (c != 'i' || !isLocaleTurque())) {
+                continue;
+            }
+            if (c < 0x80) {
+                // Caractère ASCII hors [A-Za-z0-9] : ni nombre ni identifiant
+                return anonymiserCode(valeur);
+            }
+            return anonymiserSelonMajuscules(valeur);
         }
-        
-        String valeurTrim = valeur.trim().toUpperCase();
-        
-        // Détection de date (format YYYYMMDD)
-        if (valeurTrim.matches("\\d{8}") && 
-            (valeurTrim.startsWith("20") || valeurTrim.startsWith("19"))) {
-            return TypeChamp.DATE;
+
+        if (chiffres && longueur == 8 && (valeur.startsWith("20") || valeur.startsWith("19"))) {
+            return new ChampAnonymise(null, null, valeur, TypeChamp.DATE, null);
         }
-        
-        // Détection d'heure (format HHMMSS)
-        if (valeurTrim.matches("\\d{6}") && 
-            Integer.parseInt(valeurTrim.substring(0, 2)) <= 23 && 
-            Integer.parseInt(valeurTrim.substring(2, 4)) <= 59 && 
-            Integer.parseInt(valeurTrim.substring(4, 6)) <= 59) {
-            return TypeChamp.HEURE;
+        if (chiffres && longueur == 6 && deuxChiffres(valeur, 0) <= 23
+                && deuxChiffres(valeur, 2) <= 59 && deuxChiffres(valeur, 4) <= 59) {
+            return new ChampAnonymise(null, null, valeur, TypeChamp.HEURE, null);
         }
-        
-        // Détection d'identifiant alphanumérique (longue chaîne avec lettres et chiffres)
-        if (valeurTrim.matches("[A-Z0-9]{8,}")) {
-            return TypeChamp.IDENTIFIANT;
+        if (longueur >= 8) {
+            char[] identifiant = masque("ID_", longueur);
+            for (int i = 0; i < 4; i++) {
+                char c = valeur.charAt(i);
+                identifiant[3 + i] = c >= 'a' && c <= 'z' ? (char) (c - 'a' + 'A') : c;
+            }
+            return new ChampAnonymise(null, null, new String(identifiant), TypeChamp.IDENTIFIANT, null);
         }
-        
-        // Détection de nombre pur
-        if (valeurTrim.matches("\\d+")) {
-            return TypeChamp.NOMBRE;
+        if (chiffres) {
+            return new ChampAnonymise(null, null, new String(masque("NUM_", longueur)), TypeChamp.NOMBRE, null);
         }
-        
-        // Détection de code court (ex: "A", "05", "C")
-        if (valeurTrim.matches("^[A-Z0-9]{1,3}$")) {
-            return TypeChamp.CODE;
+        return anonymiserCode(valeur);
+    }
+
+    /**
+     * Valeur avec des caractères non ASCII : seul un identifiant est possible, si sa mise en majuscules
+     * ne contient que des lettres A-Z et des chiffres.
+     */
+    private static ChampAnonymise anonymiserSelonMajuscules(String valeur) {
+        String majuscules = valeur.toUpperCase();
+        int longueur = majuscules.length();
+        if (longueur < 8) {
+            return anonymiserCode(valeur);
         }
-        
-        return TypeChamp.CODE; // Par défaut, considérer comme code/texte libre
+        for (int i = 0; i < longueur; i++) {
+            char c = majuscules.charAt(i);
+            if (!(c >= 'A' && c <= 'Z' || c >= '0' && c <= '9')) {
+                return anonymiserCode(valeur);
+            }
+        }
+        char[] identifiant = masque("ID_", longueur);
+        majuscules.getChars(0, 4, identifiant, 3);
+        return new ChampAnonymise(null, null, new String(identifiant), TypeChamp.IDENTIFIANT, null);
+    }
+
+    private static ChampAnonymise anonymiserCode(String valeur) {
+        String code = valeur.length() <= 3 ? "CODE_" + valeur : "CODE_XX";
+        return new ChampAnonymise(null, null, code, TypeChamp.CODE, null);
     }
 
     /**
-     * Applique la règle d'anonymisation appropriée selon le type de champ
-     * @param valeur Valeur originale
-     * @param typeChamp Type détecté du champ
-     * @param numeroChamp Numéro du champ
-     * @return Valeur anonymisée
+     * Préfixe suivi de X : un par caractère pour un nombre, à partir du 5ème pour un identifiant
+     * (les 4 premiers sont recopiés ensuite).
      */
-    private String appliquerRegleAnonymisation(String valeur, TypeChamp typeChamp, int numeroChamp) {
-        switch (typeChamp) {
-            case DATE:
-                // Règle: Si le champ est une date au format YYYYMMDD → remplace par YYYYMMDD
-                if (valeur.matches("\\d{8}")) {
-                    return valeur; // Conserver le format exact
-                }
-                break;
-                
-            case HEURE:
-                // Règle: Si le champ est une heure au format HHMMSS → remplace par HHMMSS
-                if (valeur.matches("\\d{6}")) {
-                    return valeur; // Conserver le format exact
-                }
-                break;
-                
-            case IDENTIFIANT:
-                // Règle: Si le champ est un identifiant alphanumérique → remplace par ID_XXXXX
-                String valeurUpper = valeur.toUpperCase();
-                if (valeurUpper.matches("[A-Z0-9]{8,}")) {
-                    int longueur = valeurUpper.length();
-                    String debut = valeurUpper.substring(0, Math.min(4, longueur));
-                    String fin = "X".repeat(Math.max(1, longueur - 4));
-                    return "ID_" + debut + fin;
-                }
-                break;
-                
-            case NOMBRE:
-                // Règle: Si le champ est un nombre → remplace par NUM_XXXX... (même nombre de caractères)
-                if (valeur.matches("\\d+")) {
-                    int longueur = valeur.length();
-                    return "NUM_" + "X".repeat(longueur);
-                }
-                break;
-                
-            case CODE:
-                // Règle: Si le champ est un code ou texte libre → remplace par CODE_XX
-                String valeurTrim = valeur.trim();
-                if (valeurTrim.length() <= 3) {
-                    return "CODE_" + valeurTrim;
-                } else {
-                    return "CODE_XX";
-                }
+    private static char[] masque(String prefixe, int longueur) {
+        char[] masque = new char[prefixe.length() + longueur];
+        prefixe.getChars(0, prefixe.length(), masque, 0);
+        Arrays.fill(masque, prefixe.length(), masque.length, 'X');
+        return masque;
+    }
 
-                
-            case VIDE:
-                // Règle: Si le champ est vide → laisse vide
-                return valeur;
-                
-            default:
-                return valeur;
-        }
-        
-        return valeur; // Valeur par défaut si aucune règle ne s'applique
+    private static int deuxChiffres(String valeur, int index) {
+        return (valeur.charAt(index) - '0') * 10 + (valeur.charAt(index + 1) - '0');
+    }
+
+    /**
+     * En turc et azéri, toUpperCase() transforme 'i' en 'İ' (non ASCII).
+     */
+    private static boolean isLocaleTurque() {
+        String langue = Locale.getDefault().getLanguage();
+        return "tr".equals(langue) || "az".equals(langue);
     }
 
     /**
@@ -249,7 +244,7 @@ public class AnonymisationFeedService {
      * @param valeurAnonymisee Valeur anonymisée
      * @return Description de la règle
      */
-    private String getRegleAppliquee(TypeChamp typeChamp, String valeurOriginale, String valeurAnonymisee) {
+    private static String getRegleAppliquee(TypeChamp typeChamp, String valeurOriginale, String valeurAnonymisee) {
         if (valeurOriginale.equals(valeurAnonymisee)) {
             return "Aucune modification (valeur conservée)";
         }
@@ -339,7 +334,7 @@ public class AnonymisationFeedService {
         java.io.File feedDir = new java.io.File("input/feeds");
         
         if (feedDir.exists() && feedDir.isDirectory()) {
-            java.io.File[] files = feedDir.listFiles((dir, name) -> name.startsWith("FEED") && name.endsWith(".txt"));
+            java.io.File[] files = feedDir.listFiles((dir, name) -> FeedCompression.isFeedFileName(name));
             
             if (files != null) {
                 for (java.io.File file : files) {
@@ -29,6 +29,9 @@ public class AnonymizationService {
         int totalLinesProcessed = 0;
         String sourceFileName = null;
 
+        // Résoudre le statut de tous les msg-types du fichier en un seul aller-retour
+        Map<String, Boolean> knownByMsgType = feedDetectionService.resolveKnownMsgTypes(groupsByMsgType.keySet());
+
         // Traiter chaque groupe de msg-type
         for (Map.Entry<String, ParsedFeedGroup> entry : groupsByMsgType.entrySet()) {
             String msgType = entry.getKey();
@@ -41,7 +44,7 @@ public class AnonymizationService {
             }
 
             // Vérifier si le msg-type est connu
-            boolean isKnown = feedDetectionService.isMsgTypeKnown(msgType);
+            boolean isKnown = knownByMsgType.getOrDefault(msgType, false);
             
             if (isKnown) {
                 log.info("✅ Msg-type '{}' connu - pas d'anonymisation", msgType);
@@ -81,6 +84,75 @@ public class AnonymizationService {
                 totalLinesProcessed, sourceFileName);
     }
 
+    /**
+     * Démarre une anonymisation incrémentale : chaque lot de groupes est passé à {@link #processChunk}.
+     * Le statut connu/inconnu d'un msg-type n'est résolu qu'une seule fois par fichier.
+     */
+    public StreamingAnonymizationState startStreaming(int sampleLinesPerMsgType) {
+        return new StreamingAnonymizationState(sampleLinesPerMsgType);
+    }
+
+    public void processChunk(Map<String, ParsedFeedGroup> chunkGroups, StreamingAnonymizationState state) {
+        // Msg-types rencontrés pour la première fois dans ce lot : une seule requête groupée
+        List<String> newMsgTypes = chunkGroups.keySet().stream()
+                .filter(msgType -> !state.knownByMsgType.containsKey(msgType))
+                .toList();
+        if (!newMsgTypes.isEmpty()) {
+            state.knownByMsgType.putAll(feedDetectionService.resolveKnownMsgTypes(newMsgTypes));
+        }
+
+        for (Map.Entry<String, ParsedFeedGroup> entry : chunkGroups.entrySet()) {
+            String msgType = entry.getKey();
+            ParsedFeedGroup group = entry.getValue();
+
+            state.totalLinesProcessed += group.getTotalLines();
+            state.lineCountByMsgType.merge(msgType, group.getTotalLines(), Integer::sum);
+            
+            if (state.sourceFileName == null) {
+                state.sourceFileName = group.getSourceFileName();
+            }
+
+            boolean isKnown = state.knownByMsgType.get(msgType);
+            List<AnonymizedLine> samples = state.resultsByMsgType.computeIfAbsent(msgType, k -> new ArrayList<>());
+
+            for (RawFeedLine line : group.getLines()) {
+                if (samples.size() >= state.sampleLinesPerMsgType) {
+                    break;
+                }
+                String content = line.getTrimmedContent();
+                samples.add(new AnonymizedLine(
+                        content,
+                        isKnown ? content : anonymizeLine(content),
+                        msgType,
+                        line.getLineNumber(),
+                        line.getSourceFileName(),
+                        !isKnown
+                ));
+            }
+        }
+    }
+
+    public AnonymizationResult finishStreaming(StreamingAnonymizationState state) {
+        List<String> unknownMsgTypes = new ArrayList<>();
+        List<String> knownMsgTypes = new ArrayList<>();
+        state.knownByMsgType.forEach((msgType, isKnown) -> (isKnown ? knownMsgTypes : unknownMsgTypes).add(msgType));
+
+        AnonymizationResult result = new AnonymizationResult(state.resultsByMsgType, unknownMsgTypes, knownMsgTypes,
+                state.totalLinesProcessed, state.sourceFileName);
+
+        // Seul un échantillon est conservé par msg-type : recalculer les compteurs à partir des totaux exacts
+        int anonymizedLinesCount = unknownMsgTypes.stream()
+                .mapToInt(state.lineCountByMsgType::get)
+                .sum();
+        result.setAnonymizedLinesCount(anonymizedLinesCount);
+        result.setNonAnonymizedLinesCount(state.totalLinesProcessed - anonymizedLinesCount);
+
+        log.info("📊 Anonymisation incrémentale: {} lignes, {} msg-types inconnus ({}), {} connus",
+                state.totalLinesProcessed, unknownMsgTypes.size(), unknownMsgTypes, knownMsgTypes.size());
+        
+        return result;
+    }
+
     private List<AnonymizedLine> anonymizeGroup(ParsedFeedGroup group) {
         String msgType = group.getMsgType();
         
@@ -104,26 +176,24 @@ public class AnonymizationService {
     }
 
     private String anonymizeLine(String originalLine) {
-        // Découper la ligne sur le séparateur ;
-        String[] fields = originalLine.split(FIELD_SEPARATOR, -1); // -1 pour garder les champs vides
+        // Découper la ligne sur le séparateur ; (les champs vides sont gardés)
+        FeedLineTokenizer fields = FeedLineTokenizer.of(originalLine);
         
-        if (fields.length < 2) {
+        if (fields.fieldCount() < 2) {
             log.warn("⚠️ Ligne mal formée, moins de 2 champs: '{}'", originalLine);
             return originalLine; // Retourner la ligne originale
         }
 
-        // Conserver les 2 premiers champs intacts
-        String[] anonymizedFields = new String[fields.length];
-        anonymizedFields[0] = fields[0]; // 1er champ intact
-        anonymizedFields[1] = fields[1]; // 2ème champ (msg-type) intact
+        // Conserver les 2 premiers champs intacts, séparateur compris
+        StringBuilder anonymized = new StringBuilder(originalLine.length() + fields.fieldCount() * ANONYMIZED_VALUE.length());
+        anonymized.append(originalLine, 0, fields.fieldEnd(1));
 
         // Anonymiser tous les champs à partir du 3ème (index 2)
-        for (int i = 2; i < fields.length; i++) {
-            anonymizedFields[i] = ANONYMIZED_VALUE;
+        for (int i = 2; i < fields.fieldCount(); i++) {
+            anonymized.append(FIELD_SEPARATOR).append(ANONYMIZED_VALUE);
         }
 
-        // Recomposer la ligne anonymisée
-        return String.join(FIELD_SEPARATOR, anonymizedFields);
+        return anonymized.toString();
     }
 
     private void logAnonymizationSummary(List<String> unknownMsgTypes, List<String> knownMsgTypes,
@@ -157,4 +227,19 @@ public class AnonymizationService {
     public boolean isAnonymizedLine(String originalLine, String anonymizedLine) {
         return !originalLine.equals(anonymizedLine);
     }
+
+    public static class StreamingAnonymizationState {
+        private final int sampleLinesPerMsgType;
+        private final Map<String, Boolean> knownByMsgType = new LinkedHashMap<>();
+        private final Map<String, Integer> lineCountByMsgType = new HashMap<>();
+        private final Map<String, List<AnonymizedLine>> resultsByMsgType = new HashMap<>();
+        private int totalLinesProcessed;
+        private String sourceFileName;
+
+        private StreamingAnonymizationState(int sampleLinesPerMsgType) {
+            this.sampleLinesPerMsgType = Math.max(1, sampleLinesPerMsgType);
+        }
+
+        public int getTotalLinesProcessed() { return totalLinesProcessed; }
+    }
 }
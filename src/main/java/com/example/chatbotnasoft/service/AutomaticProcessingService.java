@@ -5,23 +5,27 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.nio.file.Path;
-
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AutomaticProcessingService {
 
-    private final FeedProcessingService feedProcessingService;
+    private final FileProcessingExecutor fileProcessingExecutor;
     private final FileProcessingService fileProcessingService;
 
+    /**
+     * Remet en file les fichiers prêts qui n'y sont plus : les fichiers déjà en file ou en cours
+     * de traitement sont réservés par l'ordonnanceur et ne sont jamais traités deux fois.
+     */
     @Scheduled(fixedDelayString = "#{@fileWatcherProperties.checkIntervalSeconds * 1000}")
     public void processReadyFilesAutomatically() {
-        int readyFilesCount = fileProcessingService.getReadyFilesCount();
-        
-        if (readyFilesCount > 0) {
-            log.info("🤖 Déclenchement automatique du traitement pour {} fichier(s) prêt(s)", readyFilesCount);
-            feedProcessingService.processReadyFiles();
+        if (fileProcessingService.getReadyFilesCount() == 0) {
+            return;
+        }
+
+        int offered = fileProcessingExecutor.offerReadyFiles();
+        if (offered > 0) {
+            log.info("🤖 {} fichier(s) prêt(s) remis en file de traitement", offered);
         }
     }
 }
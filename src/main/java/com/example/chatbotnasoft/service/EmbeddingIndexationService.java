@@ -1,22 +1,32 @@
 package com.example.chatbotnasoft.service;
 
 import com.example.chatbotnasoft.config.QdrantProperties;
+import com.example.chatbotnasoft.entity.EmbeddingIndexState;
 import com.example.chatbotnasoft.entity.FeedMapping;
 import com.example.chatbotnasoft.entity.MappingStatus;
+import com.example.chatbotnasoft.repository.EmbeddingIndexStateRepository;
 import com.example.chatbotnasoft.repository.FeedMappingRepository;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.nio.charset.StandardCharsets;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -27,84 +37,242 @@ import java.util.regex.Pattern;
 public class EmbeddingIndexationService {
 
     private final FeedMappingRepository feedMappingRepository;
+    private final EmbeddingIndexStateRepository embeddingIndexStateRepository;
+    private final FeedMappingCache feedMappingCache;
     private final GeminiEmbeddingService geminiEmbeddingService;
-    private final QdrantClient qdrantClient;
+    private final VectorStore vectorStore;
     private final QdrantProperties qdrantProperties;
     private final NlpAnonymizationService nlpAnonymizationService;
-    private final ObjectMapper objectMapper;
 
+    /**
+     * Ré-indexation complète : tous les mappings Validés actifs sont ré-embeddés.
+     */
     public IndexationResult indexAllValidatedActive() {
+        return synchronizeAll(false);
+    }
+
+    /**
+     * Ré-indexation incrémentale : seuls les mappings dont l'empreinte du texte ou la version a changé
+     * sont ré-embeddés ; les points des mappings désactivés ou supprimés sont retirés de Qdrant.
+     */
+    public IndexationResult indexIncremental() {
+        return synchronizeAll(true);
+    }
+
+    private synchronized IndexationResult synchronizeAll(boolean incremental) {
         List<FeedMapping> mappings = feedMappingRepository.findByStatusAndIsActive(MappingStatus.VALIDE, true);
+        Map<String, EmbeddingIndexState> states = new HashMap<>();
+        embeddingIndexStateRepository.findAll().forEach(state -> states.put(state.getMappingId(), state));
 
-        log.info("🚀 Indexation embeddings: démarrage ({} documents à traiter)", mappings.size());
+        List<FeedMapping> toIndex = incremental
+                ? mappings.stream().filter(mapping -> needsIndexing(mapping, states.get(mapping.getId()))).toList()
+                : mappings;
 
-        int indexed = 0;
+        Set<String> activeIds = new HashSet<>();
+        mappings.forEach(mapping -> activeIds.add(mapping.getId()));
+        List<EmbeddingIndexState> stale = states.values().stream()
+                .filter(state -> !activeIds.contains(state.getMappingId()))
+                .toList();
+
+        log.info("🚀 Indexation embeddings{}: démarrage ({} documents, {} à traiter, {} à supprimer)",
+                incremental ? " incrémentale" : "", mappings.size(), toIndex.size(), stale.size());
+
+        int deleted = deleteStale(stale);
+        return indexMappings(toIndex, mappings.size(), mappings.size() - toIndex.size(), deleted);
+    }
+
+    /**
+     * Synchronise uniquement les mappings donnés (changements remontés par le change stream ou les événements locaux).
+     */
+    public synchronized IndexationResult syncMappings(Collection<String> mappingIds) {
+        Map<String, FeedMapping> mappingsById = new HashMap<>();
+        feedMappingRepository.findAllById(mappingIds).forEach(mapping -> mappingsById.put(mapping.getId(), mapping));
+        Map<String, EmbeddingIndexState> states = new HashMap<>();
+        embeddingIndexStateRepository.findAllById(mappingIds).forEach(state -> states.put(state.getMappingId(), state));
+
+        List<FeedMapping> toIndex = new ArrayList<>();
+        List<EmbeddingIndexState> stale = new ArrayList<>();
         int skipped = 0;
+
+        for (String mappingId : mappingIds) {
+            FeedMapping mapping = mappingsById.get(mappingId);
+            EmbeddingIndexState state = states.get(mappingId);
+
+            if (mapping != null && isIndexable(mapping)) {
+                if (needsIndexing(mapping, state)) {
+                    toIndex.add(mapping);
+                } else {
+                    skipped++;
+                }
+            } else if (state != null) {
+                stale.add(state);
+            }
+        }
+
+        int deleted = deleteStale(stale);
+        IndexationResult result = indexMappings(toIndex, mappingIds.size(), skipped, deleted);
+        log.info("🔄 Synchronisation embeddings: {} modifiés, indexed={}, deleted={}, inchangés={}",
+                mappingIds.size(), result.indexed(), deleted, skipped);
+        return result;
+    }
+
+    private boolean isIndexable(FeedMapping mapping) {
+        return MappingStatus.VALIDE.equals(mapping.getStatus()) && Boolean.TRUE.equals(mapping.getIsActive());
+    }
+
+    private boolean needsIndexing(FeedMapping mapping, EmbeddingIndexState state) {
+        return state == null
+                || state.getVersion() != mapping.getVersion()
+                || !fingerprint(buildEmbeddingText(mapping)).equals(state.getFingerprint());
+    }
+
+    private int deleteStale(List<EmbeddingIndexState> stale) {
+        if (stale.isEmpty()) {
+            return 0;
+        }
+        try {
+            vectorStore.deletePoints(stale.stream().map(EmbeddingIndexState::getPointId).toList());
+            embeddingIndexStateRepository.deleteAll(stale);
+            log.info("🗑️ {} points Qdrant supprimés (mappings désactivés ou supprimés)", stale.size());
+            return stale.size();
+        } catch (Exception e) {
+            log.error("❌ Erreur suppression des points Qdrant obsolètes: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Les mappings sont embeddés par lots (batchEmbedContents) ; l'upsert Qdrant d'un lot se fait en
+     * arrière-plan pendant l'embedding du lot suivant (au plus un upsert en cours).
+     */
+    private IndexationResult indexMappings(List<FeedMapping> mappings, int total, int skipped, int deleted) {
+        int indexed = 0;
         int failed = 0;
 
         Integer vectorSize = null;
-        List<Map<String, Object>> batch = new ArrayList<>();
         int batchSize = Math.max(1, qdrantProperties.getIndexBatchSize());
+        int embeddingBatchSize = geminiEmbeddingService.getMaxBatchSize();
 
-        for (FeedMapping mapping : mappings) {
-            try {
-                String rawText = buildEmbeddingText(mapping);
-                String anonymizedText = nlpAnonymizationService.anonymize(rawText);
-                List<Double> vector = geminiEmbeddingService.embed(anonymizedText);
-
-                if (vector == null || vector.isEmpty()) {
-                    failed++;
-                    log.warn("⚠️ Embedding échoué (vector null/vide) pour msgType '{}' (id={})", mapping.getMsgType(), mapping.getId());
-                    continue;
-                }
+        ExecutorService upsertExecutor = Executors.newSingleThreadExecutor();
+        CompletableFuture<UpsertOutcome> pendingUpsert = CompletableFuture.completedFuture(new UpsertOutcome(0, 0));
 
-                if (vectorSize == null) {
-                    vectorSize = vector.size();
-                    qdrantClient.ensureCollectionExists(vectorSize);
-                    log.info("📐 Dimension embedding détectée: {}", vectorSize);
-                }
+        try {
+            for (int from = 0; from < mappings.size(); from += embeddingBatchSize) {
+                List<FeedMapping> window = mappings.subList(from, Math.min(from + embeddingBatchSize, mappings.size()));
+                List<PendingPoint> points = new ArrayList<>();
+                int windowFailed = 0;
+
+                try {
+                    List<String> texts = new ArrayList<>(window.size());
+                    List<String> fingerprints = new ArrayList<>(window.size());
+                    for (FeedMapping mapping : window) {
+                        String rawText = buildEmbeddingText(mapping);
+                        fingerprints.add(fingerprint(rawText));
+                        texts.add(nlpAnonymizationService.anonymize(rawText));
+                    }
+
+                    List<List<Double>> vectors = geminiEmbeddingService.embedBatch(texts);
+
+                    for (int i = 0; i < window.size(); i++) {
+                        FeedMapping mapping = window.get(i);
+                        List<Double> vector = vectors.get(i);
+
+                        if (vector == null || vector.isEmpty()) {
+                            windowFailed++;
+                            log.warn("⚠️ Embedding échoué (vector null/vide) pour msgType '{}' (id={})", mapping.getMsgType(), mapping.getId());
+                            continue;
+                        }
+
+                        if (vectorSize == null) {
+                            vectorSize = vector.size();
+                            vectorStore.ensureCollectionExists(vectorSize);
+                            log.info("📐 Dimension embedding détectée: {}", vectorSize);
+                        }
 
-                Map<String, Object> payload = new HashMap<>();
-                payload.put("msgType", mapping.getMsgType());
-                payload.put("fieldCount", mapping.getFieldCount());
-                payload.put("version", mapping.getVersion());
-                payload.put("status", mapping.getStatus() != null ? mapping.getStatus().getLabel() : null);
-                payload.put("createdAt", mapping.getCreatedAt());
-                payload.put("updatedAt", mapping.getUpdatedAt());
-
-                Map<String, Object> point = new HashMap<>();
-                point.put("id", toUuid(mapping.getId()));
-                point.put("vector", vector);
-                point.put("payload", payload);
-
-                batch.add(point);
-
-                if (batch.size() >= batchSize) {
-                    qdrantClient.upsertPoints(batch);
-                    indexed += batch.size();
-                    batch.clear();
+                        points.add(new PendingPoint(mapping, fingerprints.get(i), toPoint(mapping, vector)));
+                    }
+                } catch (Exception e) {
+                    windowFailed = window.size();
+                    points.clear();
+                    log.error("❌ Erreur indexation du lot [{}-{}]: {}", from, from + window.size() - 1, e.getMessage());
                 }
+                failed += windowFailed;
 
-            } catch (Exception e) {
-                failed++;
-                log.error("❌ Erreur indexation pour msgType '{}' (id={}): {}", mapping.getMsgType(), mapping.getId(), e.getMessage());
+                // Attendre l'upsert du lot précédent avant de lancer celui-ci
+                UpsertOutcome previous = pendingUpsert.join();
+                indexed += previous.indexed();
+                failed += previous.failed();
+
+                pendingUpsert = CompletableFuture.supplyAsync(() -> upsertInBatches(points, batchSize), upsertExecutor);
+                log.info("📦 Indexation embeddings: {}/{} documents embeddés", from + window.size(), mappings.size());
             }
+
+            UpsertOutcome last = pendingUpsert.join();
+            indexed += last.indexed();
+            failed += last.failed();
+        } finally {
+            upsertExecutor.shutdown();
         }
 
-        if (!batch.isEmpty()) {
+        log.info("✅ Indexation embeddings terminée: indexed={}, skipped={}, failed={}, deleted={}", indexed, skipped, failed, deleted);
+        return new IndexationResult(total, indexed, skipped, failed, vectorSize, deleted);
+    }
+
+    private Map<String, Object> toPoint(FeedMapping mapping, List<Double> vector) {
+        Map<String, Object> payload = MappingPayload.of(mapping);
+
+        Map<String, Object> point = new HashMap<>();
+        point.put("id", toUuid(mapping.getId()));
+        point.put("vector", vector);
+        point.put("payload", payload);
+        return point;
+    }
+
+    private UpsertOutcome upsertInBatches(List<PendingPoint> points, int batchSize) {
+        int indexed = 0;
+        int failed = 0;
+        for (int from = 0; from < points.size(); from += batchSize) {
+            List<PendingPoint> batch = points.subList(from, Math.min(from + batchSize, points.size()));
+            try {
+                vectorStore.upsertPoints(batch.stream().map(PendingPoint::point).toList());
+            } catch (Exception e) {
+                failed += batch.size();
+                log.error("❌ Erreur upsert batch: {}", e.getMessage());
+                continue;
+            }
+
+            // Etat d'indexation enregistré seulement une fois le point écrit dans Qdrant ; sans état,
+            // le lot est compté en échec et ré-indexé à la prochaine synchronisation
+            LocalDateTime now = LocalDateTime.now();
             try {
-                qdrantClient.upsertPoints(batch);
+                embeddingIndexStateRepository.saveAll(batch.stream()
+                        .map(pending -> new EmbeddingIndexState(pending.mapping().getId(), pending.mapping().getMsgType(),
+                                (String) pending.point().get("id"), pending.fingerprint(), pending.mapping().getVersion(), now))
+                        .toList());
                 indexed += batch.size();
             } catch (Exception e) {
                 failed += batch.size();
-                log.error("❌ Erreur upsert batch final: {}", e.getMessage());
+                log.error("❌ Erreur enregistrement de l'état d'indexation du batch: {}", e.getMessage());
             }
         }
+        return new UpsertOutcome(indexed, failed);
+    }
 
-        log.info("✅ Indexation embeddings terminée: indexed={}, skipped={}, failed={}", indexed, skipped, failed);
-        return new IndexationResult(mappings.size(), indexed, skipped, failed, vectorSize);
+    private String fingerprint(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            // Le format du payload fait partie de l'empreinte : un changement de format ré-indexe les points
+            digest.update(("payload-v" + MappingPayload.FORMAT_VERSION + "\n").getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
     }
 
+    private record PendingPoint(FeedMapping mapping, String fingerprint, Map<String, Object> point) {}
+
+    private record UpsertOutcome(int indexed, int failed) {}
+
     private String buildEmbeddingText(FeedMapping mapping) {
         String msgType = mapping.getMsgType() != null ? mapping.getMsgType().trim() : "";
         int fieldCount = mapping.getFieldCount();
@@ -167,7 +335,7 @@ public class EmbeddingIndexationService {
         return v.replaceAll("\\s+", " ");
     }
 
-    public record IndexationResult(int total, int indexed, int skipped, int failed, Integer vectorSize) {}
+    public record IndexationResult(int total, int indexed, int skipped, int failed, Integer vectorSize, int deleted) {}
 
     public List<Map<String, Object>> searchByQuery(String query, int limit) {
         log.info("🔎 QUERY: {}", query);
@@ -177,29 +345,21 @@ public class EmbeddingIndexationService {
             return List.of();
         }
 
-        String searchResult = qdrantClient.search(queryVector, limit);
-        log.info("🔎 QDRANT RAW RESULT: {}", searchResult);
-        if (searchResult == null || searchResult.isBlank()) {
+        List<VectorStore.SearchHit> hits = vectorStore.search(queryVector, limit);
+        log.info("🔎 SEARCH HITS: {}", hits.size());
+        if (hits.isEmpty()) {
             return List.of();
         }
 
-        return extractMappingsFromSearchResult(searchResult);
+        return extractMappingsFromSearchHits(hits);
     }
 
-    private List<Map<String, Object>> extractMappingsFromSearchResult(String searchResult) {
+    private List<Map<String, Object>> extractMappingsFromSearchHits(List<VectorStore.SearchHit> hits) {
         List<Map<String, Object>> results = new ArrayList<>();
         try {
-            JsonNode root = objectMapper.readTree(searchResult);
-            JsonNode points = root.path("result");
-            log.info("🔎 POINTS RAW: {}", points.toString());
-            for (JsonNode point : points) {
-                JsonNode payload = point.path("payload");
-                log.info("🔎 PAYLOAD RAW: {}", payload.toString());
-                String msgType = payload.path("msgType").asText();
-                log.info("🔎 MSGTYPE EXTRACTED: '{}'", msgType);
-                if (msgType.isBlank()) continue;
-
-                FeedMapping mapping = feedMappingRepository.findByMsgTypeAndIsActive(msgType, true);
+            for (VectorStore.SearchHit hit : hits) {
+                log.info("🔎 PAYLOAD RAW: {}", hit.payload());
+                FeedMapping mapping = MappingPayload.resolve(hit.payload(), feedMappingCache);
                 if (mapping != null) {
                     Map<String, Object> result = new HashMap<>();
                     result.put("msgType", mapping.getMsgType());
@@ -210,7 +370,7 @@ public class EmbeddingIndexationService {
                 }
             }
         } catch (Exception e) {
-            log.error("❌ Erreur extraction mappings depuis Qdrant search: {}", e.getMessage());
+            log.error("❌ Erreur extraction mappings depuis la recherche vectorielle: {}", e.getMessage());
         }
         return results;
     }
@@ -0,0 +1,167 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.config.EmbeddingSyncProperties;
+import com.example.chatbotnasoft.dto.FeedMappingChangedEvent;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maintient l'index Qdrant à jour au fil des modifications de la collection {@code feed}.
+ * <p>
+ * Les identifiants de mappings modifiés arrivent par le change stream MongoDB (toutes les écritures,
+ * y compris externes) et par les {@link FeedMappingChangedEvent} publiés localement ; ils sont regroupés
+ * puis synchronisés par lot toutes les {@code embedding-sync.flush-interval-ms}. Sans replica set
+ * (change stream indisponible), une synchronisation incrémentale complète est faite périodiquement.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmbeddingSyncService {
+
+    private static final String FEED_COLLECTION = "feed";
+
+    private final EmbeddingIndexationService embeddingIndexationService;
+    private final EmbeddingSyncProperties properties;
+    private final MongoTemplate mongoTemplate;
+
+    private final Set<String> pendingMappingIds = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean running = true;
+    private volatile boolean changeStreamActive;
+    private volatile MongoChangeStreamCursor<ChangeStreamDocument<Document>> changeStreamCursor;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startChangeStream() {
+        if (!properties.isEnabled() || !properties.isChangeStreamEnabled()) {
+            log.info("ℹ️ Change stream des mappings désactivé, synchronisation par scrutation");
+            return;
+        }
+
+        Thread watcher = new Thread(this::watchFeedCollection, "feed-change-stream");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watchFeedCollection() {
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor =
+                     mongoTemplate.getCollection(FEED_COLLECTION).watch().cursor()) {
+            changeStreamCursor = cursor;
+            changeStreamActive = true;
+            log.info("👂 Change stream MongoDB actif sur la collection '{}'", FEED_COLLECTION);
+
+            while (running && cursor.hasNext()) {
+                ChangeStreamDocument<Document> change = cursor.next();
+                if (change.getDocumentKey() != null) {
+                    String mappingId = toId(change.getDocumentKey().get("_id"));
+                    if (mappingId != null) {
+                        pendingMappingIds.add(mappingId);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            if (running) {
+                log.warn("⚠️ Change stream MongoDB indisponible ({}), repli sur la scrutation toutes les {} ms",
+                        e.getMessage(), properties.getFallbackPollIntervalMs());
+            }
+        } finally {
+            changeStreamActive = false;
+            changeStreamCursor = null;
+        }
+    }
+
+    /**
+     * Source de changements locale : écritures faites par l'application elle-même.
+     */
+    @EventListener
+    public void onMappingChanged(FeedMappingChangedEvent event) {
+        if (properties.isEnabled() && event.mappingId() != null) {
+            pendingMappingIds.add(event.mappingId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${embedding-sync.flush-interval-ms:2000}")
+    public void flushPendingChanges() {
+        if (!properties.isEnabled() || pendingMappingIds.isEmpty()) {
+            return;
+        }
+
+        List<String> mappingIds = new ArrayList<>();
+        for (String mappingId : pendingMappingIds) {
+            if (pendingMappingIds.remove(mappingId)) {
+                mappingIds.add(mappingId);
+            }
+        }
+
+        try {
+            embeddingIndexationService.syncMappings(mappingIds);
+        } catch (Exception e) {
+            // Nouvelle tentative au prochain passage
+            pendingMappingIds.addAll(mappingIds);
+            log.error("❌ Erreur synchronisation embeddings ({} mappings): {}", mappingIds.size(), e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${embedding-sync.fallback-poll-interval-ms:60000}",
+            initialDelayString = "${embedding-sync.fallback-poll-interval-ms:60000}")
+    public void pollWhenChangeStreamUnavailable() {
+        if (!properties.isEnabled() || changeStreamActive) {
+            return;
+        }
+        try {
+            embeddingIndexationService.indexIncremental();
+        } catch (Exception e) {
+            log.error("❌ Erreur synchronisation incrémentale des embeddings: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", properties.isEnabled());
+        status.put("changeStreamActive", changeStreamActive);
+        status.put("pendingChanges", pendingMappingIds.size());
+        return status;
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = changeStreamCursor;
+        if (cursor != null) {
+            try {
+                cursor.close();
+            } catch (Exception ignored) {
+                // arrêt de l'application
+            }
+        }
+    }
+
+    private static String toId(BsonValue id) {
+        if (id == null) {
+            return null;
+        }
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        if (id.isString()) {
+            return id.asString().getValue();
+        }
+        return null;
+    }
+}
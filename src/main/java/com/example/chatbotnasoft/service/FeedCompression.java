@@ -0,0 +1,117 @@
+package com.example.chatbotnasoft.service;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Lecture des fichiers FEED compressés ({@code FEED_x.txt.gz}, {@code FEED_x.txt.zst}) en flux, sans
+ * décompression préalable sur disque.
+ * <p>
+ * Le gzip (y compris plusieurs membres concaténés) est décompressé par le JDK, le zstd par zstd-jni
+ * ({@code com.github.luben:zstd-jni}).
+ */
+public final class FeedCompression {
+
+    // Lectures disque et décompression par grands blocs
+    static final int READ_BUFFER_SIZE = 1024 * 1024;
+    private static final int INFLATE_BUFFER_SIZE = 64 * 1024;
+
+    public enum Codec {
+        NONE(""),
+        GZIP(".gz"),
+        ZSTD(".zst");
+
+        private final String suffix;
+
+        Codec(String suffix) {
+            this.suffix = suffix;
+        }
+
+        public String getSuffix() {
+            return suffix;
+        }
+    }
+
+    private FeedCompression() {
+    }
+
+    public static Codec codecOf(String fileName) {
+        if (fileName.endsWith(Codec.GZIP.suffix)) {
+            return Codec.GZIP;
+        }
+        if (fileName.endsWith(Codec.ZSTD.suffix)) {
+            return Codec.ZSTD;
+        }
+        return Codec.NONE;
+    }
+
+    public static Codec codecOf(Path filePath) {
+        return codecOf(filePath.getFileName().toString());
+    }
+
+    public static boolean isCompressed(Path filePath) {
+        return codecOf(filePath) != Codec.NONE;
+    }
+
+    /**
+     * Nom du fichier sans l'extension de compression ({@code FEED_x.txt.gz} -> {@code FEED_x.txt}).
+     */
+    public static String baseName(String fileName) {
+        Codec codec = codecOf(fileName);
+        return fileName.substring(0, fileName.length() - codec.suffix.length());
+    }
+
+    /**
+     * {@code FEED*.txt}, éventuellement compressé (.gz, .zst).
+     */
+    public static boolean isFeedFileName(String fileName) {
+        if (fileName == null) {
+            return false;
+        }
+        String base = baseName(fileName);
+        return base.startsWith("FEED") && base.endsWith(".txt");
+    }
+
+    /**
+     * Vrai si le nom porte déjà l'extension d'un fichier FEED (.txt, compressé ou non).
+     */
+    public static boolean hasFeedExtension(String fileName) {
+        return baseName(fileName).endsWith(".txt");
+    }
+
+    /**
+     * Flux décompressé du fichier (ou le fichier tel quel s'il n'est pas compressé).
+     */
+    public static InputStream open(Path filePath) throws IOException {
+        return decompress(new BufferedInputStream(Files.newInputStream(filePath), READ_BUFFER_SIZE), codecOf(filePath));
+    }
+
+    /**
+     * Décompresse {@code in} selon le codec ; le flux est fermé si la décompression ne peut pas démarrer.
+     */
+    static InputStream decompress(InputStream in, Codec codec) throws IOException {
+        try {
+            return switch (codec) {
+                case NONE -> in;
+                case GZIP -> new GZIPInputStream(in, INFLATE_BUFFER_SIZE);
+                case ZSTD -> new ZstdInputStream(in);
+            };
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    public static BufferedReader newReader(Path filePath) throws IOException {
+        return new BufferedReader(new InputStreamReader(open(filePath), StandardCharsets.UTF_8), READ_BUFFER_SIZE);
+    }
+}
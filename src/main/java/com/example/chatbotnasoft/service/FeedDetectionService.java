@@ -4,11 +4,12 @@ import com.example.chatbotnasoft.entity.Feed;
 import com.example.chatbotnasoft.entity.FeedMapping;
 import com.example.chatbotnasoft.entity.MappingStatus;
 import com.example.chatbotnasoft.repository.FeedRepository;
-import com.example.chatbotnasoft.repository.FeedMappingRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -19,7 +20,7 @@ import java.util.Optional;
 public class FeedDetectionService {
 
     private final FeedRepository feedRepository;
-    private final FeedMappingRepository feedMappingRepository;
+    private final FeedMappingCache feedMappingCache;
 
     public record FeedValidationResult(
             boolean isValid,
@@ -37,7 +38,7 @@ public class FeedDetectionService {
     public boolean isMsgTypeKnown(String msgType) {
         log.debug("🔍 Vérification du msg-type dans MongoDB: '{}'", msgType);
 
-        Optional<FeedMapping> mappingOpt = feedMappingRepository.findByMsgType(msgType);
+        Optional<FeedMapping> mappingOpt = feedMappingCache.findByMsgType(msgType);
         boolean isKnown = mappingOpt.isPresent() && MappingStatus.VALIDE.equals(mappingOpt.get().getStatus());
         
         if (isKnown) {
@@ -49,14 +50,37 @@ public class FeedDetectionService {
         return isKnown;
     }
 
+    /**
+     * Résout le statut de plusieurs msg-types en un seul aller-retour MongoDB.
+     * Les msg-types sans mapping sont absents de la map retournée.
+     */
+    public Map<String, MappingStatus> resolveStatuses(Collection<String> msgTypes) {
+        log.debug("🔍 Résolution groupée de {} msg-types", msgTypes.size());
+
+        Map<String, MappingStatus> statuses = new HashMap<>();
+        feedMappingCache.findAllByMsgType(msgTypes).forEach((msgType, mappingOpt) ->
+                mappingOpt.ifPresent(mapping -> statuses.put(msgType, mapping.getStatus())));
+        return statuses;
+    }
+
+    /**
+     * Version groupée de {@link #isMsgTypeKnown(String)} : msg-type -> connu (mapping Validé)
+     */
+    public Map<String, Boolean> resolveKnownMsgTypes(Collection<String> msgTypes) {
+        Map<String, MappingStatus> statuses = resolveStatuses(msgTypes);
+        Map<String, Boolean> known = new HashMap<>();
+        for (String msgType : msgTypes) {
+            known.put(msgType, MappingStatus.VALIDE.equals(statuses.get(msgType)));
+        }
+        return known;
+    }
+
     public List<String> getKnownMsgTypes(List<String> msgTypes) {
         log.debug("🔍 Recherche de {} msg-types dans la base de données", msgTypes.size());
 
+        Map<String, Boolean> known = resolveKnownMsgTypes(msgTypes);
         List<String> knownMsgTypes = msgTypes.stream()
-                .filter(msgType -> {
-                    Optional<FeedMapping> mappingOpt = feedMappingRepository.findByMsgType(msgType);
-                    return mappingOpt.isPresent() && MappingStatus.VALIDE.equals(mappingOpt.get().getStatus());
-                })
+                .filter(known::get)
                 .toList();
         
         log.debug("✅ {} msg-types connus sur {} recherchés", knownMsgTypes.size(), msgTypes.size());
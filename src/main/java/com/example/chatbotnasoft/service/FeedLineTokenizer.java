@@ -0,0 +1,163 @@
+package com.example.chatbotnasoft.service;
+
+import java.util.Arrays;
+
+/**
+ * Découpage d'une ligne FEED en champs séparés par ';', sans expression régulière ni tableau de chaînes.
+ * <p>
+ * Seules les positions des champs sont calculées, dans un tableau réutilisé d'une ligne à l'autre ; les
+ * chaînes ne sont créées qu'à la demande ({@link #field}, {@link #trimmedField}). Deux comptes de champs :
+ * {@link #fieldCount()} garde les champs vides de fin de ligne (comme {@code split(";", -1)}),
+ * {@link #fieldCountWithoutTrailingEmpty()} les retire (comme {@code split(";")}).
+ * <p>
+ * {@link #of(String)} réutilise une instance par thread : le résultat est valable jusqu'au découpage
+ * suivant sur le même thread.
+ */
+public final class FeedLineTokenizer {
+
+    public static final char SEPARATOR = ';';
+
+    private static final ThreadLocal<FeedLineTokenizer> PER_THREAD = ThreadLocal.withInitial(FeedLineTokenizer::new);
+
+    private String line = "";
+    // bounds[2*i] = début du champ i, bounds[2*i+1] = fin (exclue)
+    private int[] bounds = new int[32];
+    private int fieldCount;
+
+    /**
+     * Découpe la ligne avec l'instance du thread courant.
+     */
+    public static FeedLineTokenizer of(String line) {
+        return PER_THREAD.get().reset(line);
+    }
+
+    /**
+     * Msg-type de la ligne, même résultat que {@code of(line).msgType()} mais sans découper toute la ligne :
+     * le parcours s'arrête à la fin du deuxième champ (ou, s'il est vide, au premier caractère non ';' suivant).
+     */
+    public static String msgTypeOf(String line) {
+        int first = line.indexOf(SEPARATOR);
+        if (first < 0) {
+            return null;
+        }
+        int second = line.indexOf(SEPARATOR, first + 1);
+        int end = second < 0 ? line.length() : second;
+        if (end > first + 1) {
+            int start = first + 1;
+            while (start < end && line.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && line.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            return line.substring(start, end);
+        }
+        // Deuxième champ vide : il ne compte que si un champ non vide le suit
+        for (int i = end + 1; i < line.length(); i++) {
+            if (line.charAt(i) != SEPARATOR) {
+                return "";
+            }
+        }
+        return null;
+    }
+
+    public FeedLineTokenizer reset(String line) {
+        this.line = line;
+        this.fieldCount = 0;
+        int start = 0;
+        for (int i = 0, length = line.length(); i < length; i++) {
+            if (line.charAt(i) == SEPARATOR) {
+                addField(start, i);
+                start = i + 1;
+            }
+        }
+        addField(start, line.length());
+        return this;
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount * 2 == bounds.length) {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+        bounds[fieldCount * 2] = start;
+        bounds[fieldCount * 2 + 1] = end;
+        fieldCount++;
+    }
+
+    public String line() {
+        return line;
+    }
+
+    /**
+     * Nombre de champs, vides de fin de ligne compris ({@code "a;b;;"} : 4).
+     */
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Nombre de champs sans les champs vides de fin de ligne, comme {@code split(";").length}
+     * ({@code "a;b;;"} : 2, {@code ";;"} : 0, ligne sans séparateur : 1).
+     */
+    public int fieldCountWithoutTrailingEmpty() {
+        if (fieldCount == 1) {
+            return 1;
+        }
+        int count = fieldCount;
+        while (count > 0 && fieldStart(count - 1) == fieldEnd(count - 1)) {
+            count--;
+        }
+        return count;
+    }
+
+    public int fieldStart(int index) {
+        return bounds[checkIndex(index) * 2];
+    }
+
+    public int fieldEnd(int index) {
+        return bounds[checkIndex(index) * 2 + 1];
+    }
+
+    public String field(int index) {
+        return line.substring(fieldStart(index), fieldEnd(index));
+    }
+
+    /**
+     * Champ sans espaces de début et de fin (même règle que {@link String#trim()}), en une seule chaîne.
+     */
+    public String trimmedField(int index) {
+        int start = fieldStart(index);
+        int end = fieldEnd(index);
+        while (start < end && line.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && line.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return line.substring(start, end);
+    }
+
+    /**
+     * Le msg-type est le deuxième champ, sans espaces ; null si la ligne a moins de 2 champs
+     * (même règle que {@code split(";").length < 2}).
+     */
+    public String msgType() {
+        return fieldCountWithoutTrailingEmpty() >= 2 ? trimmedField(1) : null;
+    }
+
+    public boolean isBlank(int index) {
+        for (int i = fieldStart(index), end = fieldEnd(index); i < end; i++) {
+            if (line.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Champ " + index + " absent (" + fieldCount + " champs)");
+        }
+        return index;
+    }
+}
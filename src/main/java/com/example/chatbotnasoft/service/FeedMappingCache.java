@@ -0,0 +1,232 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.config.MappingCacheProperties;
+import com.example.chatbotnasoft.entity.FeedMapping;
+import com.example.chatbotnasoft.repository.FeedMappingRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache mémoire partagé des mappings par msg-type (lecture à travers le cache).
+ * <p>
+ * Les absences de mapping sont aussi mises en cache, pour qu'un msg-type inconnu ne provoque pas
+ * un aller-retour MongoDB par ligne. Les entrées sont invalidées par {@link FeedMappingService}
+ * à chaque création, nouvelle version ou suppression d'un mapping.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FeedMappingCache {
+
+    private final FeedMappingRepository feedMappingRepository;
+    private final MappingCacheProperties properties;
+
+    private final Map<String, CacheEntry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    // Incrémenté à chaque invalidation : un chargement commencé avant n'est pas remis en cache
+    private long invalidationEpoch;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Equivalent de {@link FeedMappingRepository#findByMsgType(String)}.
+     */
+    public Optional<FeedMapping> findByMsgType(String msgType) {
+        if (msgType == null) {
+            return Optional.empty();
+        }
+        if (!properties.isEnabled()) {
+            return feedMappingRepository.findByMsgType(msgType);
+        }
+
+        long now = System.currentTimeMillis();
+        long epoch;
+        synchronized (entries) {
+            CacheEntry entry = entries.get(msgType);
+            if (entry != null && !entry.isExpired(now, properties.getTtlMillis())) {
+                hits.increment();
+                return entry.mapping();
+            }
+            epoch = invalidationEpoch;
+        }
+
+        misses.increment();
+        Optional<FeedMapping> loaded = feedMappingRepository.findByMsgType(msgType);
+        put(msgType, loaded, now, epoch);
+        return loaded;
+    }
+
+    /**
+     * Résolution groupée : les msg-types déjà en cache sont servis localement, tous les autres
+     * sont chargés en une seule requête {@code $in}. Chaque msg-type demandé est présent dans le résultat.
+     */
+    public Map<String, Optional<FeedMapping>> findAllByMsgType(Collection<String> msgTypes) {
+        Map<String, Optional<FeedMapping>> result = new HashMap<>();
+        Set<String> toLoad = new HashSet<>();
+        long now = System.currentTimeMillis();
+        long epoch;
+
+        synchronized (entries) {
+            for (String msgType : msgTypes) {
+                if (msgType == null || result.containsKey(msgType)) {
+                    continue;
+                }
+                CacheEntry entry = properties.isEnabled() ? entries.get(msgType) : null;
+                if (entry != null && !entry.isExpired(now, properties.getTtlMillis())) {
+                    hits.increment();
+                    result.put(msgType, entry.mapping());
+                } else {
+                    toLoad.add(msgType);
+                }
+            }
+            epoch = invalidationEpoch;
+        }
+
+        if (toLoad.isEmpty()) {
+            return result;
+        }
+
+        misses.add(toLoad.size());
+        List<FeedMapping> loaded = feedMappingRepository.findByMsgTypeIn(toLoad);
+        log.debug("📦 {} msg-types chargés en une requête ({} trouvés)", toLoad.size(), loaded.size());
+
+        for (String msgType : toLoad) {
+            result.put(msgType, Optional.empty());
+        }
+        for (FeedMapping mapping : loaded) {
+            result.put(mapping.getMsgType(), Optional.of(mapping));
+        }
+        if (properties.isEnabled()) {
+            for (String msgType : toLoad) {
+                put(msgType, result.get(msgType), now, epoch);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Equivalent de {@code findByMsgTypeAndIsActive(msgType, true)} : null si absent ou inactif.
+     */
+    public FeedMapping findActiveByMsgType(String msgType) {
+        return findByMsgType(msgType)
+                .filter(mapping -> Boolean.TRUE.equals(mapping.getIsActive()))
+                .orElse(null);
+    }
+
+    /**
+     * Lecture sans chargement (jamais d'accès MongoDB) : {@link Lookup.Status#MISS} si le msg-type n'est pas
+     * en cache, {@link Lookup.Status#ABSENT} si son absence de mapping l'est.
+     */
+    public Lookup getIfPresent(String msgType) {
+        if (msgType == null || !properties.isEnabled()) {
+            return Lookup.MISS;
+        }
+        synchronized (entries) {
+            CacheEntry entry = entries.get(msgType);
+            if (entry == null || entry.isExpired(System.currentTimeMillis(), properties.getTtlMillis())) {
+                return Lookup.MISS;
+            }
+            hits.increment();
+            return entry.mapping().map(Lookup::present).orElse(Lookup.ABSENT);
+        }
+    }
+
+    public void invalidate(String msgType) {
+        if (msgType == null) {
+            return;
+        }
+        synchronized (entries) {
+            invalidationEpoch++;
+            if (entries.remove(msgType) != null) {
+                invalidations.increment();
+            }
+        }
+        log.debug("♻️ Cache mapping invalidé pour msg-type '{}'", msgType);
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            invalidationEpoch++;
+            invalidations.add(entries.size());
+            entries.clear();
+        }
+        log.info("♻️ Cache des mappings vidé");
+    }
+
+    public Map<String, Object> getStatistics() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("size", size());
+        stats.put("maxEntries", properties.getMaxEntries());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", requests > 0 ? hitCount * 100.0 / requests : 0.0);
+        stats.put("evictions", evictions.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private void put(String msgType, Optional<FeedMapping> mapping, long now, long epoch) {
+        synchronized (entries) {
+            if (epoch != invalidationEpoch) {
+                return;
+            }
+            entries.put(msgType, new CacheEntry(mapping, now));
+            while (entries.size() > Math.max(1, properties.getMaxEntries())) {
+                String eldest = entries.keySet().iterator().next();
+                entries.remove(eldest);
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Résultat de {@link #getIfPresent} : non en cache, absence de mapping en cache, ou mapping en cache.
+     */
+    public record Lookup(Status status, FeedMapping mapping) {
+
+        public enum Status { MISS, ABSENT, PRESENT }
+
+        static final Lookup MISS = new Lookup(Status.MISS, null);
+        static final Lookup ABSENT = new Lookup(Status.ABSENT, null);
+
+        static Lookup present(FeedMapping mapping) {
+            return new Lookup(Status.PRESENT, mapping);
+        }
+
+        public boolean isMiss() {
+            return status == Status.MISS;
+        }
+    }
+
+    private record CacheEntry(Optional<FeedMapping> mapping, long loadedAt) {
+
+        boolean isExpired(long now, long ttlMillis) {
+            return ttlMillis > 0 && now - loadedAt > ttlMillis;
+        }
+    }
+}
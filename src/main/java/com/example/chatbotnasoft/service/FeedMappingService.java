@@ -1,5 +1,6 @@
 package com.example.chatbotnasoft.service;
 
+import com.example.chatbotnasoft.dto.FeedMappingChangedEvent;
 import com.example.chatbotnasoft.dto.FieldMapping;
 import com.example.chatbotnasoft.entity.FeedMapping;
 import com.example.chatbotnasoft.entity.FeedMappingHistory;
@@ -8,6 +9,7 @@ import com.example.chatbotnasoft.repository.FeedMappingRepository;
 import com.example.chatbotnasoft.repository.FeedMappingHistoryRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -23,6 +25,10 @@ public class FeedMappingService {
     private final FeedMappingRepository feedMappingRepository;
 
     private final FeedMappingHistoryRepository feedMappingHistoryRepository;
+
+    private final FeedMappingCache feedMappingCache;
+
+    private final ApplicationEventPublisher eventPublisher;
     
     /**
      * Stocke les mappings LLM en évitant les doublons
@@ -88,6 +94,8 @@ public class FeedMappingService {
             created.setUpdatedAt(LocalDateTime.now());
 
             FeedMapping saved = feedMappingRepository.save(created);
+            feedMappingCache.invalidate(msgType);
+            eventPublisher.publishEvent(new FeedMappingChangedEvent(saved.getId(), msgType));
             log.info("✅ Mapping créé pour msg-type '{}' (v{}) statut '{}' (ID: {})", 
                     msgType, saved.getVersion(), saved.getStatus().getLabel(), saved.getId());
             return true;
@@ -115,6 +123,8 @@ public class FeedMappingService {
         existing.setUpdatedAt(LocalDateTime.now());
 
         FeedMapping saved = feedMappingRepository.save(existing);
+        feedMappingCache.invalidate(msgType);
+        eventPublisher.publishEvent(new FeedMappingChangedEvent(saved.getId(), msgType));
         log.info("✅ Mapping mis à jour pour msg-type '{}' (v{}) statut '{}' (ID: {})", 
                 msgType, saved.getVersion(), saved.getStatus().getLabel(), saved.getId());
         return true;
@@ -221,8 +231,11 @@ public class FeedMappingService {
      * Supprimer un mapping par msg-type
      */
     public boolean deleteMappingByMsgType(String msgType) {
-        if (feedMappingRepository.existsByMsgType(msgType)) {
+        Optional<FeedMapping> existing = feedMappingRepository.findByMsgType(msgType);
+        if (existing.isPresent()) {
             feedMappingRepository.deleteByMsgType(msgType);
+            feedMappingCache.invalidate(msgType);
+            eventPublisher.publishEvent(new FeedMappingChangedEvent(existing.get().getId(), msgType));
             log.info("🗑️ Mapping supprimé pour msg-type '{}'", msgType);
             return true;
         }
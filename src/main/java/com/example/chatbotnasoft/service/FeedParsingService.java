@@ -13,8 +13,6 @@ import java.util.stream.Collectors;
 @Slf4j
 public class FeedParsingService {
 
-    private static final String FIELD_SEPARATOR = ";";
-
     public ParsingResult parseAndGroupLines(List<RawFeedLine> lines) {
         log.info("🔍 Début du parsing et regroupement de {} lignes", lines.size());
         
@@ -24,35 +22,12 @@ public class FeedParsingService {
         String sourceFileName = null;
 
         for (RawFeedLine line : lines) {
-            try {
-                String msgType = extractMsgType(line);
-                
-                if (msgType == null || msgType.trim().isEmpty()) {
-                    String error = String.format("Msg-type vide ou invalide - Ligne %d: '%s'", 
-                            line.getLineNumber(), line.getTrimmedContent());
-                    parsingErrors.add(error);
-                    log.warn("⚠️ {}", error);
-                    continue;
-                }
-
-                // Ajouter la ligne au groupe approprié
-                groupsByMsgType.computeIfAbsent(msgType, k -> {
-                    log.info("📋 Création d'un nouveau groupe pour msg-type: '{}'", msgType);
-                    return new ParsedFeedGroup(msgType, new ArrayList<>());
-                }).addLine(line);
-
+            if (parseLineInto(line, groupsByMsgType, parsingErrors)) {
                 validLinesProcessed++;
-                log.debug("✅ Ligne {} ajoutée au groupe '{}'", line.getLineNumber(), msgType);
                 
                 if (sourceFileName == null) {
                     sourceFileName = line.getSourceFileName();
                 }
-
-            } catch (Exception e) {
-                String error = String.format("Erreur de parsing - Ligne %d: '%s' - Erreur: %s", 
-                        line.getLineNumber(), line.getTrimmedContent(), e.getMessage());
-                parsingErrors.add(error);
-                log.error("❌ {}", error);
             }
         }
 
@@ -63,21 +38,109 @@ public class FeedParsingService {
                 validLinesProcessed, sourceFileName);
     }
 
+    /**
+     * Démarre un parsing incrémental : les lots sont passés à {@link #parseChunk} au fil de la lecture.
+     */
+    public StreamingParseState startStreaming(int sampleLinesPerMsgType, int maxRetainedErrors) {
+        return new StreamingParseState(sampleLinesPerMsgType, maxRetainedErrors);
+    }
+
+    /**
+     * Parse un lot de lignes et retourne ses groupes par msg-type (complets pour ce lot).
+     * L'état cumulé ne conserve qu'un échantillon borné de lignes par msg-type, avec des compteurs exacts.
+     */
+    public Map<String, ParsedFeedGroup> parseChunk(List<RawFeedLine> chunk, StreamingParseState state) {
+        Map<String, ParsedFeedGroup> chunkGroups = new HashMap<>();
+        List<String> chunkErrors = new ArrayList<>();
+        int chunkValidLines = 0;
+
+        for (RawFeedLine line : chunk) {
+            if (parseLineInto(line, chunkGroups, chunkErrors)) {
+                chunkValidLines++;
+                
+                if (state.sourceFileName == null) {
+                    state.sourceFileName = line.getSourceFileName();
+                }
+            }
+        }
+
+        state.totalLines += chunk.size();
+        state.validLines += chunkValidLines;
+        state.recordErrors(chunkErrors);
+        chunkGroups.forEach((msgType, group) -> state.groupsByMsgType
+                .computeIfAbsent(msgType, k -> new ParsedFeedGroup(msgType, new ArrayList<>()))
+                .absorb(group, state.sampleLinesPerMsgType));
+
+        return chunkGroups;
+    }
+
+    /**
+     * Reprend un parsing incrémental à partir des groupes et compteurs d'un point de reprise.
+     */
+    public StreamingParseState resumeStreaming(int sampleLinesPerMsgType, int maxRetainedErrors,
+                                               Map<String, ParsedFeedGroup> groups, int totalLines, int validLines) {
+        StreamingParseState state = new StreamingParseState(sampleLinesPerMsgType, maxRetainedErrors);
+        groups.forEach((msgType, group) -> state.groupsByMsgType
+                .computeIfAbsent(msgType, k -> new ParsedFeedGroup(msgType, new ArrayList<>()))
+                .absorb(group, state.sampleLinesPerMsgType));
+        state.totalLines = totalLines;
+        state.validLines = validLines;
+        return state;
+    }
+
+    public ParsingResult finishStreaming(StreamingParseState state) {
+        logParsingSummary(state.groupsByMsgType, state.parsingErrors, state.totalLines, state.validLines);
+        
+        if (state.droppedErrors > 0) {
+            log.warn("⚠️ {} erreurs de parsing supplémentaires non conservées", state.droppedErrors);
+        }
+
+        return new ParsingResult(state.groupsByMsgType, state.parsingErrors, state.totalLines,
+                state.validLines, state.sourceFileName);
+    }
+
+    private boolean parseLineInto(RawFeedLine line, Map<String, ParsedFeedGroup> groupsByMsgType,
+                                  List<String> parsingErrors) {
+        try {
+            String msgType = extractMsgType(line);
+            
+            if (msgType == null || msgType.trim().isEmpty()) {
+                String error = String.format("Msg-type vide ou invalide - Ligne %d: '%s'", 
+                        line.getLineNumber(), line.getTrimmedContent());
+                parsingErrors.add(error);
+                log.warn("⚠️ {}", error);
+                return false;
+            }
+
+            // Ajouter la ligne au groupe approprié
+            groupsByMsgType.computeIfAbsent(msgType, k -> {
+                log.debug("📋 Création d'un nouveau groupe pour msg-type: '{}'", msgType);
+                return new ParsedFeedGroup(msgType, new ArrayList<>());
+            }).addLine(line);
+
+            log.debug("✅ Ligne {} ajoutée au groupe '{}'", line.getLineNumber(), msgType);
+            return true;
+
+        } catch (Exception e) {
+            String error = String.format("Erreur de parsing - Ligne %d: '%s' - Erreur: %s", 
+                    line.getLineNumber(), line.getTrimmedContent(), e.getMessage());
+            parsingErrors.add(error);
+            log.error("❌ {}", error);
+            return false;
+        }
+    }
+
     private String extractMsgType(RawFeedLine line) {
         String content = line.getTrimmedContent();
         
-        // Découper la ligne sur le séparateur ;
-        String[] fields = content.split(FIELD_SEPARATOR);
-        
-        // Vérifier qu'il y a au moins 2 champs
-        if (fields.length < 2) {
+        // Vérifier qu'il y a au moins 2 champs (même règle que split(";")) ; seuls les deux premiers
+        // champs sont parcourus, la ligne n'est découpée entièrement qu'en cas d'erreur
+        String msgType = FeedLineTokenizer.msgTypeOf(content);
+        if (msgType == null) {
             throw new IllegalArgumentException(String.format(
                     "Ligne %d: nombre de champs insuffisant (%d trouvé, minimum 2 requis)", 
-                    line.getLineNumber(), fields.length));
+                    line.getLineNumber(), FeedLineTokenizer.of(content).fieldCountWithoutTrailingEmpty()));
         }
-
-        // Extraire le deuxième champ (index 1)
-        String msgType = fields[1].trim();
         
         log.debug("🔧 Extraction msg-type - Ligne {}: '{}' -> '{}'", 
                 line.getLineNumber(), content, msgType);
@@ -118,7 +181,55 @@ public class FeedParsingService {
             return false;
         }
         
-        String[] fields = content.split(FIELD_SEPARATOR);
-        return fields.length >= 2 && !fields[1].trim().isEmpty();
+        String msgType = FeedLineTokenizer.msgTypeOf(content);
+        return msgType != null && !msgType.isEmpty();
+    }
+
+    public static class StreamingParseState {
+        private final int sampleLinesPerMsgType;
+        private final int maxRetainedErrors;
+        private final Map<String, ParsedFeedGroup> groupsByMsgType = new HashMap<>();
+        private final List<String> parsingErrors = new ArrayList<>();
+        private int totalLines;
+        private int validLines;
+        private int droppedErrors;
+        private String sourceFileName;
+
+        private StreamingParseState(int sampleLinesPerMsgType, int maxRetainedErrors) {
+            this.sampleLinesPerMsgType = Math.max(1, sampleLinesPerMsgType);
+            this.maxRetainedErrors = Math.max(0, maxRetainedErrors);
+        }
+
+        private void recordErrors(List<String> errors) {
+            for (String error : errors) {
+                if (parsingErrors.size() < maxRetainedErrors) {
+                    parsingErrors.add(error);
+                } else {
+                    droppedErrors++;
+                }
+            }
+        }
+
+        /**
+         * Ajoute à cet état le résultat d'une portion de fichier qui le suit immédiatement.
+         */
+        public void mergeFrom(StreamingParseState next) {
+            totalLines += next.totalLines;
+            validLines += next.validLines;
+            recordErrors(next.parsingErrors);
+            droppedErrors += next.droppedErrors;
+            next.groupsByMsgType.forEach((msgType, group) -> groupsByMsgType
+                    .computeIfAbsent(msgType, k -> new ParsedFeedGroup(msgType, new ArrayList<>()))
+                    .absorb(group, sampleLinesPerMsgType));
+
+            if (sourceFileName == null) {
+                sourceFileName = next.sourceFileName;
+            }
+        }
+
+        public int getTotalLines() { return totalLines; }
+        public int getValidLines() { return validLines; }
+        public int getGroupCount() { return groupsByMsgType.size(); }
+        public Map<String, ParsedFeedGroup> getGroupsByMsgType() { return Collections.unmodifiableMap(groupsByMsgType); }
     }
 }
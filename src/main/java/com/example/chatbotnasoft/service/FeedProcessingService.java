@@ -1,7 +1,9 @@
 package com.example.chatbotnasoft.service;
 
+import com.example.chatbotnasoft.config.IngestionProperties;
 import com.example.chatbotnasoft.dto.AnonymizationResult;
 import com.example.chatbotnasoft.dto.LLMAnalysisResult;
+import com.example.chatbotnasoft.dto.ParsedFeedGroup;
 import com.example.chatbotnasoft.dto.ParsingResult;
 import com.example.chatbotnasoft.dto.RawFeedLine;
 import lombok.RequiredArgsConstructor;
@@ -9,12 +11,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Stream;
+import java.util.concurrent.CancellationException;
 
 @Service
 @RequiredArgsConstructor
@@ -24,9 +25,12 @@ public class FeedProcessingService {
     private final FileReadingService fileReadingService;
     private final FileProcessingService fileProcessingService;
     private final FeedParsingService feedParsingService;
+    private final ParallelFeedParsingService parallelFeedParsingService;
     private final AnonymizationService anonymizationService;
     private final LLMService llmService;
     private final FeedMappingService feedMappingService;
+    private final IngestionProperties ingestionProperties;
+    private final IngestionJournal ingestionJournal;
 
     public void processFeedFile(Path filePath) {
         log.info("🔍 Vérification du fichier: {}", filePath.getFileName());
@@ -38,81 +42,45 @@ public class FeedProcessingService {
 
         log.info("✅ Fichier valide, début du traitement: {}", filePath.getFileName());
 
+        // Reprise après un arrêt brutal : le journal indique jusqu'où le fichier a été traité
+        IngestionJournal.Entry resumed = ingestionJournal.resumable(filePath).orElse(null);
+        if (resumed != null && resumed.state() == IngestionJournal.State.LLM_DONE) {
+            log.info("⏩ Analyse LLM déjà faite avant l'arrêt: {}", filePath.getFileName());
+            fileProcessingService.markFileAsProcessed(filePath);
+            log.info("🗂️ Fichier marqué comme traité: {}", filePath.getFileName());
+            return;
+        }
+
         try {
-            // Compter les lignes d'abord
-            log.info("📊 Comptage des lignes en cours...");
-            long totalLines = fileReadingService.countLines(filePath);
-            log.info("📈 Le fichier contient {} lignes à traiter", totalLines);
-
-            // Traiter les lignes avec streaming
-            AtomicInteger processedLines = new AtomicInteger(0);
-            log.info("🚀 Début de la lecture streaming des lignes...");
-            
-            List<RawFeedLine> allLines = new ArrayList<>();
+            AnonymizationService.StreamingAnonymizationState anonymizationState = anonymizationService.startStreaming(
+                    ingestionProperties.getSampleLinesPerMsgType());
+            ParsingResult parsingResult;
             
-            try (Stream<RawFeedLine> lines = fileReadingService.readFileLines(filePath)) {
-                lines.forEach(line -> {
-                    allLines.add(line);
-                    int current = processedLines.incrementAndGet();
-                    
-                    // Log de progression toutes les 1000 lignes ou pour les petits fichiers
-                    if (current % 1000 == 0 || current == totalLines || current <= 10) {
-                        log.info("📖 Progression: {}/{} lignes traitées ({:.1f}%) - Contenu: '{}'", 
-                                current, totalLines, (current * 100.0 / totalLines), line.getTrimmedContent());
-                    }
-                });
+            if (resumed != null) {
+                parsingResult = resumeInChunks(filePath, resumed.checkpoint(), anonymizationState);
+            } else if (parallelFeedParsingService.shouldParseInParallel(filePath)) {
+                // Gros fichier : parsing parallèle par plages d'octets, puis anonymisation des groupes fusionnés
+                parsingResult = parallelFeedParsingService.parseFile(filePath, ingestionProperties.getSampleLinesPerMsgType());
+                anonymizationService.processChunk(parsingResult.getGroupsByMsgType(), anonymizationState);
+                ingestionJournal.recordCheckpoint(filePath, IngestionJournal.Checkpoint.of(Files.size(filePath), 0,
+                        parsingResult.getGroupsByMsgType(), parsingResult.getTotalLinesProcessed(),
+                        parsingResult.getValidLinesProcessed(), true));
+            } else {
+                parsingResult = processInChunks(filePath, anonymizationState);
             }
-
-            log.info("✅ Lecture terminée: {} lignes lues avec succès", processedLines.get());
-            
-            // Parser et regrouper les lignes par msg-type
-            log.info("🔧 Début du parsing et regroupement par msg-type...");
-            ParsingResult parsingResult = feedParsingService.parseAndGroupLines(allLines);
             
             log.info("📋 Parsing terminé: {} groupes créés avec {} lignes valides", 
                     parsingResult.getGroupCount(), parsingResult.getValidLinesProcessed());
             
-            // Anonymiser les msg-types inconnus
-            log.info("🔒 Début de l'anonymisation des msg-types inconnus...");
-            AnonymizationResult anonymizationResult = anonymizationService.processGroups(
-                    parsingResult.getGroupsByMsgType());
+            AnonymizationResult anonymizationResult = anonymizationService.finishStreaming(anonymizationState);
             
             log.info("🔒 Anonymisation terminée: {} lignes anonymisées sur {}", 
                     anonymizationResult.getAnonymizedLinesCount(), anonymizationResult.getTotalLinesProcessed());
             
-            // Ici, dans les prochaines étapes, nous enverrons les lignes anonymisées au LLM
-            if (anonymizationResult.hasUnknownMsgTypes()) {
-                log.info("🤖 Début de l'analyse LLM pour {} msg-types inconnus", 
-                        anonymizationResult.getUnknownMsgTypesCount());
-                
-                // Analyser uniquement les msg-types inconnus
-                Map<String, List<com.example.chatbotnasoft.dto.AnonymizedLine>> unknownLines = 
-                        anonymizationResult.getResultsByMsgType().entrySet().stream()
-                                .filter(entry -> anonymizationResult.getUnknownMsgTypes().contains(entry.getKey()))
-                                .collect(java.util.stream.Collectors.toMap(
-                                        Map.Entry::getKey,
-                                        Map.Entry::getValue
-                                ));
-                
-                LLMAnalysisResult llmResult = llmService.analyzeAnonymizedLines(
-                        unknownLines, filePath.getFileName().toString());
-                
-                log.info("🧠 Analyse LLM terminée: {} lignes analysées avec {:.1f}% de succès", 
-                        llmResult.getTotalLinesAnalyzed(), llmResult.getSuccessRate());
-                
-                // Stocker les mappings dans MongoDB avec déduplication
-                if (llmResult.hasSuccessfulMappings()) {
-                    log.info("💾 Stockage des mappings LLM dans MongoDB...");
-                    feedMappingService.storeMappings(llmResult.getMappings());
-                    
-                    log.info("✅ Mappings stockés avec succès. Total mappings dans la base: {}", 
-                            feedMappingService.getTotalMappingsCount());
-                } else {
-                    log.info("ℹ️ Aucun mapping valide à stocker");
-                }
-            } else {
-                log.info("✅ Tous les msg-types sont connus - pas d'analyse LLM requise");
-            }
+            checkNotCancelled(filePath);
+
+            analyzeUnknownMsgTypes(filePath, anonymizationResult);
+            ingestionJournal.recordLlmDone(filePath);
             
             // Marquer le fichier comme traité
             fileProcessingService.markFileAsProcessed(filePath);
@@ -123,26 +91,152 @@ public class FeedProcessingService {
         }
     }
 
-    private void processLine(RawFeedLine line) {
-        // Pour l'instant, on se contente de logger la ligne
-        // Dans les prochaines étapes, nous ajouterons le parsing et le traitement
-        log.info("🔧 Traitement de la ligne {} du fichier {}: '{}'", 
-                line.getLineNumber(), line.getSourceFileName(), line.getTrimmedContent());
+    /**
+     * Lignes ajoutées à un fichier suivi en continu : parsing, anonymisation et analyse LLM du seul lot,
+     * sans marquer le fichier comme traité.
+     */
+    public void processAppendedLines(Path filePath, List<RawFeedLine> lines) {
+        FeedParsingService.StreamingParseState parseState = feedParsingService.startStreaming(
+                ingestionProperties.getSampleLinesPerMsgType(), ingestionProperties.getMaxRetainedErrors());
+        AnonymizationService.StreamingAnonymizationState anonymizationState = anonymizationService.startStreaming(
+                ingestionProperties.getSampleLinesPerMsgType());
+
+        Map<String, ParsedFeedGroup> groups = feedParsingService.parseChunk(lines, parseState);
+        anonymizationService.processChunk(groups, anonymizationState);
+        AnonymizationResult anonymizationResult = anonymizationService.finishStreaming(anonymizationState);
+
+        log.info("📥 {} nouvelles lignes traitées pour {} ({} msg-types)", lines.size(), filePath.getFileName(),
+                groups.size());
+        analyzeUnknownMsgTypes(filePath, anonymizationResult);
     }
 
-    public void processReadyFiles() {
-        log.info("🔍 Vérification des fichiers prêts à traiter...");
-        var readyFiles = fileProcessingService.getReadyFiles();
+    private void analyzeUnknownMsgTypes(Path filePath, AnonymizationResult anonymizationResult) {
+        // Ici, dans les prochaines étapes, nous enverrons les lignes anonymisées au LLM
+        if (anonymizationResult.hasUnknownMsgTypes()) {
+            log.info("🤖 Début de l'analyse LLM pour {} msg-types inconnus", 
+                    anonymizationResult.getUnknownMsgTypesCount());
+            
+            // Analyser uniquement les msg-types inconnus
+            Map<String, List<com.example.chatbotnasoft.dto.AnonymizedLine>> unknownLines = 
+                    anonymizationResult.getResultsByMsgType().entrySet().stream()
+                            .filter(entry -> anonymizationResult.getUnknownMsgTypes().contains(entry.getKey()))
+                            .collect(java.util.stream.Collectors.toMap(
+                                    Map.Entry::getKey,
+                                    Map.Entry::getValue
+                            ));
+            
+            LLMAnalysisResult llmResult = llmService.analyzeAnonymizedLines(
+                    unknownLines, filePath.getFileName().toString());
+            
+            log.info("🧠 Analyse LLM terminée: {} lignes analysées avec {:.1f}% de succès", 
+                    llmResult.getTotalLinesAnalyzed(), llmResult.getSuccessRate());
+            
+            // Stocker les mappings dans MongoDB avec déduplication
+            if (llmResult.hasSuccessfulMappings()) {
+                log.info("💾 Stockage des mappings LLM dans MongoDB...");
+                feedMappingService.storeMappings(llmResult.getMappings());
+                
+                log.info("✅ Mappings stockés avec succès. Total mappings dans la base: {}", 
+                        feedMappingService.getTotalMappingsCount());
+            } else {
+                log.info("ℹ️ Aucun mapping valide à stocker");
+            }
+        } else {
+            log.info("✅ Tous les msg-types sont connus - pas d'analyse LLM requise");
+        }
+    }
+
+    /**
+     * Point d'annulation : le thread de traitement est interrompu quand le fichier est annulé ou à l'arrêt.
+     */
+    private static void checkNotCancelled(Path filePath) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Traitement interrompu: " + filePath.getFileName());
+        }
+    }
+
+    private ParsingResult processInChunks(Path filePath,
+                                          AnonymizationService.StreamingAnonymizationState anonymizationState)
+            throws IOException {
+        // Lecture en un seul passage : parsing, regroupement et anonymisation par lots bornés
+        log.info("🚀 Début du traitement streaming (lots de {} lignes)...", ingestionProperties.getChunkSize());
         
-        if (readyFiles.isEmpty()) {
-            log.info("ℹ️ Aucun fichier prêt à traiter");
-            return;
+        FeedParsingService.StreamingParseState parseState = feedParsingService.startStreaming(
+                ingestionProperties.getSampleLinesPerMsgType(), ingestionProperties.getMaxRetainedErrors());
+        return streamFrom(filePath, 0, 0, parseState, anonymizationState);
+    }
+
+    /**
+     * Reprise depuis le dernier point de reprise : les groupes déjà lus (échantillons et compteurs exacts)
+     * sont restaurés et réanonymisés, puis la lecture continue à l'offset enregistré.
+     */
+    private ParsingResult resumeInChunks(Path filePath, IngestionJournal.Checkpoint checkpoint,
+                                         AnonymizationService.StreamingAnonymizationState anonymizationState)
+            throws IOException {
+        log.info("⏩ Reprise du traitement de {} à l'octet {} ({} lignes déjà traitées{})", filePath.getFileName(),
+                checkpoint.offset(), checkpoint.totalLines(), checkpoint.parsed() ? ", lecture terminée" : "");
+
+        Map<String, ParsedFeedGroup> restoredGroups = checkpoint.toGroups();
+        FeedParsingService.StreamingParseState parseState = feedParsingService.resumeStreaming(
+                ingestionProperties.getSampleLinesPerMsgType(), ingestionProperties.getMaxRetainedErrors(),
+                restoredGroups, checkpoint.totalLines(), checkpoint.validLines());
+        anonymizationService.processChunk(checkpoint.toGroups(), anonymizationState);
+
+        if (checkpoint.parsed()) {
+            return feedParsingService.finishStreaming(parseState);
         }
+        return streamFrom(filePath, checkpoint.offset(), checkpoint.lineNumber(), parseState, anonymizationState);
+    }
+
+    private ParsingResult streamFrom(Path filePath, long startOffset, int firstLineNumber,
+                                     FeedParsingService.StreamingParseState parseState,
+                                     AnonymizationService.StreamingAnonymizationState anonymizationState)
+            throws IOException {
+        // Dans un fichier compressé, l'offset ne permet pas de reprendre : seul le point final est enregistré
+        long checkpointInterval = FeedCompression.isCompressed(filePath) ? 0 : ingestionProperties.getCheckpointIntervalBytes();
+        long[] lastCheckpoint = {startOffset};
+        int[] lastLineNumber = {firstLineNumber};
+
+        long linesRead = fileReadingService.readFileInChunks(filePath, ingestionProperties.getChunkSize(),
+                startOffset, firstLineNumber, (chunk, bytesRead, totalBytes) -> {
+                    checkNotCancelled(filePath);
+                    Map<String, ParsedFeedGroup> chunkGroups = feedParsingService.parseChunk(chunk, parseState);
+                    anonymizationService.processChunk(chunkGroups, anonymizationState);
+                    lastLineNumber[0] = chunk.get(chunk.size() - 1).getLineNumber();
 
-        log.info("📋 Début du traitement de {} fichier(s) prêt(s)", readyFiles.size());
-        readyFiles.keySet().forEach(filePath -> {
-            log.info("🎯 Traitement du fichier: {}", filePath.getFileName());
-            processFeedFile(filePath);
-        });
+                    // Point de reprise : offset atteint (début de la ligne suivante) et état cumulé du parsing
+                    if (checkpointInterval > 0 && bytesRead - lastCheckpoint[0] >= checkpointInterval
+                            && bytesRead < totalBytes) {
+                        ingestionJournal.recordCheckpoint(filePath, checkpointOf(bytesRead, lastLineNumber[0],
+                                parseState, false));
+                        lastCheckpoint[0] = bytesRead;
+                    }
+                    
+                    log.info("📖 Progression: {} / {} octets ({}) - {} lignes traitées",
+                            bytesRead, totalBytes, formatPercent(bytesRead, totalBytes), parseState.getTotalLines());
+                });
+
+        log.info("✅ Lecture terminée: {} lignes lues avec succès", linesRead);
+        ingestionJournal.recordCheckpoint(filePath, checkpointOf(Files.size(filePath), lastLineNumber[0],
+                parseState, true));
+        return feedParsingService.finishStreaming(parseState);
+    }
+
+    private static IngestionJournal.Checkpoint checkpointOf(long offset, int lineNumber,
+                                                            FeedParsingService.StreamingParseState parseState,
+                                                            boolean parsed) {
+        return IngestionJournal.Checkpoint.of(offset, lineNumber, parseState.getGroupsByMsgType(),
+                parseState.getTotalLines(), parseState.getValidLines(), parsed);
+    }
+
+    private String formatPercent(long bytesRead, long totalBytes) {
+        return totalBytes > 0 ? String.format("%.1f%%", bytesRead * 100.0 / totalBytes) : "100%";
+    }
+
+    private void processLine(RawFeedLine line) {
+        // Pour l'instant, on se contente de logger la ligne
+        // Dans les prochaines étapes, nous ajouterons le parsing et le traitement
+        log.info("🔧 Traitement de la ligne {} du fichier {}: '{}'", 
+                line.getLineNumber(), line.getSourceFileName(), line.getTrimmedContent());
     }
 }
@@ -2,14 +2,13 @@ package com.example.chatbotnasoft.service;
 
 import com.example.chatbotnasoft.dto.ReadableFeedLine;
 import com.example.chatbotnasoft.entity.FeedMapping;
-import com.example.chatbotnasoft.repository.FeedMappingRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -21,7 +20,7 @@ import java.util.*;
 public class FeedReadableService {
 
     @Autowired
-    private FeedMappingRepository feedMappingRepository;
+    private FeedMappingCache feedMappingCache;
 
     /**
      * Génère une représentation lisible d'un fichier FEED
@@ -33,7 +32,7 @@ public class FeedReadableService {
         
         List<ReadableFeedLine> readableLines = new ArrayList<>();
         
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+        try (BufferedReader reader = FeedCompression.newReader(Path.of(filePath))) {
             String ligne;
             int numeroLigne = 0;
             
@@ -71,21 +70,21 @@ public class FeedReadableService {
     private ReadableFeedLine processLine(String ligne, int numeroLigne) {
         try {
             // Extraire les champs séparés par ";"
-            String[] champs = ligne.split(";");
+            FeedLineTokenizer champs = FeedLineTokenizer.of(ligne);
             
             // Vérifier qu'on a au moins 2 champs pour extraire le msgType
-            if (champs.length < 2) {
+            if (champs.fieldCountWithoutTrailingEmpty() < 2) {
                 String erreur = "Ligne " + numeroLigne + ": Moins de 2 champs trouvés";
                 log.warn("⚠️ {}", erreur);
                 return new ReadableFeedLine("", ligne, erreur);
             }
             
             // Extraire le msgType (2ème champ)
-            String msgType = champs[1].trim();
+            String msgType = champs.trimmedField(1);
             log.debug("🔍 MsgType extrait: '{}' pour ligne {}", msgType, numeroLigne);
             
             // Chercher le mapping dans MongoDB
-            Optional<FeedMapping> mappingOpt = feedMappingRepository.findByMsgType(msgType);
+            Optional<FeedMapping> mappingOpt = feedMappingCache.findByMsgType(msgType);
             
             if (mappingOpt.isEmpty()) {
                 String erreur = "Aucun mapping trouvé pour le msgType: " + msgType;
@@ -108,18 +107,18 @@ public class FeedReadableService {
 
     /**
      * Génère les champs lisibles en associant chaque valeur à sa signification
-     * @param champs Valeurs des champs de la ligne
+     * @param champs Champs de la ligne
      * @param mapping Mapping trouvé dans MongoDB
      * @return Map des champs lisibles (Champ X -> Signification : Valeur)
      */
-    private Map<String, String> generateReadableFields(String[] champs, FeedMapping mapping) {
+    private Map<String, String> generateReadableFields(FeedLineTokenizer champs, FeedMapping mapping) {
         Map<String, String> champsLisibles = new LinkedHashMap<>();
         Map<String, String> mappingFields = mapping.getMapping();
         
         // Pour chaque champ de la ligne, essayer de trouver sa signification
-        for (int i = 0; i < champs.length; i++) {
+        for (int i = 0, nombreChamps = champs.fieldCountWithoutTrailingEmpty(); i < nombreChamps; i++) {
             String champKey = "Champ " + (i + 1);
-            String champValue = champs[i].trim();
+            String champValue = champs.trimmedField(i);
             
             // Chercher la signification dans le mapping
             String signification = mappingFields.get(champKey);
@@ -147,7 +146,7 @@ public class FeedReadableService {
         java.io.File feedDir = new java.io.File("input/feeds");
         
         if (feedDir.exists() && feedDir.isDirectory()) {
-            java.io.File[] files = feedDir.listFiles((dir, name) -> name.startsWith("FEED") && name.endsWith(".txt"));
+            java.io.File[] files = feedDir.listFiles((dir, name) -> FeedCompression.isFeedFileName(name));
             
             if (files != null) {
                 for (java.io.File file : files) {
@@ -2,14 +2,13 @@ package com.example.chatbotnasoft.service;
 
 import com.example.chatbotnasoft.dto.ReadableFeedLine;
 import com.example.chatbotnasoft.entity.FeedMapping;
-import com.example.chatbotnasoft.repository.FeedMappingRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -21,7 +20,7 @@ import java.util.*;
 @Slf4j
 public class FeedSummaryService {
     
-    private final FeedMappingRepository feedMappingRepository;
+    private final FeedMappingCache feedMappingCache;
     
     /**
      * Génère un résumé lisible pour chaque ligne d'un fichier FEED
@@ -31,7 +30,7 @@ public class FeedSummaryService {
     public List<ReadableFeedLine> generateReadableSummary(String filePath) {
         List<ReadableFeedLine> readableLines = new ArrayList<>();
         
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+        try (BufferedReader reader = FeedCompression.newReader(Path.of(filePath))) {
             String line;
             int lineNumber = 0;
             
@@ -69,18 +68,18 @@ public class FeedSummaryService {
     private ReadableFeedLine processLine(String line, int lineNumber) {
         try {
             // Extraire les champs séparés par ";"
-            String[] champs = line.split(";");
+            FeedLineTokenizer champs = FeedLineTokenizer.of(line);
             
-            if (champs.length < 2) {
+            if (champs.fieldCountWithoutTrailingEmpty() < 2) {
                 log.warn("⚠️ Ligne {} ignorée : moins de 2 champs", lineNumber);
                 return null;
             }
             
             // Extraire le msgType (deuxième champ)
-            String msgType = champs[1].trim();
+            String msgType = champs.trimmedField(1);
             
             // Rechercher le mapping dans MongoDB
-            Optional<FeedMapping> feedMappingOpt = feedMappingRepository.findByMsgType(msgType);
+            Optional<FeedMapping> feedMappingOpt = feedMappingCache.findByMsgType(msgType);
             
             if (feedMappingOpt.isEmpty()) {
                 log.warn("⚠️ Ligne {} : Aucun mapping trouvé pour msgType '{}'", lineNumber, msgType);
@@ -100,17 +99,17 @@ public class FeedSummaryService {
     
     /**
      * Crée le mapping lisible entre les champs et leurs significations
-     * @param champs Tableau des valeurs de la ligne
+     * @param champs Champs de la ligne
      * @param feedMapping Mapping trouvé en base
      * @return Map avec "Champ X" -> "Signification : Valeur"
      */
-    private Map<String, String> createReadableMapping(String[] champs, FeedMapping feedMapping) {
+    private Map<String, String> createReadableMapping(FeedLineTokenizer champs, FeedMapping feedMapping) {
         Map<String, String> readableMapping = new LinkedHashMap<>();
         
         // Pour chaque champ de la ligne
-        for (int i = 0; i < champs.length; i++) {
+        for (int i = 0, nombreChamps = champs.fieldCountWithoutTrailingEmpty(); i < nombreChamps; i++) {
             String champNom = "Champ " + (i + 1);
-            String valeur = champs[i].trim();
+            String valeur = champs.trimmedField(i);
             
             // Chercher la signification dans le mapping (index i -> signification)
             String signification = getSignificationForIndex(feedMapping, i);
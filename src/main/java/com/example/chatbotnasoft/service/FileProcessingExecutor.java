@@ -0,0 +1,357 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.config.ConcurrencyProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ordonnanceur d'ingestion : file d'attente bornée et priorisée des fichiers stabilisés, consommée par
+ * {@code concurrency.file-processing-threads} workers.
+ * <p>
+ * Chaque fichier est réservé de sa mise en file jusqu'à la fin de son traitement : il ne peut être ni mis
+ * en file ni traité deux fois en même temps. Quand la file est pleine, {@link #offer(Path)} refuse le fichier
+ * et la stabilisation le garde en attente (contre-pression). En mode threads virtuels
+ * ({@code concurrency.virtual-threads}, Java 21+), les workers sont des threads virtuels.
+ * <p>
+ * Annuler un fichier en cours interrompt son worker : la lecture par lots et l'analyse LLM s'arrêtent au
+ * prochain point de contrôle. A l'arrêt, les traitements en cours ont {@code concurrency.shutdown-timeout-seconds}
+ * pour finir ; les fichiers encore en file restent marqués prêts et, comme ceux interrompus, restent dans
+ * le {@link IngestionJournal} pour être repris au redémarrage.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FileProcessingExecutor {
+
+    private final ConcurrencyProperties properties;
+    private final FeedProcessingService feedProcessingService;
+    private final FileProcessingService fileProcessingService;
+    private final IngestionJournal ingestionJournal;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition idle = lock.newCondition();
+    private PriorityQueue<QueuedFile> queue;
+    // Fichiers réservés (en file ou en cours) ; worker qui le traite pour ceux en cours, null sinon
+    private final Map<Path, Thread> claims = new HashMap<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private long sequence;
+    private boolean stopping;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejectedFull = new LongAdder();
+    private final LongAdder rejectedDuplicate = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder bytesProcessed = new LongAdder();
+    private final LongAdder processingNanos = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final AtomicLong firstStartNanos = new AtomicLong();
+    private final AtomicLong lastEndNanos = new AtomicLong();
+
+    private boolean virtual;
+
+    @PostConstruct
+    public void initialize() {
+        virtual = properties.isVirtualThreads() && VirtualThreads.isSupported();
+        if (properties.isVirtualThreads() && !virtual) {
+            log.warn("⚠️ Threads virtuels demandés mais indisponibles sur Java {}, threads plateforme utilisés",
+                    Runtime.version().feature());
+        }
+
+        Comparator<QueuedFile> order = properties.getQueuePriority() == ConcurrencyProperties.QueuePriority.SMALLEST_FIRST
+                ? Comparator.comparingLong(QueuedFile::size).thenComparingLong(QueuedFile::sequence)
+                : Comparator.comparingLong(QueuedFile::sequence);
+        queue = new PriorityQueue<>(order);
+
+        int workerCount = Math.max(1, properties.getFileProcessingThreads());
+        ThreadFactory threadFactory = VirtualThreads.threadFactory("feed-processing", virtual);
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = threadFactory.newThread(this::runWorker);
+            workers.add(worker);
+            worker.start();
+        }
+        log.info("⚙️ Ordonnanceur d'ingestion: {} workers ({}), file de {} fichiers ({})", workerCount,
+                virtual ? "threads virtuels" : "threads plateforme", properties.getQueueCapacity(),
+                properties.getQueuePriority());
+    }
+
+    /**
+     * Met le fichier en file et le marque prêt. Refusé (false) si la file est pleine ou si le fichier
+     * est déjà en file ou en cours de traitement.
+     */
+    public boolean offer(Path filePath) {
+        long size = sizeOf(filePath);
+        long lastModified = lastModifiedOf(filePath);
+        lock.lock();
+        try {
+            if (stopping) {
+                return false;
+            }
+            if (claims.containsKey(filePath)) {
+                rejectedDuplicate.increment();
+                log.debug("Fichier déjà en file ou en cours de traitement: {}", filePath.getFileName());
+                return false;
+            }
+            if (queue.size() >= properties.getQueueCapacity()) {
+                rejectedFull.increment();
+                log.debug("File d'ingestion pleine ({}), {} reste en attente", queue.size(), filePath.getFileName());
+                return false;
+            }
+            claims.put(filePath, null);
+            queue.add(new QueuedFile(filePath, size, sequence++, System.nanoTime()));
+            accepted.increment();
+            ingestionJournal.recordStabilized(filePath, size, lastModified);
+            // Marqué prêt sous le verrou : un worker ne peut pas le traiter (et le retirer) avant
+            fileProcessingService.markFileAsReady(filePath);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remet en file les fichiers marqués prêts qui ne sont ni en file ni en cours (dans la limite de la file).
+     */
+    public int offerReadyFiles() {
+        int offered = 0;
+        for (Path filePath : fileProcessingService.getReadyFiles().keySet()) {
+            if (!isClaimed(filePath) && offer(filePath)) {
+                offered++;
+            }
+        }
+        return offered;
+    }
+
+    /**
+     * Retire le fichier de la file, ou interrompt son traitement s'il est en cours.
+     */
+    public boolean cancel(Path filePath) {
+        lock.lock();
+        try {
+            if (!claims.containsKey(filePath)) {
+                return false;
+            }
+            Thread worker = claims.get(filePath);
+            if (worker != null) {
+                worker.interrupt();
+                return true;
+            }
+            queue.removeIf(queued -> queued.path().equals(filePath));
+            claims.remove(filePath);
+            cancelled.increment();
+        } finally {
+            lock.unlock();
+        }
+        fileProcessingService.unmarkFileAsReady(filePath);
+        ingestionJournal.recordAbandoned(filePath);
+        log.info("⏹️ Fichier retiré de la file d'ingestion: {}", filePath.getFileName());
+        return true;
+    }
+
+    public boolean isClaimed(Path filePath) {
+        lock.lock();
+        try {
+            return claims.containsKey(filePath);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isProcessing(Path filePath) {
+        lock.lock();
+        try {
+            return claims.get(filePath) != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runWorker() {
+        while (true) {
+            QueuedFile next;
+            lock.lock();
+            try {
+                while (queue.isEmpty() && !stopping) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (stopping) {
+                    return;
+                }
+                next = queue.poll();
+                claims.put(next.path(), Thread.currentThread());
+            } finally {
+                lock.unlock();
+            }
+
+            queueWaitNanos.add(System.nanoTime() - next.enqueuedAt());
+            process(next);
+            // Traité, ignoré, annulé ou en erreur : le fichier n'est plus prêt (pas de nouvelle tentative automatique)
+            fileProcessingService.unmarkFileAsReady(next.path());
+
+            lock.lock();
+            try {
+                claims.remove(next.path());
+                // Une annulation arrivée après la fin du traitement ne doit pas toucher le fichier suivant
+                Thread.interrupted();
+                if (runningCount() == 0) {
+                    idle.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void process(QueuedFile file) {
+        long start = System.nanoTime();
+        firstStartNanos.compareAndSet(0, start);
+        try {
+            feedProcessingService.processFeedFile(file.path());
+            completed.increment();
+            bytesProcessed.add(file.size());
+            ingestionJournal.recordCompleted(file.path());
+        } catch (CancellationException e) {
+            cancelled.increment();
+            if (isStopping()) {
+                // Interrompu par l'arrêt : le journal garde le dernier point de reprise
+                log.warn("⏹️ Traitement interrompu par l'arrêt, reprise au redémarrage: {}", file.path().getFileName());
+            } else {
+                ingestionJournal.recordAbandoned(file.path());
+                log.warn("⏹️ Traitement annulé: {}", file.path().getFileName());
+            }
+        } catch (Exception e) {
+            failed.increment();
+            ingestionJournal.recordAbandoned(file.path());
+            log.error("❌ Erreur lors du traitement du fichier: {}", file.path(), e);
+        } finally {
+            long end = System.nanoTime();
+            processingNanos.add(end - start);
+            lastEndNanos.set(end);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(properties.getShutdownTimeoutSeconds());
+        lock.lock();
+        try {
+            stopping = true;
+            notEmpty.signalAll();
+            while (runningCount() > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    log.warn("⏹️ Arrêt: interruption des {} traitements en cours", runningCount());
+                    claims.values().stream().filter(Objects::nonNull).forEach(Thread::interrupt);
+                    break;
+                }
+                idle.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Etat de la file et débit, pour régler la taille du pool et comparer les modes d'exécution.
+     */
+    public Map<String, Object> getStatistics() {
+        List<String> queued = new ArrayList<>();
+        List<String> running = new ArrayList<>();
+        lock.lock();
+        try {
+            queue.stream().sorted(queue.comparator()).forEach(file -> queued.add(file.path().getFileName().toString()));
+            claims.forEach((path, worker) -> {
+                if (worker != null) {
+                    running.add(path.getFileName().toString());
+                }
+            });
+        } finally {
+            lock.unlock();
+        }
+
+        long done = completed.sum();
+        long finished = done + failed.sum() + cancelled.sum();
+        long first = firstStartNanos.get();
+        double wallSeconds = first == 0 ? 0 : Math.max(0, lastEndNanos.get() - first) / 1_000_000_000.0;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", virtual ? "virtual-threads" : "platform-threads");
+        stats.put("workers", workers.size());
+        stats.put("queueCapacity", properties.getQueueCapacity());
+        stats.put("queuePriority", properties.getQueuePriority());
+        stats.put("queueSize", queued.size());
+        stats.put("queued", queued);
+        stats.put("running", running);
+        stats.put("accepted", accepted.sum());
+        stats.put("rejectedQueueFull", rejectedFull.sum());
+        stats.put("rejectedDuplicate", rejectedDuplicate.sum());
+        stats.put("completed", done);
+        stats.put("failed", failed.sum());
+        stats.put("cancelled", cancelled.sum());
+        stats.put("averageQueueWaitMs", finished == 0 ? 0 : queueWaitNanos.sum() / 1_000_000 / finished);
+        stats.put("averageProcessingMs", finished == 0 ? 0 : processingNanos.sum() / 1_000_000 / finished);
+        stats.put("filesPerMinute", wallSeconds > 0 ? done * 60 / wallSeconds : 0.0);
+        stats.put("megabytesPerSecond", wallSeconds > 0 ? bytesProcessed.sum() / 1_048_576.0 / wallSeconds : 0.0);
+        return stats;
+    }
+
+    private boolean isStopping() {
+        lock.lock();
+        try {
+            return stopping;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Appelé sous le verrou
+    private int runningCount() {
+        return (int) claims.values().stream().filter(Objects::nonNull).count();
+    }
+
+    private static long sizeOf(Path filePath) {
+        try {
+            return Files.size(filePath);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long lastModifiedOf(Path filePath) {
+        try {
+            return Files.getLastModifiedTime(filePath).toMillis();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private record QueuedFile(Path path, long size, long sequence, long enqueuedAt) {
+    }
+}
@@ -47,6 +47,15 @@ public class FileProcessingService {
         }
     }
 
+    /**
+     * Retire un fichier des fichiers prêts sans le considérer comme traité (annulé, ignoré ou en erreur).
+     */
+    public void unmarkFileAsReady(Path filePath) {
+        if (readyFiles.remove(filePath) != null) {
+            log.info("Fichier retiré des fichiers prêts: {}", filePath.getFileName());
+        }
+    }
+
     public int getReadyFilesCount() {
         return readyFiles.size();
     }
@@ -4,10 +4,19 @@ import com.example.chatbotnasoft.dto.RawFeedLine;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.stream.Stream;
@@ -17,6 +26,14 @@ import java.util.stream.StreamSupport;
 @Slf4j
 public class FileReadingService {
 
+    /**
+     * Reçoit un lot de lignes lues ainsi que la position (en octets) atteinte dans le fichier.
+     */
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        void accept(List<RawFeedLine> chunk, long bytesRead, long totalBytes);
+    }
+
     public Stream<RawFeedLine> readFileLines(Path filePath) throws IOException {
         log.info("📂 Début de la lecture du fichier: {}", filePath.getFileName());
         
@@ -32,7 +49,9 @@ public class FileReadingService {
         log.info("✅ Fichier trouvé et lisible: {}", fileName);
         
         try {
-            Stream<String> lines = Files.lines(filePath);
+            Stream<String> lines = FeedCompression.isCompressed(filePath)
+                    ? compressedLines(filePath)
+                    : Files.lines(filePath);
             log.info("🔄 Stream de lignes créé pour: {}", fileName);
             return processLines(lines, fileName)
                     .onClose(() -> log.info("🔚 Lecture du fichier terminée: {}", fileName));
@@ -42,6 +61,17 @@ public class FileReadingService {
         }
     }
 
+    private static Stream<String> compressedLines(Path filePath) throws IOException {
+        BufferedReader reader = FeedCompression.newReader(filePath);
+        return reader.lines().onClose(() -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
     private Stream<RawFeedLine> processLines(Stream<String> lines, String fileName) {
         Iterator<String> lineIterator = lines.iterator();
         Iterator<RawFeedLine> rawFeedLineIterator = new Iterator<>() {
@@ -77,22 +107,183 @@ public class FileReadingService {
         ).filter(line -> line != null && line.isValid());
     }
 
+    /**
+     * Lecture en un seul passage, par lots de taille bornée.
+     * Aucune liste complète du fichier n'est construite : chaque lot est transmis au consommateur
+     * puis libéré. La progression est exprimée en octets (pas de passe de comptage préalable).
+     *
+     * @return le nombre de lignes non vides lues
+     */
+    public long readFileInChunks(Path filePath, int chunkSize, ChunkConsumer consumer) throws IOException {
+        return readFileInChunks(filePath, chunkSize, 0, 0, consumer);
+    }
+
+    /**
+     * Reprise de la lecture par lots à {@code startOffset} (début de ligne), la ligne précédente
+     * portant le numéro {@code firstLineNumber}.
+     */
+    public long readFileInChunks(Path filePath, int chunkSize, long startOffset, int firstLineNumber,
+                                 ChunkConsumer consumer) throws IOException {
+        if (!Files.exists(filePath)) {
+            throw new IOException("Le fichier n'existe pas: " + filePath);
+        }
+
+        if (!Files.isReadable(filePath)) {
+            throw new IOException("Le fichier n'est pas lisible: " + filePath);
+        }
+
+        String fileName = filePath.getFileName().toString();
+        long totalBytes = Files.size(filePath);
+        int effectiveChunkSize = Math.max(1, chunkSize);
+        if (FeedCompression.isCompressed(filePath)) {
+            if (startOffset > 0) {
+                throw new IOException("Reprise à un offset impossible pour un fichier compressé: " + filePath);
+            }
+            return readCompressedInChunks(filePath, effectiveChunkSize, totalBytes, consumer);
+        }
+        if (startOffset > 0) {
+            log.info("📂 Reprise de la lecture par lots de {} lignes: {} (octet {} sur {}, après la ligne {})",
+                    effectiveChunkSize, fileName, startOffset, totalBytes, firstLineNumber);
+        } else {
+            log.info("📂 Lecture par lots de {} lignes: {} ({} octets)", effectiveChunkSize, fileName, totalBytes);
+        }
+
+        int lineNumber = firstLineNumber;
+        long validLines = 0;
+        List<RawFeedLine> chunk = new ArrayList<>(effectiveChunkSize);
+
+        // Découpage des lignes directement sur les octets du fichier mappé
+        try (MappedFeedReader reader = new MappedFeedReader(filePath, startOffset, -1, firstLineNumber,
+                MappedFeedReader.DEFAULT_WINDOW_SIZE)) {
+            MappedFeedReader.LineView view = new MappedFeedReader.LineView();
+            while (reader.next(view)) {
+                lineNumber = view.lineNumber();
+                if (view.isBlank()) {
+                    continue;
+                }
+
+                chunk.add(new RawFeedLine(view.content(), lineNumber, fileName));
+                validLines++;
+
+                if (chunk.size() >= effectiveChunkSize) {
+                    consumer.accept(chunk, reader.position(), totalBytes);
+                    chunk = new ArrayList<>(effectiveChunkSize);
+                }
+            }
+
+            if (!chunk.isEmpty()) {
+                consumer.accept(chunk, reader.position(), totalBytes);
+            }
+        }
+
+        log.info("🔚 Lecture par lots terminée: {} ({} lignes valides sur {})", fileName, validLines, lineNumber);
+        return validLines;
+    }
+
+    /**
+     * Lecture par lots d'un fichier compressé, décompressé en flux. La progression est exprimée en octets
+     * compressés consommés.
+     */
+    private long readCompressedInChunks(Path filePath, int chunkSize, long totalBytes, ChunkConsumer consumer)
+            throws IOException {
+        String fileName = filePath.getFileName().toString();
+        FeedCompression.Codec codec = FeedCompression.codecOf(filePath);
+        log.info("📂 Lecture par lots de {} lignes: {} ({} octets compressés, {})", chunkSize, fileName, totalBytes, codec);
+
+        int lineNumber = 0;
+        long validLines = 0;
+        List<RawFeedLine> chunk = new ArrayList<>(chunkSize);
+
+        CountingInputStream compressed = new CountingInputStream(Files.newInputStream(filePath));
+        InputStream decompressed = FeedCompression.decompress(
+                new BufferedInputStream(compressed, FeedCompression.READ_BUFFER_SIZE), codec);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(decompressed, StandardCharsets.UTF_8),
+                FeedCompression.READ_BUFFER_SIZE)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+
+                chunk.add(new RawFeedLine(trimmed, lineNumber, fileName));
+                validLines++;
+
+                if (chunk.size() >= chunkSize) {
+                    consumer.accept(chunk, compressed.count, totalBytes);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+
+            if (!chunk.isEmpty()) {
+                consumer.accept(chunk, totalBytes, totalBytes);
+            }
+        }
+
+        log.info("🔚 Lecture par lots terminée: {} ({} lignes valides sur {})", fileName, validLines, lineNumber);
+        return validLines;
+    }
+
     public long countLines(Path filePath) throws IOException {
         log.info("Comptage des lignes du fichier: {}", filePath.getFileName());
         
-        try (Stream<String> lines = Files.lines(filePath)) {
-            long count = lines
-                    .map(String::trim)
-                    .filter(line -> !line.isEmpty())
-                    .count();
-            
+        if (FeedCompression.isCompressed(filePath)) {
+            long count;
+            try (BufferedReader reader = FeedCompression.newReader(filePath)) {
+                count = reader.lines().filter(line -> !line.isBlank()).count();
+            }
             log.info("Fichier {} contient {} lignes valides", filePath.getFileName(), count);
             return count;
         }
+
+        // Comptage sur les octets du fichier mappé, sans construire de String par ligne
+        long count = 0;
+        try (MappedFeedReader reader = new MappedFeedReader(filePath)) {
+            MappedFeedReader.LineView view = new MappedFeedReader.LineView();
+            while (reader.next(view)) {
+                if (!view.isBlank()) {
+                    count++;
+                }
+            }
+        }
+        
+        log.info("Fichier {} contient {} lignes valides", filePath.getFileName(), count);
+        return count;
     }
 
     public boolean isValidFeedFile(Path filePath) {
-        String fileName = filePath.getFileName().toString();
-        return fileName != null && fileName.startsWith("FEED") && fileName.endsWith(".txt");
+        // FEED*.txt, brut ou compressé (.gz, .zst)
+        return FeedCompression.isFeedFileName(filePath.getFileName().toString());
+    }
+
+    /**
+     * Compte les octets lus sur le fichier compressé, pour la progression.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
     }
 }
@@ -1,113 +1,294 @@
 package com.example.chatbotnasoft.service;
 
 import com.example.chatbotnasoft.config.FileWatcherProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.nio.file.*;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Stabilisation des fichiers déposés, pilotée par les événements.
+ * <p>
+ * Chaque fichier suivi a une échéance ; un seul thread attend la prochaine échéance dans une {@link DelayQueue}
+ * et ne vérifie que les fichiers arrivés à échéance. Un {@code ENTRY_MODIFY} repousse simplement l'échéance
+ * (aucun appel système) : l'entrée de la file est réarmée paresseusement quand elle expire. Sans événement
+ * ni échéance, le thread dort : le coût suit le nombre d'événements et non le nombre de fichiers suivis.
+ * <p>
+ * A échéance, la taille est relue une seule fois : si elle a changé sans modification signalée, l'échéance
+ * est repoussée. Un fichier marqueur ({@code FEED_x.txt.done}, cf. {@code file-watcher.completion-marker-suffix})
+ * libère le fichier immédiatement ; avec {@code file-watcher.require-completion-marker}, seul le marqueur le libère.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class FileStabilizationService {
 
     private final FileWatcherProperties properties;
-    private final FileProcessingService processingService;
-    private final FeedProcessingService feedProcessingService;
-    
+    private final FileProcessingExecutor fileProcessingExecutor;
+    private final IngestionJournal ingestionJournal;
+
     // Map pour suivre l'état des fichiers en cours de stabilisation
     private final Map<Path, FileStabilizationInfo> stabilizingFiles = new ConcurrentHashMap<>();
+    // Fichiers déjà libérés (ou présents au démarrage) -> date de modification à ce moment
+    private final Map<Path, Long> releasedFiles = new ConcurrentHashMap<>();
+    private final DelayQueue<Expiry> expiries = new DelayQueue<>();
+    private Thread timerThread;
+
+    private final LongAdder modifications = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder sizeChecks = new LongAdder();
+    private final LongAdder markerReleases = new LongAdder();
+    private final LongAdder ignoredMarkers = new LongAdder();
+    private final LongAdder backpressureDelays = new LongAdder();
+
+    @PostConstruct
+    public void startTimer() {
+        timerThread = new Thread(this::runTimer, "file-stabilization");
+        timerThread.setDaemon(true);
+        timerThread.start();
+    }
+
+    @PreDestroy
+    public void stopTimer() {
+        if (timerThread != null) {
+            timerThread.interrupt();
+        }
+    }
 
     @Async
     public void startStabilization(Path filePath) {
-        if (stabilizingFiles.containsKey(filePath)) {
+        FileStabilizationInfo info = new FileStabilizationInfo(filePath, properties.getStabilizationDelayMillis());
+        if (stabilizingFiles.putIfAbsent(filePath, info) != null) {
             log.debug("Fichier déjà en cours de stabilisation: {}", filePath);
+            handleFileModification(filePath);
             return;
         }
+        ingestionJournal.recordDetected(filePath);
 
-        FileStabilizationInfo info = new FileStabilizationInfo(filePath);
-        stabilizingFiles.put(filePath, info);
-        
-        log.info("Début de stabilisation pour: {} (délai: {} minutes)", 
-                filePath.getFileName(), properties.getStabilizationDelayMinutes());
+        if (!properties.isRequireCompletionMarker()) {
+            arm(info, info.deadlineNanos);
+        }
+        log.info("Début de stabilisation pour: {} (délai: {} minutes{})", filePath.getFileName(),
+                properties.getStabilizationDelayMinutes(),
+                properties.isRequireCompletionMarker() ? ", marqueur de fin requis" : "");
     }
 
     public void handleFileModification(Path filePath) {
         FileStabilizationInfo info = stabilizingFiles.get(filePath);
         if (info != null) {
-            info.resetStabilizationTime();
+            modifications.increment();
+            info.modifiedSinceSizeRead = true;
+            info.touch(properties.getStabilizationDelayMillis());
             log.debug("Stabilisation réinitialisée pour: {} (fichier modifié)", filePath.getFileName());
         }
     }
 
-    @Scheduled(fixedDelayString = "#{@fileWatcherProperties.checkIntervalSeconds * 1000}")
-    public void checkStabilization() {
-        if (stabilizingFiles.isEmpty()) {
+    /**
+     * Fichier déjà présent au démarrage : considéré comme traité lors d'une exécution précédente (les fichiers
+     * en cours sont repris par le journal), un marqueur tardif ne le relance pas tant qu'il n'est pas modifié.
+     */
+    public void markAlreadyHandled(Path filePath, long lastModifiedMillis) {
+        releasedFiles.put(filePath, lastModifiedMillis);
+    }
+
+    /**
+     * Marqueur de fin d'écriture reçu pour le fichier : il est libéré sans attendre le délai de stabilisation.
+     */
+    public void handleCompletionMarker(Path filePath) {
+        if (!stabilizingFiles.containsKey(filePath) && isAlreadyHandled(filePath)) {
+            // Marqueur arrivé après la libération par le délai : le fichier ne doit pas être traité deux fois
+            ignoredMarkers.increment();
+            log.info("Marqueur de fin ignoré, fichier déjà libéré: {}", filePath.getFileName());
             return;
         }
+        log.info("🏁 Marqueur de fin reçu pour: {}", filePath.getFileName());
+        releaseNow(filePath);
+    }
+
+    /**
+     * Libère le fichier sans attendre le délai de stabilisation (marqueur de fin, ou fichier déjà stabilisé
+     * repris depuis le journal).
+     */
+    public void releaseNow(Path filePath) {
+        FileStabilizationInfo info = stabilizingFiles.get(filePath);
+        if (info == null) {
+            // Fichier déposé avant le démarrage, ou dont la création n'a pas été vue
+            if (!Files.exists(filePath)) {
+                log.warn("Marqueur de fin sans fichier correspondant: {}", filePath.getFileName());
+                return;
+            }
+            FileStabilizationInfo created = new FileStabilizationInfo(filePath, properties.getStabilizationDelayMillis());
+            FileStabilizationInfo existing = stabilizingFiles.putIfAbsent(filePath, created);
+            info = existing != null ? existing : created;
+        }
+        info.completed = true;
+        arm(info, System.nanoTime());
+    }
 
-        log.debug("Vérification de stabilisation de {} fichier(s)", stabilizingFiles.size());
+    /**
+     * En file ou en cours de traitement, ou déjà libéré (ou présent au démarrage) et non modifié depuis.
+     */
+    private boolean isAlreadyHandled(Path filePath) {
+        if (fileProcessingExecutor.isClaimed(filePath)) {
+            return true;
+        }
+        Long released = releasedFiles.get(filePath);
+        return released != null && released == lastModifiedMillis(filePath);
+    }
 
-        stabilizingFiles.entrySet().removeIf(entry -> {
-            Path filePath = entry.getKey();
-            FileStabilizationInfo info = entry.getValue();
+    private static long lastModifiedMillis(Path filePath) {
+        try {
+            return Files.getLastModifiedTime(filePath).toMillis();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
 
+    private void arm(FileStabilizationInfo info, long deadlineNanos) {
+        long token;
+        synchronized (info) {
+            token = ++info.armToken;
+        }
+        expiries.add(new Expiry(info.filePath, token, deadlineNanos));
+    }
+
+    private void runTimer() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Expiry expiry;
             try {
-                if (!Files.exists(filePath)) {
-                    log.warn("Fichier disparu pendant la stabilisation: {}", filePath);
-                    return true; // Supprimer de la map
-                }
-
-                long currentSize = Files.size(filePath);
-                if (currentSize != info.getLastKnownSize()) {
-                    info.updateSize(currentSize);
-                    log.debug("Taille du fichier modifiée pour: {} ({} -> {} octets)", 
-                            filePath.getFileName(), info.getLastKnownSize(), currentSize);
-                    return false; // Garder dans la map
-                }
-
-                // Vérifier si le délai de stabilisation est écoulé
-                if (info.isStabilized(properties.getStabilizationDelayMillis())) {
-                    log.info("Fichier stabilisé et prêt pour traitement: {}", filePath.getFileName());
-                    processingService.markFileAsReady(filePath);
-                    
-                    // Déclencher immédiatement le traitement du fichier
-                    log.info("🚀 Déclenchement immédiat du traitement pour: {}", filePath.getFileName());
-                    feedProcessingService.processFeedFile(filePath);
-                    
-                    return true; // Supprimer de la map
-                }
-
-                return false; // Garder dans la map
+                expiry = expiries.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                onExpiry(expiry);
+            } catch (RuntimeException e) {
+                log.error("Erreur lors de la vérification du fichier: {}", expiry.path(), e);
+                stabilizingFiles.remove(expiry.path());
+            }
+        }
+    }
+
+    private void onExpiry(Expiry expiry) {
+        FileStabilizationInfo info = stabilizingFiles.get(expiry.path());
+        if (info == null || info.armToken != expiry.token()) {
+            return; // Fichier déjà libéré, ou entrée remplacée par un réarmement plus récent
+        }
+        expirations.increment();
+        Path filePath = info.filePath;
 
+        if (info.completed) {
+            markerReleases.increment();
+        } else {
+            // Modifié depuis l'armement : réarmer à la nouvelle échéance, sans relire le fichier
+            long deadline = info.deadlineNanos;
+            if (deadline - System.nanoTime() > 0) {
+                arm(info, deadline);
+                return;
+            }
+
+            sizeChecks.increment();
+            long currentSize;
+            try {
+                currentSize = Files.size(filePath);
+            } catch (NoSuchFileException e) {
+                log.warn("Fichier disparu pendant la stabilisation: {}", filePath);
+                stabilizingFiles.remove(filePath);
+                return;
             } catch (IOException e) {
                 log.error("Erreur lors de la vérification du fichier: {}", filePath, e);
-                return true; // Supprimer de la map en cas d'erreur
+                stabilizingFiles.remove(filePath);
+                return;
             }
-        });
+
+            // Une modification signalée explique un changement de taille : le délai sans événement fait foi.
+            // Sinon, une taille différente révèle une écriture non signalée (ex. partage réseau).
+            boolean signalled = info.modifiedSinceSizeRead;
+            info.modifiedSinceSizeRead = false;
+            if (!signalled && currentSize != info.lastKnownSize) {
+                log.debug("Taille du fichier modifiée pour: {} ({} -> {} octets)",
+                        filePath.getFileName(), info.lastKnownSize, currentSize);
+                info.lastKnownSize = currentSize;
+                info.touch(properties.getStabilizationDelayMillis());
+                arm(info, info.deadlineNanos);
+                return;
+            }
+            info.lastKnownSize = currentSize;
+        }
+
+        // Mise en file d'ingestion ; si elle est pleine (ou le fichier déjà en cours), le fichier
+        // reste en stabilisation et est reproposé après check-interval-seconds
+        if (!fileProcessingExecutor.offer(filePath)) {
+            backpressureDelays.increment();
+            log.debug("Fichier stabilisé en attente d'une place dans la file: {}", filePath.getFileName());
+            arm(info, System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(1, properties.getCheckIntervalSeconds())));
+            return;
+        }
+        releasedFiles.put(filePath, lastModifiedMillis(filePath));
+        stabilizingFiles.remove(filePath, info);
+        log.info("🚀 Fichier stabilisé mis en file de traitement: {}", filePath.getFileName());
     }
 
     public Map<Path, FileStabilizationInfo> getStabilizingFiles() {
         return new ConcurrentHashMap<>(stabilizingFiles);
     }
 
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tracked", stabilizingFiles.size());
+        stats.put("pendingTimers", expiries.size());
+        stats.put("modifications", modifications.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("sizeChecks", sizeChecks.sum());
+        stats.put("markerReleases", markerReleases.sum());
+        stats.put("ignoredMarkers", ignoredMarkers.sum());
+        stats.put("backpressureDelays", backpressureDelays.sum());
+        return stats;
+    }
+
+    private record Expiry(Path path, long token, long deadlineNanos) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(deadlineNanos, ((Expiry) other).deadlineNanos);
+        }
+    }
+
     public static class FileStabilizationInfo {
         private final Path filePath;
         private final LocalDateTime startTime;
-        private LocalDateTime lastModificationTime;
-        private long lastKnownSize = -1;
+        private volatile long lastModificationMillis;
+        private volatile long deadlineNanos;
+        private volatile long lastKnownSize = -1;
+        private volatile boolean completed;
+        private volatile boolean modifiedSinceSizeRead;
+        private volatile long armToken;
 
-        public FileStabilizationInfo(Path filePath) {
+        public FileStabilizationInfo(Path filePath, long stabilizationDelayMillis) {
             this.filePath = filePath;
             this.startTime = LocalDateTime.now();
-            this.lastModificationTime = startTime;
+            touch(stabilizationDelayMillis);
             try {
                 this.lastKnownSize = Files.size(filePath);
             } catch (IOException e) {
@@ -115,23 +296,17 @@ public class FileStabilizationService {
             }
         }
 
-        public void resetStabilizationTime() {
-            this.lastModificationTime = LocalDateTime.now();
-        }
-
-        public void updateSize(long newSize) {
-            this.lastKnownSize = newSize;
-            this.lastModificationTime = LocalDateTime.now();
-        }
-
-        public boolean isStabilized(long stabilizationDelayMillis) {
-            long elapsedMillis = java.time.Duration.between(lastModificationTime, LocalDateTime.now()).toMillis();
-            return elapsedMillis >= stabilizationDelayMillis;
+        void touch(long stabilizationDelayMillis) {
+            this.lastModificationMillis = System.currentTimeMillis();
+            this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(stabilizationDelayMillis);
         }
 
         public Path getFilePath() { return filePath; }
         public LocalDateTime getStartTime() { return startTime; }
-        public LocalDateTime getLastModificationTime() { return lastModificationTime; }
+        public LocalDateTime getLastModificationTime() {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(lastModificationMillis), ZoneId.systemDefault());
+        }
         public long getLastKnownSize() { return lastKnownSize; }
+        public boolean isCompleted() { return completed; }
     }
 }
@@ -9,10 +9,30 @@ import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import java.io.IOException;
 import java.nio.file.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Pattern;
 
+/**
+ * Surveillance des répertoires de dépôt.
+ * <p>
+ * Plusieurs racines peuvent être surveillées ({@code file-watcher.input-directory} et
+ * {@code file-watcher.additional-directories}), récursivement : un sous-répertoire créé est enregistré
+ * dès son apparition et les fichiers qu'il contient déjà sont pris en compte. Les répertoires sont répartis
+ * entre {@code file-watcher.watcher-threads} {@link WatchService}, chacun avec son thread.
+ * <p>
+ * Sur {@code OVERFLOW} (événements perdus), le répertoire concerné est relu : tout fichier inconnu, ou modifié
+ * depuis sa dernière détection, part en stabilisation. Les fichiers présents au démarrage sont considérés
+ * comme connus et ne sont pas retraités. Les fichiers alimentés en continu ({@code file-watcher.tail-follow-pattern})
+ * sont confiés au {@link TailFollowService} au lieu de la stabilisation.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -20,18 +40,31 @@ public class FileWatcherService {
 
     private final FileWatcherProperties properties;
     private final FileStabilizationService stabilizationService;
-    private WatchService watchService;
-    private ExecutorService executorService;
-    private Path watchDirectory;
+    private final TailFollowService tailFollowService;
+
+    private final List<WatcherShard> shards = new ArrayList<>();
+    // Date de modification à la dernière détection, pour qu'une relecture ne reprenne que les fichiers nouveaux
+    private final Map<Path, FileTime> knownFiles = new ConcurrentHashMap<>();
+    private final Map<Path, Boolean> registeredDirectories = new ConcurrentHashMap<>();
+    private final LongAdder overflows = new LongAdder();
+    private final LongAdder rescannedFiles = new LongAdder();
     private Pattern filePattern;
 
     @PostConstruct
     public void initializeWatcher() {
         try {
-            createInputDirectory();
-            setupWatchService();
-            startWatching();
-            log.info("Surveillance de fichiers démarrée dans: {}", properties.getInputDirectory());
+            filePattern = Pattern.compile(properties.getFilePattern().replace("*", ".*"));
+            int shardCount = Math.max(1, properties.getWatcherThreads());
+            for (int i = 0; i < shardCount; i++) {
+                shards.add(new WatcherShard(i, FileSystems.getDefault().newWatchService()));
+            }
+            for (String root : properties.getRootDirectories()) {
+                Path rootDirectory = createInputDirectory(root);
+                registerTree(rootDirectory, false);
+            }
+            shards.forEach(WatcherShard::start);
+            log.info("Surveillance de fichiers démarrée dans: {} ({} répertoires, {} threads)",
+                    properties.getRootDirectories(), registeredDirectories.size(), shardCount);
         } catch (Exception e) {
             log.error("Erreur lors de l'initialisation de la surveillance", e);
             throw new RuntimeException("Impossible de démarrer la surveillance de fichiers", e);
@@ -40,73 +73,147 @@ public class FileWatcherService {
 
     @PreDestroy
     public void cleanup() {
-        try {
-            if (watchService != null) {
-                watchService.close();
-            }
-            if (executorService != null) {
-                executorService.shutdown();
-            }
-            log.info("Surveillance de fichiers arrêtée");
-        } catch (IOException e) {
-            log.error("Erreur lors de l'arrêt de la surveillance", e);
+        for (WatcherShard shard : shards) {
+            shard.close();
         }
+        log.info("Surveillance de fichiers arrêtée");
     }
 
-    private void createInputDirectory() throws IOException {
-        watchDirectory = Paths.get(properties.getInputDirectory());
+    private Path createInputDirectory(String directory) throws IOException {
+        Path watchDirectory = Paths.get(directory);
         if (!Files.exists(watchDirectory)) {
             Files.createDirectories(watchDirectory);
             log.info("Répertoire de surveillance créé: {}", watchDirectory);
         }
-        filePattern = Pattern.compile(properties.getFilePattern().replace("*", ".*"));
+        return watchDirectory;
     }
 
-    private void setupWatchService() throws IOException {
-        watchService = FileSystems.getDefault().newWatchService();
-        watchDirectory.register(watchService, 
-            StandardWatchEventKinds.ENTRY_CREATE,
-            StandardWatchEventKinds.ENTRY_MODIFY);
+    /**
+     * Enregistre le répertoire (et ses sous-répertoires si récursif). Avec {@code detectFiles}, les fichiers
+     * trouvés sont traités comme nouveaux (répertoire apparu après le démarrage) ; sinon ils sont seulement
+     * mémorisés comme connus.
+     */
+    private void registerTree(Path directory, boolean detectFiles) throws IOException {
+        int maxDepth = properties.isRecursive() ? Integer.MAX_VALUE : 1;
+        Files.walkFileTree(directory, EnumSet.noneOf(FileVisitOption.class), maxDepth, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                register(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    if (detectFiles) {
+                        detectFile(file, attrs.lastModifiedTime());
+                    } else if (isTracked(file.getFileName().toString())) {
+                        knownFiles.put(file, attrs.lastModifiedTime());
+                        if (matches(file.getFileName().toString())) {
+                            stabilizationService.markAlreadyHandled(file, attrs.lastModifiedTime().toMillis());
+                        }
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                log.warn("Impossible de lire {}: {}", file, e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
     }
 
-    private void startWatching() {
-        executorService = Executors.newSingleThreadExecutor();
-        executorService.submit(this::watchLoop);
+    private void register(Path directory) throws IOException {
+        if (registeredDirectories.putIfAbsent(directory, Boolean.TRUE) != null) {
+            return;
+        }
+        WatcherShard shard = shards.get(Math.floorMod(directory.hashCode(), shards.size()));
+        shard.register(directory);
+        log.debug("Répertoire surveillé: {} (thread {})", directory, shard.index);
     }
 
-    private void watchLoop() {
-        try {
-            while (!Thread.currentThread().isInterrupted()) {
-                WatchKey key = watchService.take();
-                
-                for (WatchEvent<?> event : key.pollEvents()) {
-                    handleWatchEvent(event);
-                }
-                
-                if (!key.reset()) {
-                    log.warn("La clé de surveillance n'est plus valide, arrêt de la surveillance");
-                    break;
+    /**
+     * Relecture d'un répertoire après perte d'événements : seuls les fichiers nouveaux ou modifiés
+     * depuis leur dernière détection sont remis en stabilisation.
+     */
+    void rescan(Path directory) {
+        log.warn("⚠️ Événements perdus dans {}, relecture du répertoire", directory);
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+                if (attrs.isDirectory()) {
+                    if (properties.isRecursive() && !registeredDirectories.containsKey(entry)) {
+                        registerTree(entry, true);
+                    }
+                } else if (attrs.isRegularFile()) {
+                    FileTime known = knownFiles.get(entry);
+                    if (known == null || attrs.lastModifiedTime().compareTo(known) > 0) {
+                        rescannedFiles.increment();
+                        detectFile(entry, attrs.lastModifiedTime());
+                    }
                 }
             }
-        } catch (InterruptedException e) {
-            log.info("Surveillance interrompue");
-            Thread.currentThread().interrupt();
-        } catch (Exception e) {
-            log.error("Erreur dans la boucle de surveillance", e);
+        } catch (IOException e) {
+            log.error("Erreur lors de la relecture de {}", directory, e);
         }
     }
 
-    private void handleWatchEvent(WatchEvent<?> event) {
+    private void detectFile(Path fullPath, FileTime lastModified) {
+        String name = fullPath.getFileName().toString();
+        if (!isTracked(name)) {
+            return;
+        }
+        knownFiles.put(fullPath, lastModified);
+        if (isCompletionMarker(name)) {
+            handleCompletionMarker(fullPath, name);
+        } else if (tailFollowService.isTailFollowed(fullPath)) {
+            tailFollowService.onAppend(fullPath);
+        } else {
+            log.info("Nouveau fichier détecté: {}", fullPath);
+            stabilizationService.startStabilization(fullPath);
+        }
+    }
+
+    private void handleWatchEvent(Path directory, WatchEvent<?> event) {
         Path fileName = (Path) event.context();
-        Path fullPath = watchDirectory.resolve(fileName);
-        
-        if (!filePattern.matcher(fileName.toString()).matches()) {
+        Path fullPath = directory.resolve(fileName);
+        String name = fileName.toString();
+
+        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && properties.isRecursive()
+                && Files.isDirectory(fullPath, LinkOption.NOFOLLOW_LINKS)) {
+            log.info("Nouveau répertoire détecté: {}", fullPath);
+            try {
+                registerTree(fullPath, true);
+            } catch (IOException e) {
+                log.error("Impossible de surveiller le répertoire: {}", fullPath, e);
+            }
+            return;
+        }
+
+        // Marqueur de fin d'écriture (FEED_x.txt.done) : libère le fichier correspondant
+        if (isCompletionMarker(name)) {
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                knownFiles.put(fullPath, lastModifiedTime(fullPath));
+                handleCompletionMarker(fullPath, name);
+            }
+            return;
+        }
+
+        if (!matches(name)) {
             log.debug("Fichier ignoré (pattern non correspondant): {}", fileName);
             return;
         }
 
+        knownFiles.put(fullPath, lastModifiedTime(fullPath));
+        // Fichier alimenté en continu : seules les lignes ajoutées sont lues, sans stabilisation
+        if (tailFollowService.isTailFollowed(fullPath)) {
+            tailFollowService.onAppend(fullPath);
+            return;
+        }
         if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
-            log.info("Nouveau fichier détecté: {}", fileName);
+            log.info("Nouveau fichier détecté: {}", fullPath);
             stabilizationService.startStabilization(fullPath);
         } else if (event.kind() == StandardWatchEventKinds.ENTRY_MODIFY) {
             log.debug("Fichier modifié: {}", fileName);
@@ -114,7 +221,129 @@ public class FileWatcherService {
         }
     }
 
+    // FEED_x.txt.gz (ou .zst) est suivi comme FEED_x.txt
+    private boolean matches(String fileName) {
+        return filePattern.matcher(FeedCompression.baseName(fileName)).matches();
+    }
+
+    // Fichiers FEED et marqueurs de fin : les seuls mémorisés et relus
+    private boolean isTracked(String fileName) {
+        return matches(fileName) || isCompletionMarker(fileName);
+    }
+
+    private boolean isCompletionMarker(String fileName) {
+        return properties.isCompletionMarkerEnabled() && fileName.endsWith(properties.getCompletionMarkerSuffix());
+    }
+
+    private void handleCompletionMarker(Path markerPath, String markerName) {
+        String dataFileName = markerName.substring(0, markerName.length() - properties.getCompletionMarkerSuffix().length());
+        if (matches(dataFileName)) {
+            stabilizationService.handleCompletionMarker(markerPath.resolveSibling(dataFileName));
+        }
+    }
+
+    private static FileTime lastModifiedTime(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(System.currentTimeMillis());
+        }
+    }
+
     public boolean isWatching() {
-        return watchService != null && executorService != null && !executorService.isShutdown();
+        return !shards.isEmpty() && shards.stream().allMatch(WatcherShard::isAlive);
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("roots", properties.getRootDirectories());
+        stats.put("recursive", properties.isRecursive());
+        stats.put("watcherThreads", shards.size());
+        stats.put("watchedDirectories", registeredDirectories.size());
+        stats.put("knownFiles", knownFiles.size());
+        stats.put("overflows", overflows.sum());
+        stats.put("rescannedFiles", rescannedFiles.sum());
+        return stats;
+    }
+
+    /**
+     * Un WatchService et son thread ; les clés sont propres à chaque service.
+     */
+    private final class WatcherShard {
+
+        private final int index;
+        private final WatchService watchService;
+        private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+        private final Thread thread;
+
+        WatcherShard(int index, WatchService watchService) {
+            this.index = index;
+            this.watchService = watchService;
+            this.thread = new Thread(this::watchLoop, "file-watcher-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        void register(Path directory) throws IOException {
+            WatchKey key = directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            directories.put(key, directory);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        boolean isAlive() {
+            return thread.isAlive();
+        }
+
+        void close() {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.error("Erreur lors de l'arrêt de la surveillance", e);
+            }
+            thread.interrupt();
+        }
+
+        private void watchLoop() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    WatchKey key = watchService.take();
+                    Path directory = directories.get(key);
+
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (directory == null) {
+                            continue;
+                        }
+                        try {
+                            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                                overflows.increment();
+                                rescan(directory);
+                            } else {
+                                handleWatchEvent(directory, event);
+                            }
+                        } catch (RuntimeException e) {
+                            log.error("Erreur lors du traitement d'un événement dans {}", directory, e);
+                        }
+                    }
+
+                    if (!key.reset()) {
+                        // Répertoire supprimé : il sera réenregistré s'il est recréé
+                        directories.remove(key);
+                        if (directory != null) {
+                            registeredDirectories.remove(directory);
+                            log.info("Répertoire n'est plus surveillé: {}", directory);
+                        }
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                log.info("Surveillance interrompue (thread {})", index);
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("Erreur dans la boucle de surveillance", e);
+            }
+        }
     }
 }
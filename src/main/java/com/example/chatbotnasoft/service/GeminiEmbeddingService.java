@@ -5,14 +5,11 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -22,8 +19,9 @@ import java.util.Map;
 public class GeminiEmbeddingService {
 
     private final GeminiProperties geminiProperties;
-    private final RestTemplate restTemplate;
+    private final OutboundHttpClient outboundHttpClient;
     private final ObjectMapper objectMapper;
+    private final GeminiRateGovernor geminiRateGovernor;
 
     public List<Double> embed(String text) {
         if (text == null || text.trim().isEmpty()) {
@@ -42,49 +40,130 @@ public class GeminiEmbeddingService {
                 )
         );
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-
         try {
-            ResponseEntity<String> response = restTemplate.postForEntity(
-                    url,
-                    new HttpEntity<>(requestBody, headers),
-                    String.class
-            );
-
-            if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
-                log.warn("⚠️ Embedding Gemini: réponse invalide {} body={}", response.getStatusCode(), response.getBody());
-                return null;
+            JsonNode response = geminiRateGovernor.executeAsync(model,
+                    () -> outboundHttpClient.post(OutboundHttpClient.Target.GEMINI, url, requestBody).toFuture());
+            return extractVector(response);
+        } catch (WebClientResponseException e) {
+            log.error("❌ Embedding Gemini: HTTP {} body={}", e.getStatusCode(), e.getResponseBodyAsString());
+            return null;
+        } catch (Exception e) {
+            log.error("❌ Embedding Gemini: échec appel API: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Embeddings de plusieurs textes via batchEmbedContents, par paquets de {@code gemini.embedding-batch-size}.
+     * Le résultat est dans l'ordre des textes ; un élément vaut null pour un texte vide ou en échec.
+     * Si une requête groupée échoue, ses textes sont embeddés un par un.
+     */
+    public List<List<Double>> embedBatch(List<String> texts) {
+        List<List<Double>> vectors = new ArrayList<>(Collections.nCopies(texts.size(), null));
+        int batchSize = getMaxBatchSize();
+
+        for (int from = 0; from < texts.size(); from += batchSize) {
+            int to = Math.min(from + batchSize, texts.size());
+            List<Integer> indexes = new ArrayList<>();
+            List<String> chunk = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                String text = texts.get(i);
+                if (text != null && !text.trim().isEmpty()) {
+                    indexes.add(i);
+                    chunk.add(text);
+                }
             }
+            if (chunk.isEmpty()) {
+                continue;
+            }
+
+            List<List<Double>> chunkVectors = callBatchEmbed(chunk);
+            if (chunkVectors == null) {
+                log.warn("⚠️ Embedding Gemini: échec du lot de {} textes, repli sur des appels unitaires", chunk.size());
+                for (int j = 0; j < chunk.size(); j++) {
+                    vectors.set(indexes.get(j), embed(chunk.get(j)));
+                }
+                continue;
+            }
+
+            for (int j = 0; j < chunk.size(); j++) {
+                vectors.set(indexes.get(j), chunkVectors.get(j));
+            }
+        }
+        return vectors;
+    }
 
-            return extractVector(response.getBody());
-        } catch (HttpStatusCodeException e) {
-            String body = e.getResponseBodyAsString();
-            log.error("❌ Embedding Gemini: HTTP {} body={}", e.getStatusCode(), body);
+    public int getMaxBatchSize() {
+        return Math.max(1, Math.min(100, geminiProperties.getEmbeddingBatchSize()));
+    }
+
+    private List<List<Double>> callBatchEmbed(List<String> texts) {
+        String model = geminiProperties.getEmbeddingModel();
+        String url = String.format("%s/models/%s:batchEmbedContents?key=%s",
+                geminiProperties.getBaseUrl(), model, geminiProperties.getApiKey());
+
+        List<Map<String, Object>> requests = texts.stream()
+                .map(text -> Map.<String, Object>of(
+                        "model", "models/" + model,
+                        "content", Map.of(
+                                "parts", List.of(
+                                        Map.of("text", text)
+                                )
+                        )
+                ))
+                .toList();
+
+        try {
+            JsonNode response = geminiRateGovernor.executeAsync(model, () -> outboundHttpClient.post(
+                    OutboundHttpClient.Target.GEMINI, url, Map.of("requests", requests)).toFuture());
+            return extractVectors(response, texts.size());
+        } catch (WebClientResponseException e) {
+            log.error("❌ Embedding Gemini (batch): HTTP {} body={}", e.getStatusCode(), e.getResponseBodyAsString());
             return null;
         } catch (Exception e) {
-            log.error("❌ Embedding Gemini: échec appel API: {}", e.getMessage());
+            log.error("❌ Embedding Gemini (batch): échec appel API: {}", e.getMessage());
             return null;
         }
     }
 
-    private List<Double> extractVector(String responseBody) {
+    private List<List<Double>> extractVectors(JsonNode response, int expectedCount) {
         try {
-            JsonNode root = objectMapper.readTree(responseBody);
-            JsonNode embeddingNode = root.get("embedding");
-            if (embeddingNode == null) {
+            JsonNode embeddings = response.get("embeddings");
+            if (embeddings == null || !embeddings.isArray() || embeddings.size() != expectedCount) {
+                log.warn("⚠️ Embedding Gemini (batch): {} vecteurs reçus pour {} textes",
+                        embeddings != null ? embeddings.size() : 0, expectedCount);
                 return null;
             }
 
-            JsonNode values = embeddingNode.get("values");
-            if (values == null || !values.isArray() || values.isEmpty()) {
+            List<List<Double>> vectors = new ArrayList<>(expectedCount);
+            for (JsonNode embedding : embeddings) {
+                vectors.add(toVector(embedding.get("values")));
+            }
+            return vectors;
+        } catch (Exception e) {
+            log.error("❌ Embedding Gemini (batch): parsing réponse impossible: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private List<Double> extractVector(JsonNode response) {
+        try {
+            JsonNode embeddingNode = response.get("embedding");
+            if (embeddingNode == null) {
                 return null;
             }
 
-            return objectMapper.convertValue(values, objectMapper.getTypeFactory().constructCollectionType(List.class, Double.class));
+            return toVector(embeddingNode.get("values"));
         } catch (Exception e) {
             log.error("❌ Embedding Gemini: parsing réponse impossible: {}", e.getMessage());
             return null;
         }
     }
+
+    private List<Double> toVector(JsonNode values) {
+        if (values == null || !values.isArray() || values.isEmpty()) {
+            return null;
+        }
+        return objectMapper.convertValue(values, objectMapper.getTypeFactory().constructCollectionType(List.class, Double.class));
+    }
 }
@@ -1,11 +1,10 @@
 package com.example.chatbotnasoft.service;
 
 import com.example.chatbotnasoft.config.GeminiProperties;
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.util.List;
 import java.util.Map;
@@ -15,8 +14,9 @@ import java.util.Map;
 @Slf4j
 public class GeminiLlmService {
 
-    private final RestTemplate restTemplate;
+    private final OutboundHttpClient outboundHttpClient;
     private final GeminiProperties geminiProperties;
+    private final GeminiRateGovernor geminiRateGovernor;
 
     public String generate(String prompt) {
         String url = "https://generativelanguage.googleapis.com/v1beta/models/" + geminiProperties.getLlmModel() + ":generateContent?key=" + geminiProperties.getApiKey();
@@ -37,32 +37,23 @@ public class GeminiLlmService {
                 )
         );
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-
         try {
-            ResponseEntity<Map> response = restTemplate.postForEntity(url, new HttpEntity<>(request, headers), Map.class);
-            if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
-                log.error("❌ LLM: échec génération, status: {}", response.getStatusCode());
-                return null;
-            }
+            JsonNode body = geminiRateGovernor.executeAsync(geminiProperties.getLlmModel(),
+                    () -> outboundHttpClient.post(OutboundHttpClient.Target.GEMINI, url, request).toFuture());
 
-            Map<String, Object> body = response.getBody();
-            List<Map<String, Object>> candidates = (List<Map<String, Object>>) body.get("candidates");
-            if (candidates == null || candidates.isEmpty()) {
+            JsonNode candidates = body.path("candidates");
+            if (!candidates.isArray() || candidates.isEmpty()) {
                 log.error("❌ LLM: pas de candidats retournés");
                 return null;
             }
 
-            Map<String, Object> candidate = candidates.get(0);
-            Map<String, Object> content = (Map<String, Object>) candidate.get("content");
-            List<Map<String, Object>> parts = (List<Map<String, Object>>) content.get("parts");
-            if (parts == null || parts.isEmpty()) {
+            JsonNode parts = candidates.path(0).path("content").path("parts");
+            if (!parts.isArray() || parts.isEmpty()) {
                 log.error("❌ LLM: pas de contenu dans la réponse");
                 return null;
             }
 
-            String text = (String) parts.get(0).get("text");
+            String text = parts.path(0).path("text").asText(null);
             log.info("✅ LLM: réponse générée ({} caractères)", text != null ? text.length() : 0);
             return text;
 
@@ -0,0 +1,355 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.config.ConcurrencyProperties;
+import com.example.chatbotnasoft.config.GeminiProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Régulateur partagé de tout le trafic Gemini (génération et embeddings).
+ * <p>
+ * Pour chaque modèle : un seau à jetons dont le débit suit une loi AIMD (augmentation additive à chaque
+ * succès jusqu'au quota configuré, division par deux sur un 429/503) et une limite d'appels simultanés.
+ * Après un 429/503 le modèle est bloqué pendant un délai exponentiel avec jitter (ou le Retry-After
+ * renvoyé) ; les appels en attente restent dans une file et sont relancés par un planificateur,
+ * aucun thread n'est mis en sommeil.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GeminiRateGovernor {
+
+    private static final double MIN_REQUESTS_PER_MINUTE = 1.0;
+    private static final double DECREASE_FACTOR = 0.5;
+    // Part du quota regagnée à chaque succès
+    private static final double INCREASE_FRACTION = 0.05;
+
+    private final GeminiProperties geminiProperties;
+    private final ConcurrencyProperties concurrencyProperties;
+
+    private final Map<String, ModelState> states = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+    private ExecutorService callExecutor;
+
+    @PostConstruct
+    public void initialize() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(VirtualThreads.threadFactory("gemini-governor", false));
+        // Appels bloquants (embeddings, Mongo en aval) : un thread virtuel par appel quand le mode est activé
+        callExecutor = concurrencyProperties.isVirtualThreads() && VirtualThreads.isSupported()
+                ? VirtualThreads.newExecutor("gemini-call", true, 0)
+                : Executors.newCachedThreadPool(VirtualThreads.threadFactory("gemini-call", false));
+        log.info("🚦 Régulateur Gemini initialisé ({} quotas configurés)", geminiProperties.getQuotas().size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (callExecutor != null) {
+            callExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Soumet un appel Gemini pour le modèle donné. Le futur est complété quand l'appel a abouti,
+     * ou en erreur après {@code gemini.max-retries} réponses 429/503 consécutives.
+     */
+    public <T> CompletableFuture<T> submit(String model, Supplier<T> call) {
+        return submitAsync(model, () -> CompletableFuture.supplyAsync(call, callExecutor));
+    }
+
+    /**
+     * Variante pour les appels déjà asynchrones (client HTTP non bloquant) : le créneau du modèle est libéré
+     * à la complétion du futur retourné par l'appel, aucun thread n'est occupé pendant l'attente.
+     */
+    public <T> CompletableFuture<T> submitAsync(String model, Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        ModelState state = states.computeIfAbsent(model, m -> new ModelState(m, geminiProperties.quotaFor(m)));
+        synchronized (state) {
+            state.queue.addLast(new PendingCall<>(call, future, 0));
+        }
+        dispatch(state);
+        return future;
+    }
+
+    /**
+     * Variante bloquante de {@link #submit} pour les appelants synchrones (le thread appelant attend,
+     * pas les threads du régulateur).
+     */
+    public <T> T execute(String model, Supplier<T> call) {
+        return await(submit(model, call));
+    }
+
+    /**
+     * Variante bloquante de {@link #submitAsync}.
+     */
+    public <T> T executeAsync(String model, Supplier<CompletableFuture<T>> call) {
+        return await(submitAsync(model, call));
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        states.forEach((model, state) -> {
+            synchronized (state) {
+                Map<String, Object> modelStats = new LinkedHashMap<>();
+                modelStats.put("requestsPerMinute", Math.round(state.requestsPerMinute * 10) / 10.0);
+                modelStats.put("quotaRequestsPerMinute", state.quota.getRequestsPerMinute());
+                modelStats.put("inFlight", state.inFlight);
+                modelStats.put("maxConcurrent", state.quota.getMaxConcurrent());
+                modelStats.put("queued", state.queue.size());
+                modelStats.put("completed", state.completed);
+                modelStats.put("throttled", state.throttled);
+                modelStats.put("failed", state.failed);
+                modelStats.put("blockedForMs",
+                        Math.max(0, TimeUnit.NANOSECONDS.toMillis(state.blockedUntilNanos - System.nanoTime())));
+                stats.put(model, modelStats);
+            }
+        });
+        return stats;
+    }
+
+    private void dispatch(ModelState state) {
+        List<PendingCall<?>> ready = new ArrayList<>();
+
+        synchronized (state) {
+            long now = System.nanoTime();
+            state.refill(now);
+
+            while (!state.queue.isEmpty() && state.inFlight < state.quota.getMaxConcurrent()
+                    && now >= state.blockedUntilNanos && state.tokens >= 1) {
+                state.tokens -= 1;
+                state.inFlight++;
+                ready.add(state.queue.pollFirst());
+            }
+
+            // Appels en attente d'un jeton ou de la fin du blocage : réveil programmé, sans thread bloqué
+            if (!state.queue.isEmpty() && state.inFlight < state.quota.getMaxConcurrent() && !state.wakeUpScheduled) {
+                long delay = Math.max(state.blockedUntilNanos - now, state.nanosUntilNextToken());
+                state.wakeUpScheduled = true;
+                scheduler.schedule(() -> {
+                    synchronized (state) {
+                        state.wakeUpScheduled = false;
+                    }
+                    dispatch(state);
+                }, Math.max(1, delay), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        ready.forEach(pending -> run(state, pending));
+    }
+
+    private <T> void run(ModelState state, PendingCall<T> pending) {
+        CompletableFuture<T> attempt;
+        try {
+            attempt = pending.call().get();
+        } catch (RuntimeException e) {
+            attempt = CompletableFuture.failedFuture(e);
+        }
+        attempt.whenComplete((result, error) -> complete(state, pending, result, error));
+    }
+
+    private <T> void complete(ModelState state, PendingCall<T> pending, T result, Throwable error) {
+        try {
+            if (error == null) {
+                synchronized (state) {
+                    state.onSuccess();
+                }
+                pending.future().complete(result);
+                return;
+            }
+
+            Throwable cause = unwrap(error);
+            int status = httpStatus(cause);
+            if (status == 429 || status == 503) {
+                long backoffMs;
+                boolean retry = pending.attempt() < geminiProperties.getMaxRetries();
+                synchronized (state) {
+                    backoffMs = state.onThrottled(retryAfterMillis(cause));
+                    if (retry) {
+                        state.queue.addFirst(pending.nextAttempt());
+                    } else {
+                        state.failed++;
+                    }
+                }
+                if (retry) {
+                    log.warn("⏳ Gemini {} a répondu {} : nouvelle tentative dans {} ms ({}/{})", state.model,
+                            status, backoffMs, pending.attempt() + 1, geminiProperties.getMaxRetries());
+                } else {
+                    log.warn("❌ Gemini {} a répondu {} : abandon après {} nouvelles tentatives", state.model,
+                            status, geminiProperties.getMaxRetries());
+                    pending.future().completeExceptionally(cause);
+                }
+            } else {
+                synchronized (state) {
+                    state.failed++;
+                }
+                pending.future().completeExceptionally(cause);
+            }
+        } finally {
+            synchronized (state) {
+                state.inFlight--;
+            }
+            dispatch(state);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable current = error;
+        while (current instanceof CompletionException && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+
+    /**
+     * Statut HTTP de l'erreur (client bloquant ou WebClient), -1 si ce n'est pas une réponse HTTP.
+     */
+    private static int httpStatus(Throwable error) {
+        for (Throwable current = error; current != null; current = current.getCause()) {
+            if (current instanceof HttpStatusCodeException httpError) {
+                return httpError.getStatusCode().value();
+            }
+            if (current instanceof WebClientResponseException webClientError) {
+                return webClientError.getStatusCode().value();
+            }
+        }
+        return -1;
+    }
+
+    private static long retryAfterMillis(Throwable error) {
+        String retryAfter = null;
+        for (Throwable current = error; current != null && retryAfter == null; current = current.getCause()) {
+            if (current instanceof HttpStatusCodeException httpError && httpError.getResponseHeaders() != null) {
+                retryAfter = httpError.getResponseHeaders().getFirst("Retry-After");
+            } else if (current instanceof WebClientResponseException webClientError) {
+                retryAfter = webClientError.getHeaders().getFirst("Retry-After");
+            }
+        }
+        if (retryAfter == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(retryAfter.trim()) * 1000;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private record PendingCall<T>(Supplier<CompletableFuture<T>> call, CompletableFuture<T> future, int attempt) {
+
+        PendingCall<T> nextAttempt() {
+            return new PendingCall<>(call, future, attempt + 1);
+        }
+    }
+
+    /**
+     * Etat d'un modèle ; tous les accès se font sous le verrou de l'instance.
+     */
+    private final class ModelState {
+
+        private final String model;
+        private final GeminiProperties.ModelQuota quota;
+        private final Deque<PendingCall<?>> queue = new ArrayDeque<>();
+
+        private double requestsPerMinute;
+        private double tokens;
+        private long lastRefillNanos;
+        private int inFlight;
+        private long blockedUntilNanos;
+        private int consecutiveThrottles;
+        private boolean wakeUpScheduled;
+
+        private long completed;
+        private long throttled;
+        private long failed;
+
+        private ModelState(String model, GeminiProperties.ModelQuota quota) {
+            this.model = model;
+            this.quota = quota;
+            this.requestsPerMinute = quota.getRequestsPerMinute();
+            this.tokens = capacity();
+            this.lastRefillNanos = System.nanoTime();
+            this.blockedUntilNanos = lastRefillNanos;
+        }
+
+        private double capacity() {
+            return Math.max(1, quota.getMaxConcurrent());
+        }
+
+        private void refill(long now) {
+            double elapsedMinutes = (now - lastRefillNanos) / 60_000_000_000.0;
+            tokens = Math.min(capacity(), tokens + elapsedMinutes * requestsPerMinute);
+            lastRefillNanos = now;
+        }
+
+        private long nanosUntilNextToken() {
+            if (tokens >= 1) {
+                return 0;
+            }
+            return (long) ((1 - tokens) / requestsPerMinute * 60_000_000_000.0);
+        }
+
+        private void onSuccess() {
+            completed++;
+            consecutiveThrottles = 0;
+            requestsPerMinute = Math.min(quota.getRequestsPerMinute(),
+                    requestsPerMinute + quota.getRequestsPerMinute() * INCREASE_FRACTION);
+        }
+
+        /**
+         * Diminution multiplicative du débit et blocage du modèle ; retourne le délai appliqué (ms).
+         */
+        private long onThrottled(long retryAfterMs) {
+            throttled++;
+            consecutiveThrottles++;
+            requestsPerMinute = Math.max(MIN_REQUESTS_PER_MINUTE, requestsPerMinute * DECREASE_FACTOR);
+            tokens = 0;
+
+            long backoffMs;
+            if (retryAfterMs > 0) {
+                backoffMs = retryAfterMs;
+            } else {
+                long exponential = geminiProperties.getBackoffInitialMs() << Math.min(consecutiveThrottles - 1, 20);
+                long capped = Math.min(geminiProperties.getBackoffMaxMs(), exponential);
+                // Jitter : entre la moitié et la totalité du délai, pour désynchroniser les appels en attente
+                backoffMs = capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1);
+            }
+
+            blockedUntilNanos = Math.max(blockedUntilNanos, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMs));
+            return backoffMs;
+        }
+    }
+}
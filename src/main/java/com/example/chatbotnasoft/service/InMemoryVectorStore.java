@@ -0,0 +1,365 @@
+package com.example.chatbotnasoft.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index vectoriel dans la JVM : tous les vecteurs sont stockés bout à bout dans un seul {@code float[]}
+ * et la recherche est exhaustive (produit scalaire sur des vecteurs normalisés pour la distance Cosine).
+ * Pour quelques dizaines de milliers de mappings, une recherche prend moins d'une milliseconde.
+ * <p>
+ * L'index peut être sauvegardé dans un fichier snapshot et rechargé au démarrage.
+ * Lectures concurrentes, écritures exclusives.
+ */
+@Slf4j
+public class InMemoryVectorStore implements VectorStore {
+
+    private static final int SNAPSHOT_MAGIC = 0x56535431; // "VST1"
+    private static final TypeReference<Map<String, Object>> PAYLOAD_TYPE = new TypeReference<>() {
+    };
+
+    private final boolean cosine;
+    private final ObjectMapper objectMapper;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int dimension;
+    private float[] vectors = new float[0];
+    private String[] ids = new String[0];
+    private Map<String, Object>[] payloads = newPayloadArray(0);
+    private final Map<String, Integer> slotById = new HashMap<>();
+    private int size;
+
+    private volatile boolean dirty;
+
+    public InMemoryVectorStore(String distance, ObjectMapper objectMapper) {
+        this.cosine = !"Dot".equalsIgnoreCase(distance);
+        this.objectMapper = objectMapper;
+        if (cosine && !"Cosine".equalsIgnoreCase(distance)) {
+            log.warn("⚠️ Distance '{}' non supportée par l'index mémoire, Cosine utilisée", distance);
+        }
+    }
+
+    @Override
+    public void ensureCollectionExists(int vectorSize) {
+        lock.writeLock().lock();
+        try {
+            if (dimension == 0) {
+                dimension = vectorSize;
+            } else if (dimension != vectorSize) {
+                throw new IllegalStateException("Dimension incompatible: index=" + dimension + ", vecteur=" + vectorSize);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void upsertPoints(List<Map<String, Object>> points) {
+        if (points == null || points.isEmpty()) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Map<String, Object> point : points) {
+                String id = String.valueOf(point.get("id"));
+                @SuppressWarnings("unchecked")
+                List<? extends Number> vector = (List<? extends Number>) point.get("vector");
+                @SuppressWarnings("unchecked")
+                Map<String, Object> payload = (Map<String, Object>) point.get("payload");
+
+                if (dimension == 0) {
+                    dimension = vector.size();
+                } else if (vector.size() != dimension) {
+                    throw new IllegalArgumentException("Dimension incompatible pour le point " + id + ": " + vector.size());
+                }
+
+                Integer slot = slotById.get(id);
+                if (slot == null) {
+                    slot = size++;
+                    ensureCapacity(size);
+                    slotById.put(id, slot);
+                }
+
+                ids[slot] = id;
+                payloads[slot] = normalizePayload(payload);
+                writeVector(slot, vector);
+            }
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deletePoints(List<String> pointIds) {
+        if (pointIds == null || pointIds.isEmpty()) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (String id : pointIds) {
+                Integer slot = slotById.remove(id);
+                if (slot == null) {
+                    continue;
+                }
+
+                // Le dernier point prend la place du point supprimé : le tableau reste contigu
+                int last = --size;
+                if (slot != last) {
+                    System.arraycopy(vectors, last * dimension, vectors, slot * dimension, dimension);
+                    ids[slot] = ids[last];
+                    payloads[slot] = payloads[last];
+                    slotById.put(ids[slot], slot);
+                }
+                ids[last] = null;
+                payloads[last] = null;
+            }
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<SearchHit> search(List<Double> queryVector, int limit) {
+        if (queryVector == null || queryVector.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (size == 0 || queryVector.size() != dimension) {
+                return List.of();
+            }
+
+            float[] query = new float[dimension];
+            for (int i = 0; i < dimension; i++) {
+                query[i] = queryVector.get(i).floatValue();
+            }
+            if (cosine) {
+                normalize(query, 0, dimension);
+            }
+
+            // Top-k par tri par insertion dans des tableaux de taille k
+            int k = Math.min(limit, size);
+            int[] topSlots = new int[k];
+            float[] topScores = new float[k];
+            Arrays.fill(topScores, Float.NEGATIVE_INFINITY);
+
+            for (int slot = 0; slot < size; slot++) {
+                float score = dot(query, vectors, slot * dimension, dimension);
+                if (score <= topScores[k - 1]) {
+                    continue;
+                }
+                int position = k - 1;
+                while (position > 0 && topScores[position - 1] < score) {
+                    topScores[position] = topScores[position - 1];
+                    topSlots[position] = topSlots[position - 1];
+                    position--;
+                }
+                topScores[position] = score;
+                topSlots[position] = slot;
+            }
+
+            List<SearchHit> hits = new ArrayList<>(k);
+            for (int i = 0; i < k; i++) {
+                hits.add(new SearchHit(ids[topSlots[i]], topScores[i], payloads[topSlots[i]]));
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ecrit le snapshot (fichier temporaire puis renommage atomique) si l'index a changé depuis le dernier.
+     */
+    public void snapshotIfDirty(Path snapshotPath) {
+        if (!dirty) {
+            return;
+        }
+
+        lock.readLock().lock();
+        try {
+            Path parent = snapshotPath.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path tempFile = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(dimension);
+                out.writeInt(size);
+                for (int slot = 0; slot < size; slot++) {
+                    out.writeUTF(ids[slot]);
+                    byte[] payload = objectMapper.writeValueAsBytes(payloads[slot]);
+                    out.writeInt(payload.length);
+                    out.write(payload);
+                    int offset = slot * dimension;
+                    for (int i = 0; i < dimension; i++) {
+                        out.writeFloat(vectors[offset + i]);
+                    }
+                }
+            }
+
+            Files.move(tempFile, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+            log.info("💾 Snapshot de l'index vectoriel écrit: {} points ({})", size, snapshotPath);
+        } catch (IOException e) {
+            log.error("❌ Ecriture du snapshot de l'index vectoriel impossible: {}", e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void loadSnapshot(Path snapshotPath) {
+        if (!Files.exists(snapshotPath)) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                log.warn("⚠️ Snapshot de l'index vectoriel ignoré (format inconnu): {}", snapshotPath);
+                return;
+            }
+            int snapshotDimension = in.readInt();
+            int count = in.readInt();
+
+            dimension = snapshotDimension;
+            size = 0;
+            slotById.clear();
+            vectors = new float[0];
+            ids = new String[0];
+            payloads = newPayloadArray(0);
+            ensureCapacity(count);
+
+            for (int slot = 0; slot < count; slot++) {
+                ids[slot] = in.readUTF();
+                byte[] payload = new byte[in.readInt()];
+                in.readFully(payload);
+                payloads[slot] = objectMapper.readValue(payload, PAYLOAD_TYPE);
+                int offset = slot * dimension;
+                for (int i = 0; i < dimension; i++) {
+                    vectors[offset + i] = in.readFloat();
+                }
+                slotById.put(ids[slot], slot);
+                size++;
+            }
+            dirty = false;
+            log.info("📂 Index vectoriel chargé depuis le snapshot: {} points (dimension {})", size, dimension);
+        } catch (IOException e) {
+            log.error("❌ Lecture du snapshot de l'index vectoriel impossible: {}", e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void writeVector(int slot, List<? extends Number> vector) {
+        int offset = slot * dimension;
+        for (int i = 0; i < dimension; i++) {
+            vectors[offset + i] = vector.get(i).floatValue();
+        }
+        if (cosine) {
+            normalize(vectors, offset, dimension);
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (ids.length >= required) {
+            return;
+        }
+        int capacity = Math.max(required, Math.max(16, ids.length + (ids.length >> 1)));
+        vectors = Arrays.copyOf(vectors, capacity * Math.max(1, dimension));
+        ids = Arrays.copyOf(ids, capacity);
+        payloads = Arrays.copyOf(payloads, capacity);
+    }
+
+    /**
+     * Boucle déroulée par 4 : le JIT la vectorise (SIMD) sur les architectures qui le permettent.
+     */
+    private static float dot(float[] query, float[] data, int offset, int length) {
+        float s0 = 0;
+        float s1 = 0;
+        float s2 = 0;
+        float s3 = 0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            s0 += query[i] * data[offset + i];
+            s1 += query[i + 1] * data[offset + i + 1];
+            s2 += query[i + 2] * data[offset + i + 2];
+            s3 += query[i + 3] * data[offset + i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += query[i] * data[offset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private static void normalize(float[] data, int offset, int length) {
+        double norm = 0;
+        for (int i = 0; i < length; i++) {
+            norm += (double) data[offset + i] * data[offset + i];
+        }
+        if (norm == 0) {
+            return;
+        }
+        float inverse = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < length; i++) {
+            data[offset + i] *= inverse;
+        }
+    }
+
+    /**
+     * Les valeurs non JSON (dates...) sont converties en texte, comme dans la réponse de Qdrant.
+     */
+    private static Map<String, Object> normalizePayload(Map<String, Object> payload) {
+        Map<String, Object> normalized = new LinkedHashMap<>();
+        if (payload == null) {
+            return normalized;
+        }
+        payload.forEach((key, value) -> {
+            if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean
+                    || value instanceof Map || value instanceof List) {
+                normalized.put(key, value);
+            } else {
+                normalized.put(key, value.toString());
+            }
+        });
+        return normalized;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object>[] newPayloadArray(int length) {
+        return (Map<String, Object>[]) new Map[length];
+    }
+}
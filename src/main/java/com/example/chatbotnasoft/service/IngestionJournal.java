@@ -0,0 +1,480 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.config.IngestionProperties;
+import com.example.chatbotnasoft.dto.ParsedFeedGroup;
+import com.example.chatbotnasoft.dto.RawFeedLine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * Journal d'ingestion durable : l'état de chaque fichier non terminé survit à un arrêt brutal de la JVM.
+ * <p>
+ * Le journal est un fichier en ajout seul ; chaque enregistrement est {@code longueur | CRC32 | contenu}.
+ * Un fichier passe par DETECTED, STABILIZED, PARSING (points de reprise : offset atteint, compteurs et
+ * échantillons par msg-type), PARSED et LLM_DONE, puis disparaît du journal (terminé ou abandonné).
+ * Les transitions qui engagent une reprise sont forcées sur disque.
+ * <p>
+ * Au démarrage, le journal est relu en mémoire mappée jusqu'au premier enregistrement incomplet ou corrompu
+ * (écriture interrompue), puis réécrit avec les seuls fichiers en cours ; il est aussi compacté dès qu'il
+ * dépasse {@code ingestion.journal-compaction-threshold-mb}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IngestionJournal {
+
+    private static final int JOURNAL_MAGIC = 0x494A4E31; // "IJN1"
+    private static final int HEADER_SIZE = 8;
+
+    public enum State { DETECTED, STABILIZED, PARSING, PARSED, LLM_DONE }
+
+    private enum RecordType { DETECTED, STABILIZED, CHECKPOINT, LLM_DONE, COMPLETED, ABANDONED }
+
+    private final IngestionProperties properties;
+
+    private final Map<Path, Entry> entries = new LinkedHashMap<>();
+    private Path journalPath;
+    private FileChannel channel;
+    private long recordsWritten;
+    private long compactions;
+    private long replayMillis;
+    private int replayedRecords;
+    private boolean tornTail;
+
+    @PostConstruct
+    public synchronized void open() {
+        if (!properties.isJournalEnabled()) {
+            log.info("Journal d'ingestion désactivé");
+            return;
+        }
+        journalPath = Paths.get(properties.getJournalPath());
+        try {
+            Path parent = journalPath.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            long start = System.nanoTime();
+            replay();
+            replayMillis = (System.nanoTime() - start) / 1_000_000;
+            compact();
+            log.info("📂 Journal d'ingestion chargé: {} fichiers en cours ({} enregistrements, {} ms{})",
+                    entries.size(), replayedRecords, replayMillis, tornTail ? ", fin tronquée ignorée" : "");
+        } catch (IOException e) {
+            log.error("❌ Journal d'ingestion inutilisable ({}), reprise désactivée: {}", journalPath, e.getMessage());
+            closeChannel();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        closeChannel();
+    }
+
+    public boolean isEnabled() {
+        return channel != null;
+    }
+
+    public void recordDetected(Path filePath) {
+        Entry previous = entry(filePath);
+        if (previous != null && previous.state() != State.DETECTED) {
+            return; // Déjà stabilisé : la reprise part du dernier point connu
+        }
+        append(filePath, new Entry(key(filePath), State.DETECTED, -1, -1, null), RecordType.DETECTED, false);
+    }
+
+    /**
+     * Fichier stabilisé et mis en file. Taille et date de modification identifient la version du fichier :
+     * un point de reprise n'est réutilisé que si elles n'ont pas changé.
+     */
+    public void recordStabilized(Path filePath, long fileSize, long lastModified) {
+        Entry previous = entry(filePath);
+        if (previous != null && previous.lastModified() == lastModified && previous.state() != State.DETECTED
+                && previous.state() != State.STABILIZED) {
+            return; // Reprise d'un fichier déjà entamé, inchangé
+        }
+        // Non forcé : perdu, le fichier repart simplement de sa détection
+        append(filePath, new Entry(key(filePath), State.STABILIZED, fileSize, lastModified, null),
+                RecordType.STABILIZED, false);
+    }
+
+    public void recordCheckpoint(Path filePath, Checkpoint checkpoint) {
+        Entry previous = entry(filePath);
+        long fileSize = previous != null ? previous.fileSize() : -1;
+        long lastModified = previous != null ? previous.lastModified() : -1;
+        State state = checkpoint.parsed() ? State.PARSED : State.PARSING;
+        append(filePath, new Entry(key(filePath), state, fileSize, lastModified, checkpoint),
+                RecordType.CHECKPOINT, true);
+    }
+
+    public void recordLlmDone(Path filePath) {
+        Entry previous = entry(filePath);
+        if (previous == null) {
+            return;
+        }
+        append(filePath, new Entry(previous.path(), State.LLM_DONE, previous.fileSize(), previous.lastModified(),
+                previous.checkpoint()), RecordType.LLM_DONE, true);
+    }
+
+    public void recordCompleted(Path filePath) {
+        if (entry(filePath) != null) {
+            append(filePath, null, RecordType.COMPLETED, false);
+        }
+    }
+
+    public void recordAbandoned(Path filePath) {
+        if (entry(filePath) != null) {
+            append(filePath, null, RecordType.ABANDONED, false);
+        }
+    }
+
+    public synchronized Optional<Entry> get(Path filePath) {
+        return Optional.ofNullable(entries.get(key(filePath)));
+    }
+
+    /**
+     * Entrée du fichier si le fichier sur disque est toujours celui journalisé (même date de modification,
+     * taille au moins égale à l'offset atteint).
+     */
+    public Optional<Entry> resumable(Path filePath) {
+        Entry entry = entry(filePath);
+        if (entry == null || entry.checkpoint() == null || entry.lastModified() < 0) {
+            return Optional.empty();
+        }
+        try {
+            if (Files.getLastModifiedTime(filePath).toMillis() != entry.lastModified()
+                    || Files.size(filePath) < entry.checkpoint().offset()) {
+                log.warn("⚠️ {} a changé depuis le dernier point de reprise, traitement depuis le début",
+                        filePath.getFileName());
+                return Optional.empty();
+            }
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+        return Optional.of(entry);
+    }
+
+    public synchronized List<Entry> getPendingEntries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    public synchronized Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", channel != null);
+        if (channel == null) {
+            return stats;
+        }
+        Map<State, Integer> byState = new EnumMap<>(State.class);
+        entries.values().forEach(entry -> byState.merge(entry.state(), 1, Integer::sum));
+        stats.put("path", journalPath.toString());
+        stats.put("pendingFiles", entries.size());
+        stats.put("byState", byState);
+        stats.put("sizeBytes", sizeOf());
+        stats.put("recordsWritten", recordsWritten);
+        stats.put("compactions", compactions);
+        stats.put("replayMillis", replayMillis);
+        stats.put("replayedRecords", replayedRecords);
+        stats.put("tornTailIgnored", tornTail);
+        return stats;
+    }
+
+    private synchronized Entry entry(Path filePath) {
+        return entries.get(key(filePath));
+    }
+
+    private synchronized void append(Path filePath, Entry entry, RecordType type, boolean force) {
+        if (channel == null) {
+            return;
+        }
+        Path path = key(filePath);
+        try {
+            writeRecord(channel, type, path, entry);
+            if (force) {
+                channel.force(false);
+            }
+            recordsWritten++;
+            apply(path, type, entry);
+            if (channel.size() > properties.getJournalCompactionThresholdBytes()) {
+                compact();
+            }
+        } catch (IOException e) {
+            log.error("❌ Ecriture dans le journal d'ingestion impossible ({}): {}", path.getFileName(), e.getMessage());
+        }
+    }
+
+    private void apply(Path path, RecordType type, Entry entry) {
+        if (type == RecordType.COMPLETED || type == RecordType.ABANDONED) {
+            entries.remove(path);
+        } else {
+            entries.put(path, entry);
+        }
+    }
+
+    /**
+     * Relecture du journal mappé en mémoire ; s'arrête au premier enregistrement incomplet ou dont le CRC
+     * ne correspond pas (fin d'écriture perdue lors d'un arrêt brutal).
+     */
+    private void replay() throws IOException {
+        entries.clear();
+        replayedRecords = 0;
+        tornTail = false;
+        if (!Files.exists(journalPath) || Files.size(journalPath) == 0) {
+            return;
+        }
+        try (FileChannel readChannel = FileChannel.open(journalPath, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+            if (buffer.remaining() < 4 || buffer.getInt() != JOURNAL_MAGIC) {
+                log.warn("⚠️ Journal d'ingestion ignoré (format inconnu): {}", journalPath);
+                return;
+            }
+            CRC32 crc = new CRC32();
+            while (buffer.remaining() >= HEADER_SIZE) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    tornTail = true;
+                    break;
+                }
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    tornTail = true;
+                    break;
+                }
+                readRecord(payload);
+                replayedRecords++;
+            }
+            if (!tornTail && buffer.hasRemaining()) {
+                tornTail = true;
+            }
+        }
+    }
+
+    private void readRecord(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        RecordType type = RecordType.values()[in.readByte()];
+        Path path = Paths.get(in.readUTF());
+        Entry previous = entries.get(path);
+        Entry entry = switch (type) {
+            case DETECTED -> new Entry(path, State.DETECTED, -1, -1, null);
+            case STABILIZED -> new Entry(path, State.STABILIZED, in.readLong(), in.readLong(), null);
+            case CHECKPOINT -> {
+                long fileSize = in.readLong();
+                long lastModified = in.readLong();
+                Checkpoint checkpoint = readCheckpoint(in, path.getFileName().toString());
+                yield new Entry(path, checkpoint.parsed() ? State.PARSED : State.PARSING, fileSize, lastModified,
+                        checkpoint);
+            }
+            case LLM_DONE -> previous == null ? null : new Entry(path, State.LLM_DONE, previous.fileSize(),
+                    previous.lastModified(), previous.checkpoint());
+            case COMPLETED, ABANDONED -> null;
+        };
+        if (entry != null || type == RecordType.COMPLETED || type == RecordType.ABANDONED) {
+            apply(path, type, entry);
+        }
+    }
+
+    /**
+     * Réécrit le journal avec les seuls fichiers en cours (fichier temporaire puis renommage atomique).
+     */
+    private void compact() throws IOException {
+        closeChannel();
+        Path tempFile = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer magic = ByteBuffer.allocate(4).putInt(JOURNAL_MAGIC).flip();
+            while (magic.hasRemaining()) {
+                out.write(magic);
+            }
+            for (Entry entry : entries.values()) {
+                writeEntry(out, entry);
+            }
+            out.force(true);
+        }
+        Files.move(tempFile, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(journalPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        compactions++;
+        log.debug("💾 Journal d'ingestion compacté: {} fichiers en cours", entries.size());
+    }
+
+    // Un fichier en cours est réécrit avec les enregistrements qui reconstruisent son état
+    private void writeEntry(FileChannel out, Entry entry) throws IOException {
+        switch (entry.state()) {
+            case DETECTED -> writeRecord(out, RecordType.DETECTED, entry.path(), entry);
+            case STABILIZED -> writeRecord(out, RecordType.STABILIZED, entry.path(), entry);
+            case PARSING, PARSED -> writeRecord(out, RecordType.CHECKPOINT, entry.path(), entry);
+            case LLM_DONE -> {
+                writeRecord(out, entry.checkpoint() != null ? RecordType.CHECKPOINT : RecordType.STABILIZED,
+                        entry.path(), entry);
+                writeRecord(out, RecordType.LLM_DONE, entry.path(), entry);
+            }
+        }
+    }
+
+    private static void writeRecord(FileChannel out, RecordType type, Path path, Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeByte(type.ordinal());
+        data.writeUTF(path.toString());
+        if (type == RecordType.STABILIZED || type == RecordType.CHECKPOINT) {
+            data.writeLong(entry.fileSize());
+            data.writeLong(entry.lastModified());
+        }
+        if (type == RecordType.CHECKPOINT) {
+            writeCheckpoint(data, entry.checkpoint());
+        }
+        data.flush();
+
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload.length)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .flip();
+        while (record.hasRemaining()) {
+            out.write(record);
+        }
+    }
+
+    private static void writeCheckpoint(DataOutputStream out, Checkpoint checkpoint) throws IOException {
+        out.writeLong(checkpoint.offset());
+        out.writeInt(checkpoint.lineNumber());
+        out.writeInt(checkpoint.totalLines());
+        out.writeInt(checkpoint.validLines());
+        out.writeBoolean(checkpoint.parsed());
+        out.writeInt(checkpoint.groups().size());
+        for (GroupSnapshot group : checkpoint.groups()) {
+            out.writeUTF(group.msgType());
+            out.writeInt(group.totalLines());
+            out.writeInt(group.samples().size());
+            for (RawFeedLine line : group.samples()) {
+                out.writeInt(line.getLineNumber());
+                writeString(out, line.getContent());
+            }
+        }
+    }
+
+    private static Checkpoint readCheckpoint(DataInputStream in, String fileName) throws IOException {
+        long offset = in.readLong();
+        int lineNumber = in.readInt();
+        int totalLines = in.readInt();
+        int validLines = in.readInt();
+        boolean parsed = in.readBoolean();
+        int groupCount = in.readInt();
+        List<GroupSnapshot> groups = new ArrayList<>(groupCount);
+        for (int i = 0; i < groupCount; i++) {
+            String msgType = in.readUTF();
+            int groupLines = in.readInt();
+            int sampleCount = in.readInt();
+            List<RawFeedLine> samples = new ArrayList<>(sampleCount);
+            for (int j = 0; j < sampleCount; j++) {
+                int sampleLineNumber = in.readInt();
+                samples.add(new RawFeedLine(readString(in), sampleLineNumber, fileName));
+            }
+            groups.add(new GroupSnapshot(msgType, groupLines, samples));
+        }
+        return new Checkpoint(offset, lineNumber, totalLines, validLines, parsed, groups);
+    }
+
+    // Les lignes de feed peuvent dépasser la limite de 64 Ko de writeUTF
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long sizeOf() {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Fermeture du journal d'ingestion impossible: {}", e.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    private static Path key(Path filePath) {
+        return filePath.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Etat journalisé d'un fichier. {@code fileSize} et {@code lastModified} valent -1 avant stabilisation.
+     */
+    public record Entry(Path path, State state, long fileSize, long lastModified, Checkpoint checkpoint) {
+    }
+
+    /**
+     * Point de reprise : offset (début de ligne) et numéro de la dernière ligne lue, compteurs exacts et
+     * échantillons par msg-type à cet instant. {@code parsed} marque la fin de la lecture.
+     */
+    public record Checkpoint(long offset, int lineNumber, int totalLines, int validLines, boolean parsed,
+                             List<GroupSnapshot> groups) {
+
+        public static Checkpoint of(long offset, int lineNumber, Map<String, ParsedFeedGroup> groupsByMsgType,
+                                    int totalLines, int validLines, boolean parsed) {
+            List<GroupSnapshot> groups = new ArrayList<>(groupsByMsgType.size());
+            groupsByMsgType.forEach((msgType, group) ->
+                    groups.add(new GroupSnapshot(msgType, group.getTotalLines(), List.copyOf(group.getLines()))));
+            return new Checkpoint(offset, lineNumber, totalLines, validLines, parsed, groups);
+        }
+
+        /**
+         * Groupes restaurés : échantillons et compteurs exacts, tels que produits par le parsing.
+         */
+        public Map<String, ParsedFeedGroup> toGroups() {
+            Map<String, ParsedFeedGroup> restored = new LinkedHashMap<>();
+            for (GroupSnapshot snapshot : groups) {
+                ParsedFeedGroup group = new ParsedFeedGroup(snapshot.msgType(), new ArrayList<>(snapshot.samples()));
+                group.setTotalLines(snapshot.totalLines());
+                restored.put(snapshot.msgType(), group);
+            }
+            return restored;
+        }
+    }
+
+    public record GroupSnapshot(String msgType, int totalLines, List<RawFeedLine> samples) {
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.chatbotnasoft.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+
+/**
+ * Reconstruit la file d'ingestion au démarrage à partir du {@link IngestionJournal}, sans relire les
+ * répertoires : les fichiers stabilisés ou entamés sont remis en file (ils reprennent à leur dernier point
+ * de reprise), les fichiers seulement détectés repartent en stabilisation et les fichiers suivis en continu
+ * reprennent à leur offset.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IngestionRecoveryService {
+
+    private final IngestionJournal ingestionJournal;
+    private final FileProcessingExecutor fileProcessingExecutor;
+    private final FileStabilizationService stabilizationService;
+    private final TailFollowService tailFollowService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverPendingFiles() {
+        if (!ingestionJournal.isEnabled()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        int queued = 0;
+        int stabilizing = 0;
+        int missing = 0;
+        int followed = 0;
+        for (IngestionJournal.Entry entry : ingestionJournal.getPendingEntries()) {
+            if (!Files.exists(entry.path())) {
+                log.warn("⚠️ Fichier du journal introuvable, abandonné: {}", entry.path());
+                ingestionJournal.recordAbandoned(entry.path());
+                missing++;
+            } else if (tailFollowService.isTailFollowed(entry.path())) {
+                // Suivi en continu : reprise à l'offset journalisé
+                tailFollowService.onAppend(entry.path());
+                followed++;
+            } else if (entry.state() == IngestionJournal.State.DETECTED) {
+                stabilizationService.startStabilization(entry.path());
+                stabilizing++;
+            } else if (fileProcessingExecutor.offer(entry.path())) {
+                queued++;
+            } else {
+                // File pleine : déjà stabilisé, le fichier est libéré dès qu'une place se libère
+                stabilizationService.releaseNow(entry.path());
+                stabilizing++;
+            }
+        }
+
+        if (queued + stabilizing + followed + missing > 0) {
+            log.info("♻️ Reprise depuis le journal en {} ms: {} fichiers remis en file, {} en stabilisation, "
+                            + "{} suivis en continu, {} introuvables",
+                    (System.nanoTime() - start) / 1_000_000, queued, stabilizing, followed, missing);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.dto.AnonymizedLine;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Regroupement de plusieurs msg-types dans une même requête Gemini et découpage de la réponse JSON
+ * (clé = msg-type) en un mapping par msg-type.
+ * <p>
+ * Les tailles sont estimées à ~4 caractères par token ; la taille d'une réponse est estimée à partir
+ * du nombre de champs de la ligne échantillon.
+ */
+@Slf4j
+public final class LLMBatchPlanner {
+
+    static final int CHARS_PER_TOKEN = 4;
+    // Consignes fixes du prompt groupé
+    static final int BATCH_PROMPT_OVERHEAD_TOKENS = 300;
+    static final int OUTPUT_TOKENS_PER_FIELD = 20;
+    static final int OUTPUT_TOKENS_PER_MSG_TYPE = 10;
+
+    private LLMBatchPlanner() {
+    }
+
+    public static int estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    /**
+     * Taille estimée de la réponse pour une ligne : une entrée "Champ N" par champ.
+     */
+    public static int estimateOutputTokens(String anonymizedLine) {
+        int fieldCount = 1;
+        for (int i = 0; i < anonymizedLine.length(); i++) {
+            if (anonymizedLine.charAt(i) == ';') {
+                fieldCount++;
+            }
+        }
+        return OUTPUT_TOKENS_PER_MSG_TYPE + fieldCount * OUTPUT_TOKENS_PER_FIELD;
+    }
+
+    /**
+     * Répartit les msg-types en lots (ordre d'origine conservé) de sorte que chaque lot respecte
+     * le budget de tokens du prompt, celui de la réponse et le nombre maximum de msg-types.
+     * Un msg-type qui dépasse seul un budget forme son propre lot.
+     */
+    public static List<List<String>> planBatches(Map<String, List<AnonymizedLine>> linesByMsgType,
+                                                 int promptTokenBudget, int outputTokenBudget,
+                                                 int maxMsgTypesPerBatch) {
+        List<List<String>> batches = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int promptTokens = BATCH_PROMPT_OVERHEAD_TOKENS;
+        int outputTokens = 0;
+
+        for (Map.Entry<String, List<AnonymizedLine>> entry : linesByMsgType.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                continue;
+            }
+            String sample = entry.getValue().get(0).getAnonymizedLine();
+            int linePromptTokens = estimateTokens(entry.getKey()) + estimateTokens(sample) + 4;
+            int lineOutputTokens = estimateOutputTokens(sample);
+
+            boolean full = current.size() >= Math.max(1, maxMsgTypesPerBatch)
+                    || promptTokens + linePromptTokens > promptTokenBudget
+                    || outputTokens + lineOutputTokens > outputTokenBudget;
+            if (!current.isEmpty() && full) {
+                batches.add(current);
+                current = new ArrayList<>();
+                promptTokens = BATCH_PROMPT_OVERHEAD_TOKENS;
+                outputTokens = 0;
+            }
+
+            current.add(entry.getKey());
+            promptTokens += linePromptTokens;
+            outputTokens += lineOutputTokens;
+        }
+
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+
+    /**
+     * Découpe une réponse groupée {"20": {"Champ 1": "..."}, "21": {...}} en mappings par msg-type.
+     * La lecture est incrémentale : si le JSON est tronqué ou invalide, les msg-types déjà complets
+     * sont conservés et les suivants sont simplement absents du résultat.
+     */
+    public static Map<String, Map<String, String>> splitBatchResponse(ObjectMapper objectMapper, String response) {
+        Map<String, Map<String, String>> mappingsByMsgType = new LinkedHashMap<>();
+        if (response == null) {
+            return mappingsByMsgType;
+        }
+
+        String cleaned = response.replaceAll("```json\\s*", "").replaceAll("```\\s*", "").trim();
+        int jsonStart = cleaned.indexOf('{');
+        if (jsonStart < 0) {
+            return mappingsByMsgType;
+        }
+
+        try (JsonParser parser = objectMapper.createParser(cleaned.substring(jsonStart))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return mappingsByMsgType;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String msgType = parser.currentName().trim();
+                JsonToken valueToken = parser.nextToken();
+                if (valueToken != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    continue;
+                }
+
+                JsonNode node = objectMapper.readTree(parser);
+                Map<String, String> fieldMapping = new LinkedHashMap<>();
+                node.fields().forEachRemaining(field -> fieldMapping.put(field.getKey(), field.getValue().asText()));
+                if (!fieldMapping.isEmpty()) {
+                    mappingsByMsgType.put(msgType, fieldMapping);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ Réponse groupée Gemini incomplète, {} msg-types récupérés: {}",
+                    mappingsByMsgType.size(), e.getMessage());
+        }
+        return mappingsByMsgType;
+    }
+}
@@ -8,14 +8,13 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,40 +22,40 @@ import java.util.stream.Collectors;
 @Slf4j
 public class LLMService {
 
+    private static final String PRIMARY_MODEL = "gemini-2.5-flash";
+    private static final String FALLBACK_MODEL = "gemini-2.0-flash";
+
     private final GeminiProperties geminiProperties;
-    private final RestTemplate restTemplate;
+    private final OutboundHttpClient outboundHttpClient;
     private final ObjectMapper objectMapper;
-    private final ExecutorService executorService = Executors.newFixedThreadPool(5);
+    private final LlmResponseCache llmResponseCache;
+    private final GeminiRateGovernor geminiRateGovernor;
 
     public LLMAnalysisResult analyzeAnonymizedLines(Map<String, List<AnonymizedLine>> linesByMsgType, 
                                                  String sourceFileName) {
         log.info("🤖 Début de l'analyse LLM pour {} msg-types", linesByMsgType.size());
         
         Map<String, List<FieldMapping>> resultsByMsgType = new HashMap<>();
-        List<String> analysisErrors = new ArrayList<>();
+        List<String> analysisErrors = Collections.synchronizedList(new ArrayList<>());
         int totalLinesAnalyzed = 0;
 
-        // Analyser chaque msg-type en parallèle
-        List<CompletableFuture<Void>> futures = linesByMsgType.entrySet().stream()
-                .map(entry -> CompletableFuture.runAsync(() -> {
-                    String msgType = entry.getKey();
-                    List<AnonymizedLine> lines = entry.getValue();
-                    
-                    log.info("🔍 Analyse du msg-type '{}' avec {} lignes", msgType, lines.size());
-                    
-                    List<FieldMapping> mappings = analyzeLinesForMsgType(msgType, lines, analysisErrors);
-                    
-                    synchronized (resultsByMsgType) {
-                        resultsByMsgType.put(msgType, mappings);
-                    }
-                    
-                    log.info("✅ Analyse terminée pour msg-type '{}': {} mappings créés", 
-                            msgType, mappings.size());
-                }, executorService))
-                .collect(Collectors.toList());
+        // Les appels sont cadencés par le régulateur Gemini : aucun thread n'attend une réponse
+        List<CompletableFuture<Void>> futures = geminiProperties.isBatchAnalysisEnabled() && linesByMsgType.size() > 1
+                ? analyzeInBatches(linesByMsgType, resultsByMsgType, analysisErrors)
+                : analyzeEachMsgType(linesByMsgType, resultsByMsgType, analysisErrors);
 
-        // Attendre la fin de toutes les analyses
-        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        // Attendre la fin de toutes les analyses ; une interruption (traitement du fichier annulé)
+        // annule les analyses encore en attente dans le régulateur
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+        try {
+            all.get();
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Analyse LLM interrompue pour " + sourceFileName);
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        }
         
         totalLinesAnalyzed = linesByMsgType.values().stream()
                 .mapToInt(List::size)
@@ -70,50 +69,199 @@ public class LLMService {
         return result;
     }
 
-    private List<FieldMapping> analyzeLinesForMsgType(String msgType, List<AnonymizedLine> lines, 
-                                                   List<String> analysisErrors) {
-        List<FieldMapping> mappings = new ArrayList<>();
-        
+    private List<CompletableFuture<Void>> analyzeEachMsgType(Map<String, List<AnonymizedLine>> linesByMsgType,
+                                                             Map<String, List<FieldMapping>> resultsByMsgType,
+                                                             List<String> analysisErrors) {
+        // Analyser chaque msg-type en parallèle
+        return linesByMsgType.entrySet().stream()
+                .map(entry -> {
+                    String msgType = entry.getKey();
+                    List<AnonymizedLine> lines = entry.getValue();
+                    
+                    log.info("🔍 Analyse du msg-type '{}' avec {} lignes", msgType, lines.size());
+                    
+                    return analyzeLinesForMsgType(msgType, lines, analysisErrors).thenAccept(mappings -> {
+                        synchronized (resultsByMsgType) {
+                            resultsByMsgType.put(msgType, mappings);
+                        }
+
+                        log.info("✅ Analyse terminée pour msg-type '{}': {} mappings créés",
+                                msgType, mappings.size());
+                    });
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Regroupe plusieurs msg-types par requête Gemini (dans la limite du budget de tokens).
+     * Les msg-types absents d'une réponse groupée sont ré-analysés individuellement.
+     */
+    private List<CompletableFuture<Void>> analyzeInBatches(Map<String, List<AnonymizedLine>> linesByMsgType,
+                                                           Map<String, List<FieldMapping>> resultsByMsgType,
+                                                           List<String> analysisErrors) {
+        List<List<String>> batches = LLMBatchPlanner.planBatches(linesByMsgType,
+                geminiProperties.getBatchPromptTokenBudget(), geminiProperties.getMaxTokens(),
+                geminiProperties.getBatchMaxMsgTypes());
+        log.info("📦 {} msg-types regroupés en {} requêtes Gemini", linesByMsgType.size(), batches.size());
+
+        // Msg-types sans ligne : rien à analyser
+        linesByMsgType.forEach((msgType, lines) -> {
+            if (lines.isEmpty()) {
+                resultsByMsgType.put(msgType, new ArrayList<>());
+            }
+        });
+
+        return batches.stream()
+                .map(batch -> analyzeBatch(batch, linesByMsgType, analysisErrors).thenAccept(batchResults -> {
+                    synchronized (resultsByMsgType) {
+                        resultsByMsgType.putAll(batchResults);
+                    }
+                }))
+                .collect(Collectors.toList());
+    }
+
+    private CompletableFuture<Map<String, List<FieldMapping>>> analyzeBatch(List<String> batch,
+                                                                            Map<String, List<AnonymizedLine>> linesByMsgType,
+                                                                            List<String> analysisErrors) {
+        CompletableFuture<Map<String, Map<String, String>>> batchResponse;
+
+        if (batch.size() > 1) {
+            Map<String, String> sampleLineByMsgType = new LinkedHashMap<>();
+            batch.forEach(msgType -> sampleLineByMsgType.put(msgType,
+                    linesByMsgType.get(msgType).get(0).getAnonymizedLine()));
+
+            log.info("🔍 Analyse groupée de {} msg-types: {}", batch.size(), batch);
+            String prompt = buildBatchAnalysisPrompt(sampleLineByMsgType);
+            batchResponse = callGeminiAPI(prompt)
+                    .thenApply(reply -> {
+                        Map<String, Map<String, String>> mappingsByMsgType =
+                                LLMBatchPlanner.splitBatchResponse(objectMapper, reply.text());
+                        if (mappingsByMsgType.keySet().containsAll(batch)) {
+                            cacheReply(prompt, reply);
+                        }
+                        return mappingsByMsgType;
+                    })
+                    .exceptionally(e -> {
+                        log.warn("⚠️ Échec de l'analyse groupée ({} msg-types), repli sur l'analyse unitaire: {}",
+                                batch.size(), e.getMessage());
+                        return Map.of();
+                    });
+        } else {
+            batchResponse = CompletableFuture.completedFuture(Map.of());
+        }
+
+        return batchResponse.thenCompose(mappingsByMsgType -> {
+            Map<String, List<FieldMapping>> results = new HashMap<>();
+            List<CompletableFuture<Void>> fallbacks = new ArrayList<>();
+
+            for (String msgType : batch) {
+                List<AnonymizedLine> lines = linesByMsgType.get(msgType);
+                Map<String, String> fieldMapping = mappingsByMsgType.get(msgType);
+
+                if (fieldMapping != null) {
+                    List<FieldMapping> mappings = buildFieldMappings(msgType, lines, fieldMapping, analysisErrors);
+                    synchronized (results) {
+                        results.put(msgType, mappings);
+                    }
+                    log.info("✅ Analyse terminée pour msg-type '{}': {} mappings créés", msgType, mappings.size());
+                    continue;
+                }
+
+                if (batch.size() > 1) {
+                    log.warn("⚠️ Msg-type '{}' absent de la réponse groupée, analyse individuelle", msgType);
+                }
+                fallbacks.add(analyzeLinesForMsgType(msgType, lines, analysisErrors).thenAccept(mappings -> {
+                    synchronized (results) {
+                        results.put(msgType, mappings);
+                    }
+                    log.info("✅ Analyse terminée pour msg-type '{}': {} mappings créés", msgType, mappings.size());
+                }));
+            }
+
+            return CompletableFuture.allOf(fallbacks.toArray(new CompletableFuture[0])).thenApply(done -> results);
+        });
+    }
+
+    private CompletableFuture<List<FieldMapping>> analyzeLinesForMsgType(String msgType, List<AnonymizedLine> lines,
+                                                                      List<String> analysisErrors) {
         // Analyser la première ligne pour déterminer la structure
         if (lines.isEmpty()) {
-            return mappings;
+            return CompletableFuture.completedFuture(new ArrayList<>());
         }
 
         AnonymizedLine firstLine = lines.get(0);
         String prompt = buildAnalysisPrompt(firstLine.getAnonymizedLine());
-        
-        try {
-            String response = callGeminiAPI(prompt);
-            Map<String, String> fieldMapping = parseGeminiResponse(response);
-            
-            // Appliquer le même mapping à toutes les lignes du même msg-type
-            for (AnonymizedLine line : lines) {
-                FieldMapping mapping = new FieldMapping(
-                        msgType,
-                        new HashMap<>(fieldMapping), // Copie du mapping
-                        line.getOriginalLine(),
-                        line.getAnonymizedLine(),
-                        line.getAnonymizedLine().split(";").length
-                );
-                
-                if (mapping.isValid()) {
-                    mappings.add(mapping);
-                } else {
-                    analysisErrors.add(String.format("Mapping invalide pour msg-type %s, ligne %d", 
-                            msgType, line.getLineNumber()));
-                }
+
+        return callGeminiAPI(prompt)
+                .thenApply(reply -> {
+                    Map<String, String> fieldMapping = parseGeminiResponse(reply.text());
+                    cacheReply(prompt, reply);
+                    return buildFieldMappings(msgType, lines, fieldMapping, analysisErrors);
+                })
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    String error = String.format("Erreur lors de l'analyse du msg-type %s: %s",
+                            msgType, cause.getMessage());
+                    analysisErrors.add(error);
+                    log.error("❌ {}", error, cause);
+                    return new ArrayList<>();
+                });
+    }
+
+    private List<FieldMapping> buildFieldMappings(String msgType, List<AnonymizedLine> lines,
+                                                  Map<String, String> fieldMapping, List<String> analysisErrors) {
+        List<FieldMapping> mappings = new ArrayList<>();
+
+        // Appliquer le même mapping à toutes les lignes du même msg-type
+        for (AnonymizedLine line : lines) {
+            FieldMapping mapping = new FieldMapping(
+                    msgType,
+                    new HashMap<>(fieldMapping), // Copie du mapping
+                    line.getOriginalLine(),
+                    line.getAnonymizedLine(),
+                    FeedLineTokenizer.of(line.getAnonymizedLine()).fieldCountWithoutTrailingEmpty()
+            );
+
+            if (mapping.isValid()) {
+                mappings.add(mapping);
+            } else {
+                analysisErrors.add(String.format("Mapping invalide pour msg-type %s, ligne %d",
+                        msgType, line.getLineNumber()));
             }
-            
-        } catch (Exception e) {
-            String error = String.format("Erreur lors de l'analyse du msg-type %s: %s", 
-                    msgType, e.getMessage());
-            analysisErrors.add(error);
-            log.error("❌ {}", error, e);
         }
-        
         return mappings;
     }
 
+    private String buildBatchAnalysisPrompt(Map<String, String> sampleLineByMsgType) {
+        StringBuilder lines = new StringBuilder();
+        sampleLineByMsgType.forEach((msgType, line) ->
+                lines.append("msg-type \"").append(msgType).append("\" : ").append(line).append("\n"));
+
+        return String.format("""
+                Analyse ces lignes de feed anonymisées (une ligne par msg-type) :
+                %s
+                - Pour chaque msg-type, détecte dynamiquement la signification de chaque champ de sa ligne
+                - **RÉPONSE OBLIGATOIREMENT EN JSON UNIQUEMENT** - Pas de texte avant ou après
+                - Format exact requis : un objet dont les clés sont les msg-types
+                {
+                  "20": {
+                    "Champ 1": "Signification exacte du champ 1",
+                    "Champ 2": "Signification exacte du champ 2"
+                  },
+                  "21": {
+                    "Champ 1": "Signification exacte du champ 1",
+                    "Champ 2": "Signification exacte du champ 2"
+                  }
+                }
+                - **RÈGLES STRICTES** :
+                  1. Une entrée par msg-type listé, la clé est le msg-type exact
+                  2. Chaque valeur doit être entre guillemets ""
+                  3. Pas de virgule après le dernier champ
+                  4. Ne réponds QU'avec le JSON - aucun autre texte
+                  5. Pour chaque msg-type, génère exactement autant de champs que sa ligne en contient
+                """, lines);
+    }
+
     private String buildAnalysisPrompt(String anonymizedLine) {
         return String.format("""
                 Analyse cette ligne de feed anonymisée :
@@ -144,30 +292,49 @@ public class LLMService {
                 """, anonymizedLine);
     }
 
-    private String callGeminiAPI(String prompt) {
+    /**
+     * Réponse de Gemini avec le modèle qui l'a produite : une réponse du modèle de repli est mise en cache
+     * sous ce modèle, jamais sous le modèle principal.
+     */
+    private record GeminiReply(String model, String text, boolean fromCache) {
+    }
+
+    private void cacheReply(String prompt, GeminiReply reply) {
+        if (!reply.fromCache()) {
+            llmResponseCache.put(reply.model(), prompt, reply.text());
+        }
+    }
+
+    private CompletableFuture<GeminiReply> callGeminiAPI(String prompt) {
+        // Même prompt déjà analysé (ré-ingestion, msg-type pas encore validé) : réponse locale
+        Optional<String> cached = llmResponseCache.get(PRIMARY_MODEL, prompt);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(new GeminiReply(PRIMARY_MODEL, cached.get(), true));
+        }
+
         // Utiliser des modèles qui existent vraiment dans l'API v1beta
         String url = String.format("%s/models/%s:generateContent?key=%s", 
-                geminiProperties.getBaseUrl(), "gemini-2.5-flash", geminiProperties.getApiKey());
-        
-        try {
-            return makeApiCall(url, prompt);
-        } catch (Exception e) {
-            log.warn("⚠️ Échec avec gemini-2.5-flash, tentative avec gemini-2.0-flash");
-            
-            // Attendre plus longtemps avant le fallback (gestion du quota)
-            try {
-                Thread.sleep(5000); // Attendre 5 secondes
-            } catch (InterruptedException ie) {
-                Thread.currentThread().interrupt();
-            }
-            
-            String fallbackUrl = String.format("%s/models/%s:generateContent?key=%s", 
-                    geminiProperties.getBaseUrl(), "gemini-2.0-flash", geminiProperties.getApiKey());
-            return makeApiCall(fallbackUrl, prompt);
-        }
+                geminiProperties.getBaseUrl(), PRIMARY_MODEL, geminiProperties.getApiKey());
+
+        // Les 429/503 sont déjà ré-essayés par le régulateur (backoff sans bloquer de thread)
+        return geminiRateGovernor.submitAsync(PRIMARY_MODEL, () -> makeApiCall(url, prompt))
+                .thenApply(text -> new GeminiReply(PRIMARY_MODEL, text, false))
+                .exceptionallyCompose(e -> {
+                    log.warn("⚠️ Échec avec {}, tentative avec {}", PRIMARY_MODEL, FALLBACK_MODEL);
+
+                    Optional<String> fallbackCached = llmResponseCache.get(FALLBACK_MODEL, prompt);
+                    if (fallbackCached.isPresent()) {
+                        return CompletableFuture.completedFuture(new GeminiReply(FALLBACK_MODEL, fallbackCached.get(), true));
+                    }
+
+                    String fallbackUrl = String.format("%s/models/%s:generateContent?key=%s",
+                            geminiProperties.getBaseUrl(), FALLBACK_MODEL, geminiProperties.getApiKey());
+                    return geminiRateGovernor.submitAsync(FALLBACK_MODEL, () -> makeApiCall(fallbackUrl, prompt))
+                            .thenApply(text -> new GeminiReply(FALLBACK_MODEL, text, false));
+                });
     }
     
-    private String makeApiCall(String url, String prompt) {
+    private CompletableFuture<String> makeApiCall(String url, String prompt) {
 
         Map<String, Object> requestBody = Map.of(
                 "contents", List.of(
@@ -181,41 +348,18 @@ public class LLMService {
                 )
         );
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-
-        try {
-            ResponseEntity<Map> response = restTemplate.postForEntity(url, entity, Map.class);
-            
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                return extractTextFromResponse(response.getBody());
-            } else {
-                throw new RuntimeException("Réponse invalide de Gemini: " + response.getStatusCode());
-            }
-            
-        } catch (Exception e) {
-            log.error("Erreur lors de l'appel à Gemini API", e);
-            throw new RuntimeException("Échec de l'appel à Gemini: " + e.getMessage(), e);
-        }
+        // Appel non bloquant ; un statut HTTP en erreur est transmis tel quel au régulateur (429/503 ré-essayés)
+        return outboundHttpClient.post(OutboundHttpClient.Target.GEMINI, url, requestBody)
+                .map(this::extractTextFromResponse)
+                .toFuture();
     }
 
-    private String extractTextFromResponse(Map responseBody) {
-        try {
-            List<Map> candidates = (List<Map>) responseBody.get("candidates");
-            if (candidates != null && !candidates.isEmpty()) {
-                Map candidate = candidates.get(0);
-                Map content = (Map) candidate.get("content");
-                List<Map> parts = (List<Map>) content.get("parts");
-                if (parts != null && !parts.isEmpty()) {
-                    return (String) parts.get(0).get("text");
-                }
-            }
+    private String extractTextFromResponse(JsonNode responseBody) {
+        JsonNode text = responseBody.path("candidates").path(0).path("content").path("parts").path(0).path("text");
+        if (!text.isTextual()) {
             throw new RuntimeException("Format de réponse Gemini invalide");
-        } catch (Exception e) {
-            throw new RuntimeException("Erreur lors de l'extraction du texte de la réponse Gemini", e);
         }
+        return text.asText();
     }
 
     private Map<String, String> parseGeminiResponse(String response) {
@@ -0,0 +1,304 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.config.LlmCacheProperties;
+import com.example.chatbotnasoft.entity.LlmResponseCacheEntry;
+import com.example.chatbotnasoft.repository.LlmResponseCacheRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache des réponses Gemini adressé par contenu : la clé est le SHA-256 du modèle et du prompt anonymisé.
+ * <p>
+ * Les réponses sont persistées dans MongoDB (collection {@code llm_response_cache}) pour survivre aux
+ * redémarrages, avec un LRU mémoire devant pour les relectures fréquentes. Une erreur MongoDB n'empêche
+ * jamais l'appel à Gemini : elle est simplement traitée comme une absence.
+ * <p>
+ * Une lecture ne fait au plus qu'un {@code findById} : les accès (date, nombre de hits) sont cumulés en
+ * mémoire et écrits par lots. Une écriture ne fait qu'un {@code save} : le nombre d'entrées est estimé
+ * localement et le surplus n'est supprimé que lorsqu'il dépasse {@code max-entries}, ou lors de la purge
+ * périodique.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LlmResponseCache {
+
+    private final LlmResponseCacheRepository repository;
+    private final MongoTemplate mongoTemplate;
+    private final LlmCacheProperties properties;
+
+    private final Map<String, MemoryEntry> memory = new LinkedHashMap<>(128, 0.75f, true);
+    // Accès pas encore écrits dans MongoDB (clé -> nombre de hits et dernier accès)
+    private final Map<String, PendingHits> pendingHits = new ConcurrentHashMap<>();
+    // Nombre d'entrées MongoDB, recalculé à chaque nettoyage et incrémenté à chaque écriture
+    private final AtomicLong estimatedEntries = new AtomicLong();
+    private final AtomicBoolean trimming = new AtomicBoolean();
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder persistentHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public Optional<String> get(String model, String prompt) {
+        if (!properties.isEnabled()) {
+            return Optional.empty();
+        }
+
+        String key = key(model, prompt);
+        long now = System.currentTimeMillis();
+
+        synchronized (memory) {
+            MemoryEntry entry = memory.get(key);
+            if (entry != null && now - entry.createdAt() <= properties.getTtlMillis()) {
+                memoryHits.increment();
+                recordHit(key);
+                return Optional.of(entry.response());
+            }
+            if (entry != null) {
+                memory.remove(key);
+            }
+        }
+
+        try {
+            Optional<LlmResponseCacheEntry> stored = repository.findById(key);
+            if (stored.isPresent()) {
+                LlmResponseCacheEntry entry = stored.get();
+                if (entry.getCreatedAt().isBefore(expiryCutoff())) {
+                    repository.deleteById(key);
+                } else {
+                    recordHit(key);
+                    persistentHits.increment();
+                    remember(key, entry.getResponse(),
+                            entry.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+                    log.debug("💾 Réponse Gemini servie depuis le cache ({})", model);
+                    return Optional.of(entry.getResponse());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ Lecture du cache LLM impossible: {}", e.getMessage());
+        }
+
+        misses.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * A appeler uniquement pour une réponse exploitable (JSON parsé avec succès).
+     */
+    public void put(String model, String prompt, String response) {
+        if (!properties.isEnabled() || response == null) {
+            return;
+        }
+
+        String key = key(model, prompt);
+        synchronized (memory) {
+            // Réponse qui vient elle-même du cache : ne pas repousser son expiration
+            MemoryEntry existing = memory.get(key);
+            if (existing != null && existing.response().equals(response)) {
+                return;
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        remember(key, response, System.currentTimeMillis());
+
+        try {
+            repository.save(new LlmResponseCacheEntry(key, model, response, now, now, 0));
+            stores.increment();
+            if (estimatedEntries.incrementAndGet() > properties.getMaxEntries()) {
+                // Marge de 10 % pour ne pas recompter la collection à chaque écriture suivante
+                trimToMaxEntries(properties.getMaxEntries() - properties.getMaxEntries() / 10);
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ Écriture du cache LLM impossible: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${llm-cache.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            flushHits();
+            long deleted = repository.deleteByCreatedAtBefore(expiryCutoff());
+            if (deleted > 0) {
+                evictions.add(deleted);
+                log.info("🧹 {} réponses Gemini expirées supprimées du cache", deleted);
+            }
+            trimToMaxEntries(properties.getMaxEntries());
+        } catch (Exception e) {
+            log.warn("⚠️ Purge du cache LLM impossible: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Écrit les accès cumulés en une seule requête groupée ({@code $inc} du nombre de hits, date du dernier accès).
+     */
+    @Scheduled(fixedDelayString = "${llm-cache.hit-flush-interval-ms:60000}")
+    public void flushHits() {
+        if (pendingHits.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, LlmResponseCacheEntry.class);
+        int updates = 0;
+        for (String key : pendingHits.keySet()) {
+            PendingHits hits = pendingHits.remove(key);
+            if (hits == null) {
+                continue;
+            }
+            bulk.updateOne(Query.query(Criteria.where("_id").is(key)), new Update()
+                    .inc("hitCount", hits.count)
+                    .max("lastAccessedAt", hits.lastAccessedAt));
+            updates++;
+        }
+        if (updates == 0) {
+            return;
+        }
+        try {
+            bulk.execute();
+            log.debug("💾 Accès au cache LLM enregistrés pour {} réponses", updates);
+        } catch (Exception e) {
+            // Statistiques d'usage seulement : un lot perdu ne change que l'ordre d'éviction
+            log.warn("⚠️ Enregistrement des accès au cache LLM impossible: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (properties.isEnabled()) {
+            flushHits();
+        }
+    }
+
+    public void clear() {
+        synchronized (memory) {
+            memory.clear();
+        }
+        pendingHits.clear();
+        repository.deleteAll();
+        estimatedEntries.set(0);
+        log.info("🧹 Cache des réponses Gemini vidé");
+    }
+
+    public Map<String, Object> getStatistics() {
+        long memoryHitCount = memoryHits.sum();
+        long persistentHitCount = persistentHits.sum();
+        long missCount = misses.sum();
+        long lookups = memoryHitCount + persistentHitCount + missCount;
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("memoryHits", memoryHitCount);
+        stats.put("persistentHits", persistentHitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) (memoryHitCount + persistentHitCount) / lookups);
+        stats.put("stores", stores.sum());
+        stats.put("evictions", evictions.sum());
+        synchronized (memory) {
+            stats.put("memoryEntries", memory.size());
+        }
+        stats.put("maxEntries", properties.getMaxEntries());
+        stats.put("ttlHours", properties.getTtlHours());
+        return stats;
+    }
+
+    private LocalDateTime expiryCutoff() {
+        return LocalDateTime.now().minus(Duration.ofMillis(properties.getTtlMillis()));
+    }
+
+    private void remember(String key, String response, long now) {
+        synchronized (memory) {
+            memory.put(key, new MemoryEntry(response, now));
+            while (memory.size() > Math.max(0, properties.getMemoryMaxEntries())) {
+                String eldest = memory.keySet().iterator().next();
+                memory.remove(eldest);
+            }
+        }
+    }
+
+    private void recordHit(String key) {
+        // Mise à jour sous le verrou de l'entrée : un hit ne peut pas tomber entre le remove et la somme de flushHits
+        LocalDateTime now = LocalDateTime.now();
+        pendingHits.compute(key, (k, hits) -> {
+            PendingHits updated = hits != null ? hits : new PendingHits();
+            updated.count++;
+            updated.lastAccessedAt = now;
+            return updated;
+        });
+    }
+
+    /**
+     * Ramène la collection à {@code target} entrées en supprimant les moins récemment utilisées.
+     */
+    private void trimToMaxEntries(long target) {
+        if (!trimming.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // Les accès récents comptent dans l'ordre d'éviction
+            flushHits();
+            long count = repository.count();
+            long overflow = count - Math.max(0, target);
+            if (count > properties.getMaxEntries() && overflow > 0) {
+                List<LlmResponseCacheEntry> oldest = repository.findAllByOrderByLastAccessedAtAsc(
+                        PageRequest.of(0, (int) Math.min(overflow, Integer.MAX_VALUE)));
+                repository.deleteAll(oldest);
+                evictions.add(oldest.size());
+                count -= oldest.size();
+                log.debug("🧹 {} réponses Gemini les moins utilisées supprimées du cache", oldest.size());
+            }
+            estimatedEntries.set(count);
+        } finally {
+            trimming.set(false);
+        }
+    }
+
+    static String key(String model, String prompt) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(prompt.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    private record MemoryEntry(String response, long createdAt) {
+    }
+
+    // Modifié uniquement dans pendingHits.compute, lu après pendingHits.remove
+    private static final class PendingHits {
+        private long count;
+        private LocalDateTime lastAccessedAt;
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.chatbotnasoft.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lecteur FEED basé sur un {@link MappedByteBuffer} : les retours à la ligne sont recherchés directement
+ * sur les octets, sans {@code BufferedReader}.
+ * <p>
+ * Chaque ligne est exposée via une vue réutilisable ({@link LineView}) qui ne connaît que ses bornes ;
+ * elle n'est convertie en {@code String} qu'à la demande. Le découpage en champs est celui de
+ * {@link FeedLineTokenizer}, appliqué une seule fois au parsing.
+ * Le fichier est mappé par fenêtres successives, ce qui permet de lire des fichiers de plus de 2 Go.
+ * Une instance n'est pas thread-safe.
+ */
+public final class MappedFeedReader implements AutoCloseable {
+
+    static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private static final byte NEWLINE = '\n';
+
+    private final FileChannel channel;
+    private final long startOffset;
+    private final long endOffset;
+    private final int windowSize;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int windowLength;
+
+    private long position;
+    private int lineNumber;
+
+    public MappedFeedReader(Path filePath) throws IOException {
+        this(filePath, 0, -1, 0, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Lit la plage [startOffset, endOffset[ du fichier. {@code startOffset} doit être un début de ligne ;
+     * {@code firstLineNumber} est le numéro de la ligne qui précède cette position (0 en début de fichier).
+     * Un {@code endOffset} négatif signifie « jusqu'à la fin du fichier ».
+     */
+    public MappedFeedReader(Path filePath, long startOffset, long endOffset, int firstLineNumber,
+                            int windowSize) throws IOException {
+        this.channel = FileChannel.open(filePath, StandardOpenOption.READ);
+        long fileSize = channel.size();
+        this.startOffset = Math.min(Math.max(0, startOffset), fileSize);
+        this.endOffset = endOffset < 0 ? fileSize : Math.min(endOffset, fileSize);
+        this.windowSize = Math.max(1024, windowSize);
+        this.position = this.startOffset;
+        this.lineNumber = firstLineNumber;
+    }
+
+    /**
+     * Avance sur la ligne suivante (lignes vides comprises) et remplit la vue.
+     *
+     * @return false à la fin de la plage lue
+     */
+    public boolean next(LineView view) throws IOException {
+        if (position >= endOffset) {
+            return false;
+        }
+
+        long lineStart = position;
+        int relativeStart = ensureMapped(lineStart);
+        int relativeEnd = indexOfNewline(relativeStart);
+
+        // Ligne plus longue que la fenêtre : remapper une fenêtre plus large à partir du début de ligne
+        while (relativeEnd < 0 && windowStart + windowLength < endOffset) {
+            remap(lineStart, Math.min((long) windowLength * 2, Integer.MAX_VALUE));
+            relativeStart = 0;
+            relativeEnd = indexOfNewline(relativeStart);
+        }
+
+        int lineEnd = relativeEnd < 0 ? windowLength : relativeEnd;
+        position = windowStart + lineEnd + (relativeEnd < 0 ? 0 : 1);
+        lineNumber++;
+
+        view.reset(window, relativeStart, lineEnd, lineNumber, lineStart, position);
+        return true;
+    }
+
+    /**
+     * Position (en octets) du début de la prochaine ligne à lire.
+     */
+    public long position() {
+        return position;
+    }
+
+    public long endOffset() {
+        return endOffset;
+    }
+
+    public int lineNumber() {
+        return lineNumber;
+    }
+
+    private int ensureMapped(long absolute) throws IOException {
+        if (window == null || absolute < windowStart || absolute >= windowStart + windowLength) {
+            remap(absolute, windowSize);
+        }
+        return (int) (absolute - windowStart);
+    }
+
+    private void remap(long from, long size) throws IOException {
+        long length = Math.min(size, endOffset - from);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+        windowStart = from;
+        windowLength = (int) length;
+    }
+
+    private int indexOfNewline(int from) {
+        for (int i = from; i < windowLength; i++) {
+            if (window.get(i) == NEWLINE) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Découpe le fichier en au plus {@code parts} plages d'octets dont chaque début est un début de ligne.
+     */
+    public static List<ByteRange> splitLineAligned(Path filePath, int parts) throws IOException {
+        List<ByteRange> ranges = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            int count = (int) Math.max(1, Math.min(parts, fileSize));
+            long start = 0;
+            for (int i = 1; i <= count && start < fileSize; i++) {
+                long end = i == count ? fileSize : alignToNextLine(channel, Math.max(start, fileSize * i / count));
+                if (end > start) {
+                    ranges.add(new ByteRange(start, end));
+                    start = end;
+                }
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Nombre de retours à la ligne dans la plage, c'est-à-dire le nombre de lignes qu'elle termine.
+     */
+    public static int countNewlines(Path filePath, ByteRange range) throws IOException {
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            for (long from = range.start(); from < range.end(); from += DEFAULT_WINDOW_SIZE) {
+                long length = Math.min(DEFAULT_WINDOW_SIZE, range.end() - from);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+                for (int i = 0; i < length; i++) {
+                    if (buffer.get(i) == NEWLINE) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private static long alignToNextLine(FileChannel channel, long from) throws IOException {
+        long fileSize = channel.size();
+        ByteBuffer probe = ByteBuffer.allocate(8192);
+        long position = from;
+        while (position < fileSize) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == NEWLINE) {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return fileSize;
+    }
+
+    public record ByteRange(long start, long end) {
+
+        public long length() {
+            return end - start;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    /**
+     * Vue « flyweight » sur une ligne du fichier mappé : bornes de la ligne (sans espaces de début/fin).
+     * La vue est réutilisée d'une ligne à l'autre.
+     */
+    public static final class LineView {
+
+        private MappedByteBuffer buffer;
+        private int start;
+        private int end;
+        private int lineNumber;
+        private long lineOffset;
+        private long nextLineOffset;
+
+        private byte[] scratch = new byte[256];
+
+        private void reset(MappedByteBuffer buffer, int lineStart, int lineEnd, int lineNumber,
+                           long lineOffset, long nextLineOffset) {
+            this.buffer = buffer;
+            this.lineNumber = lineNumber;
+            this.lineOffset = lineOffset;
+            this.nextLineOffset = nextLineOffset;
+
+            // Même règle que String.trim() : tous les octets <= ' ' (le '\r' final compris)
+            int s = lineStart;
+            int e = lineEnd;
+            while (s < e && (buffer.get(s) & 0xFF) <= ' ') {
+                s++;
+            }
+            while (e > s && (buffer.get(e - 1) & 0xFF) <= ' ') {
+                e--;
+            }
+            this.start = s;
+            this.end = e;
+        }
+
+        public boolean isBlank() {
+            return start == end;
+        }
+
+        public int lineNumber() {
+            return lineNumber;
+        }
+
+        /**
+         * Position absolue (octets) du début de la ligne dans le fichier.
+         */
+        public long lineOffset() {
+            return lineOffset;
+        }
+
+        /**
+         * Position absolue (octets) du début de la ligne suivante.
+         */
+        public long nextLineOffset() {
+            return nextLineOffset;
+        }
+
+        /**
+         * Contenu complet de la ligne, sans espaces de début/fin.
+         */
+        public String content() {
+            return decode(start, end);
+        }
+
+        private String decode(int s, int e) {
+            int length = e - s;
+            if (length == 0) {
+                return "";
+            }
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(s, scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
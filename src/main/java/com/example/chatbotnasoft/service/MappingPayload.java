@@ -0,0 +1,95 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.entity.FeedMapping;
+import com.example.chatbotnasoft.entity.MappingStatus;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Format du payload des points vectoriels : le mapping complet et sa version y sont stockés, pour que
+ * les résultats d'une recherche soient exploitables sans relire MongoDB.
+ */
+public final class MappingPayload {
+
+    // A incrémenter quand le contenu du payload change : les points existants sont alors ré-indexés
+    public static final int FORMAT_VERSION = 2;
+
+    private MappingPayload() {
+    }
+
+    public static Map<String, Object> of(FeedMapping mapping) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("mappingId", mapping.getId());
+        payload.put("msgType", mapping.getMsgType());
+        payload.put("fieldCount", mapping.getFieldCount());
+        payload.put("version", mapping.getVersion());
+        payload.put("status", mapping.getStatus() != null ? mapping.getStatus().getLabel() : null);
+        payload.put("mapping", mapping.getMapping() != null ? new LinkedHashMap<>(mapping.getMapping()) : Map.of());
+        // Dates en ISO-8601 : le payload est sérialisé par l'ObjectMapper de l'application (sans module java.time)
+        payload.put("createdAt", mapping.getCreatedAt() != null ? mapping.getCreatedAt().toString() : null);
+        payload.put("updatedAt", mapping.getUpdatedAt() != null ? mapping.getUpdatedAt().toString() : null);
+        return payload;
+    }
+
+    /**
+     * Mapping validé actif correspondant à un résultat de recherche, ou null s'il ne doit pas être utilisé.
+     * <p>
+     * Le payload fait foi, sauf si le cache des mappings connaît déjà une autre version (la version en cache,
+     * plus récente, est alors utilisée) ou si le point a été indexé avant l'ajout du mapping au payload
+     * (relecture à travers le cache). Entre une modification et sa ré-indexation (quelques secondes,
+     * cf. EmbeddingSyncService), un payload non encore remplacé peut être servi.
+     */
+    public static FeedMapping resolve(Map<String, Object> payload, FeedMappingCache feedMappingCache) {
+        Object msgTypeValue = payload.get("msgType");
+        String msgType = msgTypeValue != null ? msgTypeValue.toString() : "";
+        if (msgType.isBlank()) {
+            return null;
+        }
+
+        FeedMapping indexed = fromPayload(msgType, payload);
+        FeedMappingCache.Lookup cached = feedMappingCache.getIfPresent(msgType);
+
+        if (indexed != null && (cached.isMiss() || (cached.status() == FeedMappingCache.Lookup.Status.PRESENT
+                && cached.mapping().getVersion() == indexed.getVersion()))) {
+            return isValidatedActive(indexed) ? indexed : null;
+        }
+
+        FeedMapping current = switch (cached.status()) {
+            case MISS -> feedMappingCache.findActiveByMsgType(msgType);
+            case ABSENT -> null;
+            case PRESENT -> cached.mapping();
+        };
+        return current != null && isValidatedActive(current) ? current : null;
+    }
+
+    private static FeedMapping fromPayload(String msgType, Map<String, Object> payload) {
+        if (!(payload.get("mapping") instanceof Map<?, ?> fields) || !(payload.get("version") instanceof Number version)) {
+            return null;
+        }
+
+        Map<String, String> mapping = new LinkedHashMap<>();
+        fields.forEach((field, meaning) -> mapping.put(String.valueOf(field), meaning != null ? meaning.toString() : null));
+
+        FeedMapping feedMapping = new FeedMapping(msgType, mapping);
+        feedMapping.setId(payload.get("mappingId") != null ? payload.get("mappingId").toString() : null);
+        feedMapping.setVersion(version.intValue());
+        feedMapping.setStatus(statusFromLabel(payload.get("status")));
+        feedMapping.setIsActive(true);
+        return feedMapping;
+    }
+
+    private static MappingStatus statusFromLabel(Object label) {
+        for (MappingStatus status : MappingStatus.values()) {
+            if (status.getLabel().equals(label)) {
+                return status;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isValidatedActive(FeedMapping mapping) {
+        return mapping.getStatus() == MappingStatus.VALIDE && Boolean.TRUE.equals(mapping.getIsActive());
+    }
+}
@@ -3,11 +3,21 @@ package com.example.chatbotnasoft.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
+/**
+ * Anonymisation des textes envoyés à l'embedding, en un seul parcours du texte.
+ * <p>
+ * Les jetons connus et les motifs sont tous délimités par des frontières de mot ({@code \b}) et ne
+ * contiennent que des caractères de mot : ils ne peuvent correspondre qu'à un mot entier. Chaque mot
+ * (suite maximale de lettres, chiffres et '_') est donc examiné une fois, avec la priorité suivante :
+ * <ol>
+ *   <li>jeton connu, casse ignorée (ex: {@code ref} → {@code REFERENCE_X})</li>
+ *   <li>2 à 6 lettres, '_' et au moins 4 chiffres → {@code CODE_X}</li>
+ *   <li>au moins 6 chiffres → {@code NUMERO_X}</li>
+ *   <li>au moins 8 lettres ASCII ou chiffres → {@code ALPHANUM_X}</li>
+ * </ol>
+ */
 @Service
 @Slf4j
 public class NlpAnonymizationService {
@@ -23,43 +33,147 @@ public class NlpAnonymizationService {
             "REF", "REFERENCE_X"
     );
 
-    private static final Map<Pattern, String> PATTERNS = Map.of(
-            Pattern.compile("\\b[A-Z]{2,6}_\\d{4,}\\b", Pattern.CASE_INSENSITIVE), "CODE_X",
-            Pattern.compile("\\b\\d{6,}\\b"), "NUMERO_X",
-            Pattern.compile("\\b[A-Za-z0-9]{8,}\\b"), "ALPHANUM_X"
-    );
+    private static final String CODE_REPLACEMENT = "CODE_X";
+    private static final String NUMBER_REPLACEMENT = "NUMERO_X";
+    private static final String ALPHANUM_REPLACEMENT = "ALPHANUM_X";
+
+    private static final TokenTrie KNOWN_TOKENS = TokenTrie.of(GENERIC_TOKENS);
 
     public String anonymize(String rawNlpText) {
         if (rawNlpText == null || rawNlpText.isBlank()) {
             return rawNlpText;
         }
 
-        String anonymized = rawNlpText;
+        // Le texte n'est recopié qu'à partir du premier remplacement
+        StringBuilder anonymized = null;
+        int copied = 0;
+        int length = rawNlpText.length();
+        int i = 0;
+        while (i < length) {
+            int codePoint = rawNlpText.codePointAt(i);
+            if (!isWordChar(codePoint)) {
+                i += Character.charCount(codePoint);
+                continue;
+            }
+            int start = i;
+            do {
+                i += Character.charCount(codePoint);
+            } while (i < length && isWordChar(codePoint = rawNlpText.codePointAt(i)));
 
-        anonymized = replaceKnownTokens(anonymized);
-        anonymized = replacePatterns(anonymized);
+            String replacement = replacementFor(rawNlpText, start, i);
+            if (replacement != null) {
+                if (anonymized == null) {
+                    anonymized = new StringBuilder(length + 16);
+                }
+                anonymized.append(rawNlpText, copied, start).append(replacement);
+                copied = i;
+            }
+        }
 
-        return anonymized;
+        if (anonymized == null) {
+            return rawNlpText;
+        }
+        return anonymized.append(rawNlpText, copied, length).toString();
     }
 
-    private String replaceKnownTokens(String text) {
-        String result = text;
-        for (Map.Entry<String, String> entry : GENERIC_TOKENS.entrySet()) {
-            String key = entry.getKey();
-            String replacement = entry.getValue();
-            result = result.replaceAll("(?i)\\b" + Pattern.quote(key) + "\\b", replacement);
+    /**
+     * Remplacement du mot {@code text[start, end)}, ou null s'il est conservé.
+     */
+    private static String replacementFor(String text, int start, int end) {
+        String token = KNOWN_TOKENS.match(text, start, end);
+        if (token != null) {
+            return token;
+        }
+
+        boolean digits = true;
+        boolean alphanumeric = true;
+        // Forme LETTRES_CHIFFRES : position du '_' (-1 tant qu'on est dans les lettres)
+        boolean code = true;
+        int underscore = -1;
+        for (int k = start; k < end; k++) {
+            char c = text.charAt(k);
+            boolean digit = c >= '0' && c <= '9';
+            char lower = (char) (c | 0x20);
+            boolean letter = lower >= 'a' && lower <= 'z';
+
+            digits &= digit;
+            alphanumeric &= digit || letter;
+            if (underscore < 0) {
+                if (c == '_' && k - start >= 2) {
+                    underscore = k;
+                } else if (!letter || k - start >= 6) {
+                    code = false;
+                }
+            } else if (!digit) {
+                code = false;
+            }
+        }
+
+        int length = end - start;
+        if (code && underscore >= 0 && end - underscore - 1 >= 4) {
+            return CODE_REPLACEMENT;
         }
-        return result;
+        if (digits && length >= 6) {
+            return NUMBER_REPLACEMENT;
+        }
+        if (alphanumeric && length >= 8) {
+            return ALPHANUM_REPLACEMENT;
+        }
+        return null;
     }
 
-    private String replacePatterns(String text) {
-        String result = text;
-        for (Map.Entry<Pattern, String> entry : PATTERNS.entrySet()) {
-            Pattern pattern = entry.getKey();
-            String replacement = entry.getValue();
-            Matcher matcher = pattern.matcher(result);
-            result = matcher.replaceAll(replacement);
+    /**
+     * Caractère de mot au sens de {@code \b} (lettres et chiffres Unicode, '_').
+     */
+    private static boolean isWordChar(int codePoint) {
+        return codePoint == '_' || Character.isLetterOrDigit(codePoint);
+    }
+
+    /**
+     * Arbre des jetons connus (A-Z et '_', casse ASCII ignorée). Un jeton devant couvrir le mot entier,
+     * le mot est parcouru une seule fois, sans liens d'échec à la Aho-Corasick.
+     */
+    private static final class TokenTrie {
+
+        private final TokenTrie[] children = new TokenTrie[27];
+        private String replacement;
+
+        static TokenTrie of(Map<String, String> tokens) {
+            TokenTrie root = new TokenTrie();
+            tokens.forEach((token, replacement) -> {
+                TokenTrie node = root;
+                for (int i = 0; i < token.length(); i++) {
+                    int index = indexOf(token.charAt(i));
+                    if (index < 0) {
+                        throw new IllegalArgumentException("Jeton non supporté: " + token);
+                    }
+                    if (node.children[index] == null) {
+                        node.children[index] = new TokenTrie();
+                    }
+                    node = node.children[index];
+                }
+                node.replacement = replacement;
+            });
+            return root;
+        }
+
+        String match(String text, int start, int end) {
+            TokenTrie node = this;
+            for (int i = start; i < end && node != null; i++) {
+                int index = indexOf(text.charAt(i));
+                node = index < 0 ? null : node.children[index];
+            }
+            return node != null ? node.replacement : null;
+        }
+
+        private static int indexOf(char c) {
+            if (c >= 'a' && c <= 'z') {
+                return c - 'a';
+            }
+            if (c >= 'A' && c <= 'Z') {
+                return c - 'A';
+            }
+            return c == '_' ? 26 : -1;
         }
-        return result;
     }
 }
@@ -1,10 +1,9 @@
 package com.example.chatbotnasoft.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.util.List;
 import java.util.Map;
@@ -14,7 +13,7 @@ import java.util.Map;
 @Slf4j
 public class OpenAiLlmService {
 
-    private final RestTemplate restTemplate;
+    private final OutboundHttpClient outboundHttpClient;
     // Utilisation d'une clé de démonstration - à remplacer par une vraie clé OpenAI
     private final String apiKey = "sk-demo-key-replace-with-real-key";
     private final String model = "gpt-3.5-turbo";
@@ -34,32 +33,26 @@ public class OpenAiLlmService {
                 "temperature", 0.3
         );
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(apiKey);
-
         try {
-            ResponseEntity<Map> response = restTemplate.postForEntity(url, new HttpEntity<>(request, headers), Map.class);
-            if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
-                log.error("❌ OpenAI: échec génération, status: {}", response.getStatusCode());
+            JsonNode body = outboundHttpClient.post(OutboundHttpClient.Target.OPENAI, url, request,
+                    headers -> headers.setBearerAuth(apiKey)).block();
+            if (body == null || body.isMissingNode()) {
+                log.error("❌ OpenAI: échec génération, réponse vide");
                 return null;
             }
 
-            Map<String, Object> body = response.getBody();
-            if (body.containsKey("error")) {
+            if (body.has("error")) {
                 log.error("❌ OpenAI: erreur API: {}", body.get("error"));
                 return null;
             }
 
-            List<Map<String, Object>> choices = (List<Map<String, Object>>) body.get("choices");
-            if (choices == null || choices.isEmpty()) {
+            JsonNode choices = body.path("choices");
+            if (!choices.isArray() || choices.isEmpty()) {
                 log.error("❌ OpenAI: pas de choix retournés");
                 return null;
             }
 
-            Map<String, Object> choice = choices.get(0);
-            Map<String, Object> message = (Map<String, Object>) choice.get("message");
-            String text = (String) message.get("content");
+            String text = choices.path(0).path("message").path("content").asText(null);
 
             log.info("✅ OpenAI: réponse générée ({} caractères)", text != null ? text.length() : 0);
             return text;
@@ -0,0 +1,155 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.config.HttpClientProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Couche HTTP non bloquante de tous les appels sortants (Gemini, Qdrant, HuggingFace, OpenAI).
+ * <p>
+ * Un seul pool de connexions Reactor Netty est partagé ; chaque service distant a son propre {@link WebClient}
+ * avec ses timeouts de connexion et de réponse, et HTTP/2 (ALPN) quand il est activé. Les requêtes sont
+ * sérialisées avec l'ObjectMapper de l'application et les réponses sont lues directement depuis les buffers
+ * réseau, sans passer par une String intermédiaire.
+ * <p>
+ * Le résultat est publié sur {@link Schedulers#boundedElastic()} : les suites des appelants
+ * ({@code thenApply}, {@code toFuture()}...) font des accès MongoDB bloquants et ne doivent pas s'exécuter
+ * sur les threads d'entrée/sortie Netty partagés par toutes les cibles.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboundHttpClient {
+
+    public enum Target {
+        GEMINI("gemini"),
+        QDRANT("qdrant"),
+        HUGGING_FACE("huggingface"),
+        OPENAI("openai");
+
+        private final String key;
+
+        Target(String key) {
+            this.key = key;
+        }
+    }
+
+    private final HttpClientProperties properties;
+    private final ObjectMapper objectMapper;
+
+    private final Map<Target, WebClient> clients = new EnumMap<>(Target.class);
+    private ConnectionProvider connectionProvider;
+
+    @PostConstruct
+    public void initialize() {
+        connectionProvider = ConnectionProvider.builder("outbound")
+                .maxConnections(properties.getMaxConnections())
+                .pendingAcquireMaxCount(properties.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(Duration.ofMillis(properties.getPendingAcquireTimeoutMs()))
+                .maxIdleTime(Duration.ofMillis(properties.getMaxIdleTimeMs()))
+                .maxLifeTime(Duration.ofMillis(properties.getMaxLifeTimeMs()))
+                .evictInBackground(Duration.ofSeconds(30))
+                .build();
+
+        for (Target target : Target.values()) {
+            clients.put(target, createClient(properties.endpointFor(target.key)));
+        }
+        log.info("🌐 Client HTTP sortant initialisé (pool de {} connexions)", properties.getMaxConnections());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (connectionProvider != null) {
+            connectionProvider.dispose();
+        }
+    }
+
+    public Mono<JsonNode> post(Target target, String url, Object body) {
+        return exchange(target, HttpMethod.POST, url, body, headers -> {
+        });
+    }
+
+    public Mono<JsonNode> post(Target target, String url, Object body, Consumer<HttpHeaders> headers) {
+        return exchange(target, HttpMethod.POST, url, body, headers);
+    }
+
+    /**
+     * Envoie la requête et retourne le corps JSON de la réponse ({@link MissingNode} si vide).
+     * Un statut 4xx/5xx termine le Mono par une {@code WebClientResponseException}.
+     */
+    public Mono<JsonNode> exchange(Target target, HttpMethod method, String url, Object body, Consumer<HttpHeaders> headers) {
+        WebClient.RequestBodySpec request = clients.get(target)
+                .method(method)
+                .uri(url)
+                .accept(MediaType.APPLICATION_JSON)
+                .headers(headers);
+
+        WebClient.RequestHeadersSpec<?> spec = request;
+        if (body != null) {
+            try {
+                spec = request.contentType(MediaType.APPLICATION_JSON).bodyValue(objectMapper.writeValueAsBytes(body));
+            } catch (JsonProcessingException e) {
+                return Mono.error(new IllegalArgumentException("Corps de requête non sérialisable: " + e.getMessage(), e));
+            }
+        }
+
+        return spec.retrieve()
+                .bodyToFlux(DataBuffer.class)
+                .as(buffers -> DataBufferUtils.join(buffers, properties.getMaxInMemorySizeBytes()))
+                .map(this::readTree)
+                .defaultIfEmpty(MissingNode.getInstance())
+                .publishOn(Schedulers.boundedElastic());
+    }
+
+    private JsonNode readTree(DataBuffer buffer) {
+        try (InputStream in = buffer.asInputStream()) {
+            JsonNode node = objectMapper.readTree(in);
+            return node != null ? node : MissingNode.getInstance();
+        } catch (IOException e) {
+            throw new IllegalStateException("Réponse JSON illisible: " + e.getMessage(), e);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    private WebClient createClient(HttpClientProperties.Endpoint endpoint) {
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) endpoint.getConnectTimeoutMs())
+                .responseTimeout(Duration.ofMillis(endpoint.getReadTimeoutMs()))
+                .compress(true);
+        if (endpoint.isHttp2()) {
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11).secure();
+        }
+
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.config.IngestionProperties;
+import com.example.chatbotnasoft.dto.ParsingResult;
+import com.example.chatbotnasoft.dto.RawFeedLine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Parsing parallèle d'un fichier FEED : le fichier est découpé en plages d'octets alignées sur les lignes,
+ * chaque plage est parsée par un worker fork-join avec ses propres groupes, puis les résultats partiels
+ * sont fusionnés dans l'ordre du fichier (numéros de ligne et statistiques identiques au parsing séquentiel).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ParallelFeedParsingService {
+
+    // Plusieurs plages par worker pour équilibrer la charge
+    private static final int RANGES_PER_WORKER = 4;
+    private static final long MIN_RANGE_BYTES = 4L * 1024 * 1024;
+
+    private final FeedParsingService feedParsingService;
+    private final IngestionProperties ingestionProperties;
+    private ForkJoinPool parsingPool;
+
+    @PostConstruct
+    public void initializePool() {
+        parsingPool = new ForkJoinPool(ingestionProperties.getEffectiveParallelism());
+        log.info("🧵 Pool de parsing parallèle initialisé ({} workers)", parsingPool.getParallelism());
+    }
+
+    @PreDestroy
+    public void shutdownPool() {
+        if (parsingPool != null) {
+            parsingPool.shutdown();
+        }
+    }
+
+    public boolean shouldParseInParallel(Path filePath) {
+        if (!ingestionProperties.isParallelParsingEnabled() || ingestionProperties.getEffectiveParallelism() < 2) {
+            return false;
+        }
+        // Un flux compressé ne se découpe pas en plages d'octets
+        if (FeedCompression.isCompressed(filePath)) {
+            return false;
+        }
+        try {
+            return Files.size(filePath) >= ingestionProperties.getParallelThresholdBytes();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Parse le fichier en parallèle en ne conservant que {@code sampleLinesPerMsgType} lignes par msg-type
+     * (les compteurs restent exacts). Passer {@link Integer#MAX_VALUE} pour conserver toutes les lignes.
+     */
+    public ParsingResult parseFile(Path filePath, int sampleLinesPerMsgType) throws IOException {
+        long fileSize = Files.size(filePath);
+        int rangeCount = (int) Math.max(1,
+                Math.min((long) parsingPool.getParallelism() * RANGES_PER_WORKER, fileSize / MIN_RANGE_BYTES));
+        return parseFile(filePath, sampleLinesPerMsgType, rangeCount);
+    }
+
+    public ParsingResult parseFile(Path filePath, int sampleLinesPerMsgType, int rangeCount) throws IOException {
+        String fileName = filePath.getFileName().toString();
+        long fileSize = Files.size(filePath);
+        int workers = parsingPool.getParallelism();
+
+        List<MappedFeedReader.ByteRange> ranges = MappedFeedReader.splitLineAligned(filePath, rangeCount);
+        log.info("⚡ Parsing parallèle de {} ({} octets) en {} plages sur {} workers",
+                fileName, fileSize, ranges.size(), workers);
+
+        // 1ère passe : nombre de lignes de chaque plage, pour connaître le numéro de la première ligne
+        List<CompletableFuture<Integer>> newlineCounts = ranges.stream()
+                .map(range -> CompletableFuture.supplyAsync(() -> countNewlines(filePath, range), parsingPool))
+                .toList();
+
+        List<CompletableFuture<FeedParsingService.StreamingParseState>> partials = new ArrayList<>();
+        int linesBefore = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            MappedFeedReader.ByteRange range = ranges.get(i);
+            int firstLineNumber = linesBefore;
+            partials.add(CompletableFuture.supplyAsync(
+                    () -> parseRange(filePath, fileName, range, firstLineNumber, sampleLinesPerMsgType), parsingPool));
+            linesBefore += join(newlineCounts.get(i));
+        }
+
+        // Fusion dans l'ordre des plages
+        FeedParsingService.StreamingParseState merged = feedParsingService.startStreaming(
+                sampleLinesPerMsgType, ingestionProperties.getMaxRetainedErrors());
+        for (CompletableFuture<FeedParsingService.StreamingParseState> partial : partials) {
+            merged.mergeFrom(join(partial));
+        }
+
+        return feedParsingService.finishStreaming(merged);
+    }
+
+    private FeedParsingService.StreamingParseState parseRange(Path filePath, String fileName,
+                                                             MappedFeedReader.ByteRange range, int firstLineNumber,
+                                                             int sampleLinesPerMsgType) {
+        FeedParsingService.StreamingParseState state = feedParsingService.startStreaming(
+                sampleLinesPerMsgType, ingestionProperties.getMaxRetainedErrors());
+        int chunkSize = Math.max(1, ingestionProperties.getChunkSize());
+        List<RawFeedLine> chunk = new ArrayList<>(chunkSize);
+
+        try (MappedFeedReader reader = new MappedFeedReader(filePath, range.start(), range.end(), firstLineNumber,
+                MappedFeedReader.DEFAULT_WINDOW_SIZE)) {
+            MappedFeedReader.LineView view = new MappedFeedReader.LineView();
+            while (reader.next(view)) {
+                if (view.isBlank()) {
+                    continue;
+                }
+                chunk.add(new RawFeedLine(view.content(), view.lineNumber(), fileName));
+                if (chunk.size() >= chunkSize) {
+                    feedParsingService.parseChunk(chunk, state);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (!chunk.isEmpty()) {
+            feedParsingService.parseChunk(chunk, state);
+        }
+        log.debug("✅ Plage [{}, {}[ parsée: {} lignes", range.start(), range.end(), state.getTotalLines());
+        return state;
+    }
+
+    private int countNewlines(Path filePath, MappedFeedReader.ByteRange range) {
+        try {
+            return MappedFeedReader.countNewlines(filePath, range);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T> T join(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -1,30 +1,32 @@
 package com.example.chatbotnasoft.service;
 
 import com.example.chatbotnasoft.config.QdrantProperties;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
-public class QdrantClient {
+public class QdrantClient implements VectorStore {
+
+    private static final TypeReference<Map<String, Object>> PAYLOAD_TYPE = new TypeReference<>() {
+    };
 
     private final QdrantProperties qdrantProperties;
-    private final RestTemplate restTemplate;
+    private final OutboundHttpClient outboundHttpClient;
     private final ObjectMapper objectMapper;
 
+    @Override
     public void ensureCollectionExists(int vectorSize) {
         String collection = qdrantProperties.getCollection();
         String url = qdrantProperties.getUrl();
@@ -43,9 +45,9 @@ public class QdrantClient {
     public boolean collectionExists(String collection) {
         try {
             String endpoint = qdrantProperties.getUrl() + "/collections/" + collection;
-            ResponseEntity<String> response = restTemplate.getForEntity(endpoint, String.class);
-            return response.getStatusCode().is2xxSuccessful();
-        } catch (HttpClientErrorException.NotFound e) {
+            call(HttpMethod.GET, endpoint, null);
+            return true;
+        } catch (WebClientResponseException.NotFound e) {
             return false;
         } catch (Exception e) {
             log.warn("⚠️ Qdrant: erreur lors de la vérification de collection {}: {}", collection, e.getMessage());
@@ -63,17 +65,15 @@ public class QdrantClient {
                 )
         );
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-
         try {
-            restTemplate.put(endpoint, new HttpEntity<>(body, headers));
+            call(HttpMethod.PUT, endpoint, body);
             log.info("✅ Qdrant: collection '{}' créée (size={}, distance={})", collection, vectorSize, qdrantProperties.getDistance());
         } catch (Exception e) {
             throw new RuntimeException("Qdrant: échec création collection: " + e.getMessage(), e);
         }
     }
 
+    @Override
     public void upsertPoints(List<Map<String, Object>> points) {
         if (points == null || points.isEmpty()) {
             return;
@@ -83,16 +83,30 @@ public class QdrantClient {
 
         Map<String, Object> body = Map.of("points", points);
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-
         try {
-            restTemplate.put(endpoint, new HttpEntity<>(body, headers));
+            call(HttpMethod.PUT, endpoint, body);
         } catch (Exception e) {
             throw new RuntimeException("Qdrant: échec upsert points: " + e.getMessage(), e);
         }
     }
 
+    @Override
+    public void deletePoints(List<String> pointIds) {
+        if (pointIds == null || pointIds.isEmpty()) {
+            return;
+        }
+
+        String endpoint = qdrantProperties.getUrl() + "/collections/" + qdrantProperties.getCollection() + "/points/delete?wait=true";
+
+        Map<String, Object> body = Map.of("points", pointIds);
+
+        try {
+            call(HttpMethod.POST, endpoint, body);
+        } catch (Exception e) {
+            throw new RuntimeException("Qdrant: échec suppression points: " + e.getMessage(), e);
+        }
+    }
+
     public JsonNode scroll(int limit) {
         String endpoint = qdrantProperties.getUrl() + "/collections/" + qdrantProperties.getCollection() + "/points/scroll";
 
@@ -102,22 +116,16 @@ public class QdrantClient {
                 "with_vector", false
         );
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-
         try {
-            ResponseEntity<String> response = restTemplate.postForEntity(endpoint, new HttpEntity<>(body, headers), String.class);
-            if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
-                return null;
-            }
-            return objectMapper.readTree(response.getBody());
+            return call(HttpMethod.POST, endpoint, body);
         } catch (Exception e) {
             log.error("❌ Qdrant: échec scroll: {}", e.getMessage());
             return null;
         }
     }
 
-    public String search(List<Double> queryVector, int limit) {
+    @Override
+    public List<SearchHit> search(List<Double> queryVector, int limit) {
         String endpoint = qdrantProperties.getUrl() + "/collections/" + qdrantProperties.getCollection() + "/points/search";
 
         Map<String, Object> request = Map.of(
@@ -127,18 +135,18 @@ public class QdrantClient {
                 "with_vector", false
         );
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-
         try {
-            ResponseEntity<String> response = restTemplate.postForEntity(endpoint, new HttpEntity<>(request, headers), String.class);
-            if (!response.getStatusCode().is2xxSuccessful()) {
-                return null;
+            JsonNode result = call(HttpMethod.POST, endpoint, request).path("result");
+            List<SearchHit> hits = new ArrayList<>();
+            for (JsonNode hit : result) {
+                Map<String, Object> payload = objectMapper.convertValue(hit.path("payload"), PAYLOAD_TYPE);
+                hits.add(new SearchHit(hit.path("id").asText(), hit.path("score").asDouble(),
+                        payload != null ? payload : Map.of()));
             }
-            return response.getBody();
+            return hits;
         } catch (Exception e) {
             log.error("❌ Qdrant: échec search: {}", e.getMessage());
-            return null;
+            return List.of();
         }
     }
 
@@ -151,18 +159,20 @@ public class QdrantClient {
                 "with_vector", false
         );
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-
         try {
-            ResponseEntity<String> response = restTemplate.postForEntity(endpoint, new HttpEntity<>(body, headers), String.class);
-            if (!response.getStatusCode().is2xxSuccessful()) {
-                return null;
-            }
-            return response.getBody();
+            return call(HttpMethod.POST, endpoint, body).toString();
         } catch (Exception e) {
             log.error("❌ Qdrant: échec scrollRaw: {}", e.getMessage());
             return null;
         }
     }
+
+    /**
+     * Les appelants de Qdrant sont synchrones : le thread appelant attend la réponse, le timeout
+     * de réponse est celui de {@code http-client.endpoints.qdrant}.
+     */
+    private JsonNode call(HttpMethod method, String endpoint, Object body) {
+        return outboundHttpClient.exchange(OutboundHttpClient.Target.QDRANT, method, endpoint, body, headers -> {
+        }).block();
+    }
 }
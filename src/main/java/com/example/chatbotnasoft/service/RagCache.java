@@ -0,0 +1,198 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.config.RagCacheProperties;
+import com.example.chatbotnasoft.dto.FeedMappingChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Cache à deux niveaux de {@link RagService#ask}.
+ * <ul>
+ *     <li>Niveau 1 : question normalisée → embedding (évite l'appel Gemini d'embedding).</li>
+ *     <li>Niveau 2 : question normalisée + msgType@version des contextes trouvés → réponse finale
+ *     (évite l'appel au LLM). Une nouvelle version de mapping change la clé ; les entrées qui
+ *     référencent un mapping modifié sont en plus supprimées à la réception du {@link FeedMappingChangedEvent}.</li>
+ * </ul>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RagCache {
+
+    private final RagCacheProperties properties;
+
+    private final Map<String, List<Double>> embeddings = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, AnswerEntry> answers = new LinkedHashMap<>(128, 0.75f, true);
+
+    private final LongAdder embeddingHits = new LongAdder();
+    private final LongAdder embeddingMisses = new LongAdder();
+    private final LongAdder answerHits = new LongAdder();
+    private final LongAdder answerMisses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder savedTimeMs = new LongAdder();
+
+    // Temps cumulé des embeddings réellement calculés, pour estimer le temps gagné par un hit
+    private final LongAdder embeddingTimeMs = new LongAdder();
+
+    public static String normalize(String question) {
+        return question == null ? "" : question.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    public Optional<List<Double>> getEmbedding(String normalizedQuestion) {
+        if (!properties.isEnabled()) {
+            return Optional.empty();
+        }
+        List<Double> vector;
+        synchronized (embeddings) {
+            vector = embeddings.get(normalizedQuestion);
+        }
+        if (vector == null) {
+            embeddingMisses.increment();
+            return Optional.empty();
+        }
+        embeddingHits.increment();
+        savedTimeMs.add(averageEmbeddingTimeMs());
+        return Optional.of(vector);
+    }
+
+    public void putEmbedding(String normalizedQuestion, List<Double> vector, long elapsedMs) {
+        embeddingTimeMs.add(elapsedMs);
+        if (!properties.isEnabled() || vector == null || vector.isEmpty()) {
+            return;
+        }
+        synchronized (embeddings) {
+            embeddings.put(normalizedQuestion, List.copyOf(vector));
+            trim(embeddings, properties.getEmbeddingMaxEntries());
+        }
+    }
+
+    public String answerKey(String normalizedQuestion, List<RagService.RagContext> contexts) {
+        StringBuilder key = new StringBuilder(normalizedQuestion);
+        for (RagService.RagContext context : contexts) {
+            key.append('|').append(context.msgType()).append('@').append(context.version());
+        }
+        return key.toString();
+    }
+
+    public Optional<AnswerEntry> getAnswer(String key) {
+        if (!properties.isEnabled()) {
+            return Optional.empty();
+        }
+        AnswerEntry entry;
+        synchronized (answers) {
+            entry = answers.get(key);
+        }
+        if (entry == null) {
+            answerMisses.increment();
+            return Optional.empty();
+        }
+        answerHits.increment();
+        savedTimeMs.add(entry.llmTimeMs());
+        return Optional.of(entry);
+    }
+
+    /**
+     * A appeler uniquement pour une réponse validée (seuil de confiance et cohérence).
+     */
+    public void putAnswer(String key, RagService.RagResponse response, long llmTimeMs) {
+        if (!properties.isEnabled() || response == null || !response.success()) {
+            return;
+        }
+        Set<String> msgTypes = response.contexts().stream()
+                .map(RagService.RagContext::msgType)
+                .collect(Collectors.toUnmodifiableSet());
+        synchronized (answers) {
+            answers.put(key, new AnswerEntry(response, msgTypes, llmTimeMs));
+            trim(answers, properties.getAnswerMaxEntries());
+        }
+    }
+
+    @EventListener
+    public void onMappingChanged(FeedMappingChangedEvent event) {
+        if (event.msgType() == null) {
+            return;
+        }
+        int removed = 0;
+        synchronized (answers) {
+            var iterator = answers.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().msgTypes().contains(event.msgType())) {
+                    iterator.remove();
+                    removed++;
+                }
+            }
+        }
+        if (removed > 0) {
+            invalidations.add(removed);
+            log.debug("🧹 {} réponses RAG invalidées (msgType {} modifié)", removed, event.msgType());
+        }
+    }
+
+    public void clear() {
+        synchronized (embeddings) {
+            embeddings.clear();
+        }
+        synchronized (answers) {
+            answers.clear();
+        }
+        log.info("🧹 Cache RAG vidé");
+    }
+
+    public RagService.RagCacheMetrics metrics(boolean embeddingHit, boolean answerHit, long savedMs) {
+        return new RagService.RagCacheMetrics(embeddingHit, answerHit, savedMs,
+                hitRate(embeddingHits.sum(), embeddingMisses.sum()),
+                hitRate(answerHits.sum(), answerMisses.sum()),
+                savedTimeMs.sum());
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("embeddingHits", embeddingHits.sum());
+        stats.put("embeddingMisses", embeddingMisses.sum());
+        stats.put("embeddingHitRate", hitRate(embeddingHits.sum(), embeddingMisses.sum()));
+        stats.put("answerHits", answerHits.sum());
+        stats.put("answerMisses", answerMisses.sum());
+        stats.put("answerHitRate", hitRate(answerHits.sum(), answerMisses.sum()));
+        stats.put("invalidations", invalidations.sum());
+        stats.put("savedTimeMs", savedTimeMs.sum());
+        synchronized (embeddings) {
+            stats.put("embeddingEntries", embeddings.size());
+        }
+        synchronized (answers) {
+            stats.put("answerEntries", answers.size());
+        }
+        return stats;
+    }
+
+    long averageEmbeddingTimeMs() {
+        long computed = embeddingMisses.sum();
+        return computed == 0 ? 0 : embeddingTimeMs.sum() / computed;
+    }
+
+    private static double hitRate(long hits, long misses) {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    private static void trim(Map<String, ?> lru, int maxEntries) {
+        while (lru.size() > Math.max(0, maxEntries)) {
+            lru.remove(lru.keySet().iterator().next());
+        }
+    }
+
+    public record AnswerEntry(RagService.RagResponse response, Set<String> msgTypes, long llmTimeMs) {
+    }
+}
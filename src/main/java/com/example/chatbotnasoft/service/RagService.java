@@ -1,9 +1,7 @@
 package com.example.chatbotnasoft.service;
 
 import com.example.chatbotnasoft.entity.FeedMapping;
-import com.example.chatbotnasoft.repository.FeedMappingRepository;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.chatbotnasoft.entity.MappingStatus;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -12,46 +10,81 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class RagService {
 
+    private static final Pattern MSG_TYPE_PATTERN = Pattern.compile("msgType\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern FIELD_PATTERN = Pattern.compile("champ\\s*(\\d+)", Pattern.CASE_INSENSITIVE);
+
     private final GeminiEmbeddingService geminiEmbeddingService;
-    private final QdrantClient qdrantClient;
+    private final VectorStore vectorStore;
     private final SimpleLlmService simpleLlmService;
-    private final FeedMappingRepository feedMappingRepository;
-    private final ObjectMapper objectMapper;
+    private final FeedMappingCache feedMappingCache;
+    private final RagCache ragCache;
 
     public RagResponse ask(String question, int limit) {
         long startTime = System.currentTimeMillis();
 
-        // 1. Embedding de la question
+        // 0. Chemin direct : msgType et champ nommés dans la question, la réponse est dans le mapping
+        RagResponse directResponse = answerFromMapping(question, startTime);
+        if (directResponse != null) {
+            return directResponse;
+        }
+
+        // 1. Embedding de la question (cache niveau 1)
         long embeddingStart = System.currentTimeMillis();
-        List<Double> queryVector = geminiEmbeddingService.embed(question);
+        String normalizedQuestion = RagCache.normalize(question);
+        List<Double> queryVector = ragCache.getEmbedding(normalizedQuestion).orElse(null);
+        boolean embeddingCacheHit = queryVector != null;
+        long savedTime = embeddingCacheHit ? ragCache.averageEmbeddingTimeMs() : 0;
+        if (!embeddingCacheHit) {
+            queryVector = geminiEmbeddingService.embed(question);
+            ragCache.putEmbedding(normalizedQuestion, queryVector, System.currentTimeMillis() - embeddingStart);
+        }
         long embeddingTime = System.currentTimeMillis() - embeddingStart;
 
         if (queryVector == null || queryVector.isEmpty()) {
             return RagResponse.error("Impossible de générer l'embedding de la question");
         }
 
-        // 2. Recherche dans Qdrant
+        // 2. Recherche vectorielle (Qdrant ou index mémoire)
         long searchStart = System.currentTimeMillis();
-        String searchResult = qdrantClient.search(queryVector, limit);
+        List<VectorStore.SearchHit> hits = vectorStore.search(queryVector, limit);
         long searchTime = System.currentTimeMillis() - searchStart;
 
-        if (searchResult == null || searchResult.isBlank()) {
+        if (hits == null) {
             return RagResponse.error("Aucun document pertinent trouvé");
         }
 
         // 3. Extraction des mappings
-        List<RagContext> contexts = extractContexts(searchResult);
+        List<RagContext> contexts = extractContexts(hits);
         if (contexts.isEmpty()) {
             logError("MESSAGE_INCONNU", "Aucun mapping trouvé dans Qdrant", Map.of("question", question));
             return RagResponse.error("Désolé, je n'ai pas d'information sur ce message.");
         }
 
+        // Cache niveau 2 : même question, mêmes mappings dans les mêmes versions
+        String answerKey = ragCache.answerKey(normalizedQuestion, contexts);
+        var cachedAnswer = ragCache.getAnswer(answerKey);
+        if (cachedAnswer.isPresent()) {
+            RagResponse cached = cachedAnswer.get().response();
+            savedTime += cachedAnswer.get().llmTimeMs();
+            long totalTime = System.currentTimeMillis() - startTime;
+            return RagResponse.success(
+                    question,
+                    cached.answer(),
+                    cached.contexts(),
+                    RagMetadata.of(embeddingTime, searchTime, 0, totalTime,
+                            validatePerformance(embeddingTime, searchTime, 0, totalTime),
+                            ragCache.metrics(embeddingCacheHit, true, savedTime))
+            );
+        }
+
         // 4. Validation du msgType principal
         RagValidation validation = validateMsgType(question, contexts);
         if (!validation.valid()) {
@@ -94,12 +127,56 @@ public class RagService {
             log.warn("⚠️ Performance alert: {}", perfValidation.getWarnings());
         }
 
-        return RagResponse.success(
+        RagResponse response = RagResponse.success(
                 question,
                 answer.trim(),
                 validation.getAllContexts(),
-                RagMetadata.of(embeddingTime, searchTime, llmTime, finalTotalTime, perfValidation)
+                RagMetadata.of(embeddingTime, searchTime, llmTime, finalTotalTime, perfValidation,
+                        ragCache.metrics(embeddingCacheHit, false, savedTime))
         );
+        ragCache.putAnswer(answerKey, response, llmTime);
+        return response;
+    }
+
+    /**
+     * Réponse déterministe sans embedding, recherche vectorielle ni LLM. Retourne null si la question
+     * ne nomme pas à la fois un msgType et un champ connus d'un mapping validé actif : le chemin
+     * vectoriel prend alors le relais.
+     */
+    private RagResponse answerFromMapping(String question, long startTime) {
+        String msgType = extractMsgTypeFromQuestion(question);
+        String fieldNumber = extractFieldFromQuestion(question);
+        if (msgType == null || fieldNumber == null) {
+            return null;
+        }
+
+        long lookupStart = System.nanoTime();
+        FeedMapping mapping = feedMappingCache.findActiveByMsgType(msgType);
+        if (mapping == null || mapping.getStatus() != MappingStatus.VALIDE || mapping.getMapping() == null) {
+            return null;
+        }
+
+        String fieldName = "Champ " + fieldNumber;
+        String meaning = null;
+        for (Map.Entry<String, String> entry : mapping.getMapping().entrySet()) {
+            if (entry.getKey().trim().replaceAll("\\s+", " ").equalsIgnoreCase(fieldName)) {
+                fieldName = entry.getKey();
+                meaning = entry.getValue();
+                break;
+            }
+        }
+        if (meaning == null || meaning.isBlank()) {
+            return null;
+        }
+        // En microsecondes : la lecture en cache prend bien moins d'une milliseconde
+        long lookupTimeMicros = (System.nanoTime() - lookupStart) / 1_000;
+
+        String answer = String.format("Le %s du msgType %s correspond à : %s.", fieldName, mapping.getMsgType(), meaning.trim());
+        RagContext context = new RagContext(mapping.getId(), mapping.getMsgType(), 1.0, mapping.getMapping(), mapping.getVersion());
+        long totalTime = System.currentTimeMillis() - startTime;
+
+        log.info("⚡ Réponse directe depuis le mapping (msgType {}, {}) en {}ms", mapping.getMsgType(), fieldName, totalTime);
+        return RagResponse.success(question, answer, List.of(context), RagMetadata.direct(lookupTimeMicros, totalTime));
     }
 
     private RagPerformanceValidation validatePerformance(long embeddingTime, long searchTime, long llmTime, long totalTime) {
@@ -145,28 +222,19 @@ public class RagService {
         return true;
     }
 
-    private List<RagContext> extractContexts(String searchResult) {
+    private List<RagContext> extractContexts(List<VectorStore.SearchHit> hits) {
         List<RagContext> contexts = new ArrayList<>();
         try {
-            JsonNode root = objectMapper.readTree(searchResult);
-            JsonNode points = root.path("result");
-            for (JsonNode point : points) {
-                JsonNode payload = point.path("payload");
-                String msgType = payload.path("msgType").asText();
-                if (msgType.isBlank()) continue;
-
-                // Vérifier que le document est Validé
-                String status = payload.path("status").asText();
-                if (!"Validé".equals(status)) continue;
-
-                FeedMapping mapping = feedMappingRepository.findByMsgTypeAndIsActive(msgType, true);
+            for (VectorStore.SearchHit hit : hits) {
+                // Mapping et version lus dans le payload du point : pas d'aller-retour MongoDB par résultat
+                FeedMapping mapping = MappingPayload.resolve(hit.payload(), feedMappingCache);
                 if (mapping != null) {
-                    double score = point.path("score").asDouble();
                     contexts.add(new RagContext(
-                            point.path("id").asText(),
-                            msgType,
-                            score,
-                            mapping.getMapping()
+                            hit.id(),
+                            mapping.getMsgType(),
+                            hit.score(),
+                            mapping.getMapping(),
+                            mapping.getVersion()
                     ));
                 }
             }
@@ -210,8 +278,13 @@ public class RagService {
 
     private String extractMsgTypeFromQuestion(String question) {
         // Pattern pour trouver "msgType X" dans la question
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("msgType\\s+(\\w+)", java.util.regex.Pattern.CASE_INSENSITIVE);
-        java.util.regex.Matcher matcher = pattern.matcher(question);
+        Matcher matcher = MSG_TYPE_PATTERN.matcher(question);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private String extractFieldFromQuestion(String question) {
+        // Pattern pour trouver "Champ N" dans la question
+        Matcher matcher = FIELD_PATTERN.matcher(question);
         return matcher.find() ? matcher.group(1) : null;
     }
 
@@ -305,17 +378,41 @@ public class RagService {
             long searchTimeMs,
             long llmTimeMs,
             long totalTimeMs,
-            RagPerformanceValidation performance
+            RagPerformanceValidation performance,
+            RagCacheMetrics cache,
+            boolean directAnswer,
+            long directLookupTimeMicros
     ) {
         public static RagMetadata of(long embedding, long search, long llm, long total) {
-            return new RagMetadata(embedding, search, llm, total, null);
+            return new RagMetadata(embedding, search, llm, total, null, null, false, 0);
         }
         
         public static RagMetadata of(long embedding, long search, long llm, long total, RagPerformanceValidation performance) {
-            return new RagMetadata(embedding, search, llm, total, performance);
+            return new RagMetadata(embedding, search, llm, total, performance, null, false, 0);
+        }
+
+        public static RagMetadata of(long embedding, long search, long llm, long total, RagPerformanceValidation performance,
+                                     RagCacheMetrics cache) {
+            return new RagMetadata(embedding, search, llm, total, performance, cache, false, 0);
+        }
+
+        public static RagMetadata direct(long lookupMicros, long total) {
+            return new RagMetadata(0, 0, 0, total, null, null, true, lookupMicros);
         }
     }
 
+    /**
+     * Utilisation du cache pour cette question et ratios cumulés depuis le démarrage.
+     */
+    public record RagCacheMetrics(
+            boolean embeddingCacheHit,
+            boolean answerCacheHit,
+            long savedTimeMs,
+            double embeddingHitRate,
+            double answerHitRate,
+            long totalSavedTimeMs
+    ) {}
+
     public record RagResponse(
             boolean success,
             String question,
@@ -333,5 +430,5 @@ public class RagService {
         }
     }
 
-    public record RagContext(String id, String msgType, double score, Map<String, String> mapping) {}
+    public record RagContext(String id, String msgType, double score, Map<String, String> mapping, int version) {}
 }
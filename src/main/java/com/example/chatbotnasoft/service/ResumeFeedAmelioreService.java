@@ -5,14 +5,13 @@ import com.example.chatbotnasoft.dto.ResumeDataAmeliore;
 import com.example.chatbotnasoft.dto.ResumeResponseAmeliore;
 import com.example.chatbotnasoft.dto.ResumeStatistiquesAmeliorees;
 import com.example.chatbotnasoft.entity.FeedMapping;
-import com.example.chatbotnasoft.repository.FeedMappingRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -23,7 +22,7 @@ import java.util.*;
 public class ResumeFeedAmelioreService {
 
     @Autowired
-    private FeedMappingRepository feedMappingRepository;
+    private FeedMappingCache feedMappingCache;
 
     /**
      * Génère un résumé complet et amélioré d'un fichier FEED
@@ -36,7 +35,7 @@ public class ResumeFeedAmelioreService {
         List<ResumeDataAmeliore> resumeDataList = new ArrayList<>();
         String fileName = extractFileName(filePath);
         
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+        try (BufferedReader reader = FeedCompression.newReader(Path.of(filePath))) {
             String ligne;
             int numeroLigne = 0;
             
@@ -77,21 +76,21 @@ public class ResumeFeedAmelioreService {
     private ResumeDataAmeliore processLineToResumeDataAmeliore(String ligne, int numeroLigne) {
         try {
             // Extraire les champs séparés par ";"
-            String[] champs = ligne.split(";");
+            FeedLineTokenizer champs = FeedLineTokenizer.of(ligne);
             
             // Vérifier qu'on a au moins 2 champs pour extraire le msgType
-            if (champs.length < 2) {
+            if (champs.fieldCountWithoutTrailingEmpty() < 2) {
                 String erreur = "Ligne " + numeroLigne + ": Moins de 2 champs trouvés";
                 log.warn("⚠️ {}", erreur);
                 return new ResumeDataAmeliore("", ligne, erreur);
             }
             
             // Extraire le msgType (2ème champ)
-            String msgType = champs[1].trim();
+            String msgType = champs.trimmedField(1);
             log.debug("🔍 MsgType extrait: '{}' pour ligne {}", msgType, numeroLigne);
             
             // Chercher le mapping dans MongoDB
-            Optional<FeedMapping> mappingOpt = feedMappingRepository.findByMsgType(msgType);
+            Optional<FeedMapping> mappingOpt = feedMappingCache.findByMsgType(msgType);
             
             if (mappingOpt.isEmpty()) {
                 String erreur = "Aucun mapping trouvé pour le msgType: " + msgType;
@@ -116,15 +115,15 @@ public class ResumeFeedAmelioreService {
 
     /**
      * Crée une map des valeurs à partir des champs de la ligne
-     * @param champs Tableau des champs de la ligne
+     * @param champs Champs de la ligne
      * @return Map avec "Champ i" comme clé et la valeur brute comme valeur
      */
-    private Map<String, String> createValeursMap(String[] champs) {
+    private Map<String, String> createValeursMap(FeedLineTokenizer champs) {
         Map<String, String> valeursMap = new LinkedHashMap<>();
         
-        for (int i = 0; i < champs.length; i++) {
+        for (int i = 0, nombreChamps = champs.fieldCountWithoutTrailingEmpty(); i < nombreChamps; i++) {
             String champKey = "Champ " + (i + 1);
-            String champValue = champs[i].trim();
+            String champValue = champs.trimmedField(i);
             valeursMap.put(champKey, champValue);
         }
         
@@ -133,15 +132,15 @@ public class ResumeFeedAmelioreService {
 
     /**
      * Crée une map des valeurs anonymisées
-     * @param champs Tableau des champs de la ligne
+     * @param champs Champs de la ligne
      * @return Map avec "Champ i" comme clé et la valeur anonymisée comme valeur
      */
-    private Map<String, String> createValeursAnonymiseesMap(String[] champs) {
+    private Map<String, String> createValeursAnonymiseesMap(FeedLineTokenizer champs) {
         Map<String, String> valeursAnonymiseesMap = new LinkedHashMap<>();
         
-        for (int i = 0; i < champs.length; i++) {
+        for (int i = 0, nombreChamps = champs.fieldCountWithoutTrailingEmpty(); i < nombreChamps; i++) {
             String champKey = "Champ " + (i + 1);
-            String champValue = champs[i].trim();
+            String champValue = champs.trimmedField(i);
             String valeurAnonymisee = anonymiserValeur(champValue, i + 1);
             valeursAnonymiseesMap.put(champKey, valeurAnonymisee);
         }
@@ -151,16 +150,16 @@ public class ResumeFeedAmelioreService {
 
     /**
      * Crée la liste complète des champs détaillés avec significations
-     * @param champs Tableau des champs de la ligne
+     * @param champs Champs de la ligne
      * @param mapping Mapping trouvé dans MongoDB
      * @return Liste de ChampDetail avec tous les champs
      */
-    private List<ChampDetail> createMappingComplet(String[] champs, Map<String, String> mapping) {
+    private List<ChampDetail> createMappingComplet(FeedLineTokenizer champs, Map<String, String> mapping) {
         List<ChampDetail> mappingComplet = new ArrayList<>();
         
-        for (int i = 0; i < champs.length; i++) {
+        for (int i = 0, nombreChamps = champs.fieldCountWithoutTrailingEmpty(); i < nombreChamps; i++) {
             String champKey = "Champ " + (i + 1);
-            String champValue = champs[i].trim();
+            String champValue = champs.trimmedField(i);
             String signification = mapping.getOrDefault(champKey, "Inconnu");
             String valeurAnonymisee = anonymiserValeur(champValue, i + 1);
             
@@ -388,7 +387,7 @@ public class ResumeFeedAmelioreService {
         java.io.File feedDir = new java.io.File("input/feeds");
         
         if (feedDir.exists() && feedDir.isDirectory()) {
-            java.io.File[] files = feedDir.listFiles((dir, name) -> name.startsWith("FEED") && name.endsWith(".txt"));
+            java.io.File[] files = feedDir.listFiles((dir, name) -> FeedCompression.isFeedFileName(name));
             
             if (files != null) {
                 for (java.io.File file : files) {
@@ -4,14 +4,13 @@ import com.example.chatbotnasoft.dto.ResumeData;
 import com.example.chatbotnasoft.dto.ResumeResponse;
 import com.example.chatbotnasoft.dto.ResumeStatistiques;
 import com.example.chatbotnasoft.entity.FeedMapping;
-import com.example.chatbotnasoft.repository.FeedMappingRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -22,7 +21,7 @@ import java.util.*;
 public class ResumeFeedService {
 
     @Autowired
-    private FeedMappingRepository feedMappingRepository;
+    private FeedMappingCache feedMappingCache;
 
     /**
      * Génère un résumé complet structuré d'un fichier FEED
@@ -34,7 +33,7 @@ public class ResumeFeedService {
         
         List<ResumeData> resumeDataList = new ArrayList<>();
         
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+        try (BufferedReader reader = FeedCompression.newReader(Path.of(filePath))) {
             String ligne;
             int numeroLigne = 0;
             
@@ -75,21 +74,21 @@ public class ResumeFeedService {
     private ResumeData processLineToResumeData(String ligne, int numeroLigne) {
         try {
             // Extraire les champs séparés par ";"
-            String[] champs = ligne.split(";");
+            FeedLineTokenizer champs = FeedLineTokenizer.of(ligne);
             
             // Vérifier qu'on a au moins 2 champs pour extraire le msgType
-            if (champs.length < 2) {
+            if (champs.fieldCountWithoutTrailingEmpty() < 2) {
                 String erreur = "Ligne " + numeroLigne + ": Moins de 2 champs trouvés";
                 log.warn("⚠️ {}", erreur);
                 return new ResumeData("", ligne, erreur);
             }
             
             // Extraire le msgType (2ème champ)
-            String msgType = champs[1].trim();
+            String msgType = champs.trimmedField(1);
             log.debug("🔍 MsgType extrait: '{}' pour ligne {}", msgType, numeroLigne);
             
             // Chercher le mapping dans MongoDB
-            Optional<FeedMapping> mappingOpt = feedMappingRepository.findByMsgType(msgType);
+            Optional<FeedMapping> mappingOpt = feedMappingCache.findByMsgType(msgType);
             
             if (mappingOpt.isEmpty()) {
                 String erreur = "Aucun mapping trouvé pour le msgType: " + msgType;
@@ -113,15 +112,15 @@ public class ResumeFeedService {
 
     /**
      * Crée une map des valeurs à partir des champs de la ligne
-     * @param champs Tableau des champs de la ligne
+     * @param champs Champs de la ligne
      * @return Map avec "Champ i" comme clé et la valeur brute comme valeur
      */
-    private Map<String, String> createValeursMap(String[] champs) {
+    private Map<String, String> createValeursMap(FeedLineTokenizer champs) {
         Map<String, String> valeursMap = new LinkedHashMap<>();
         
-        for (int i = 0; i < champs.length; i++) {
+        for (int i = 0, nombreChamps = champs.fieldCountWithoutTrailingEmpty(); i < nombreChamps; i++) {
             String champKey = "Champ " + (i + 1);
-            String champValue = champs[i].trim();
+            String champValue = champs.trimmedField(i);
             valeursMap.put(champKey, champValue);
         }
         
@@ -245,7 +244,7 @@ public class ResumeFeedService {
         java.io.File feedDir = new java.io.File("input/feeds");
         
         if (feedDir.exists() && feedDir.isDirectory()) {
-            java.io.File[] files = feedDir.listFiles((dir, name) -> name.startsWith("FEED") && name.endsWith(".txt"));
+            java.io.File[] files = feedDir.listFiles((dir, name) -> FeedCompression.isFeedFileName(name));
             
             if (files != null) {
                 for (java.io.File file : files) {
@@ -0,0 +1,276 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.config.FileWatcherProperties;
+import com.example.chatbotnasoft.config.IngestionProperties;
+import com.example.chatbotnasoft.dto.RawFeedLine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Suivi en continu des fichiers alimentés toute la journée ({@code file-watcher.tail-follow-pattern}).
+ * <p>
+ * Au lieu d'attendre la stabilisation puis de tout relire, on garde par fichier l'offset validé (début de
+ * la prochaine ligne non traitée) et on ne lit, par lectures positionnées sur le {@link FileChannel}, que les
+ * lignes complètes ajoutées depuis ; une ligne en cours d'écriture attend la lecture suivante. Chaque lot
+ * passe par le parsing, l'anonymisation et l'analyse LLM, puis l'offset est enregistré dans le
+ * {@link IngestionJournal} : après un redémarrage, le suivi reprend où il s'était arrêté.
+ * <p>
+ * Les écritures sont regroupées pendant {@code tail-follow-batch-delay-millis} ; la taille est aussi relue
+ * toutes les {@code tail-follow-poll-seconds} secondes pour les écritures non signalées. Un fichier tronqué
+ * ou remplacé (taille inférieure à l'offset) est relu depuis le début.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TailFollowService {
+
+    private static final int READ_BUFFER_SIZE = 1024 * 1024;
+
+    private final FileWatcherProperties properties;
+    private final IngestionProperties ingestionProperties;
+    private final FeedProcessingService feedProcessingService;
+    private final IngestionJournal ingestionJournal;
+
+    private final Map<Path, TailState> followedFiles = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+    private Pattern tailPattern;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder linesProcessed = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder truncations = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isTailFollowEnabled()) {
+            return;
+        }
+        tailPattern = Pattern.compile(properties.getTailFollowPattern().replace("*", ".*"));
+        scheduler = Executors.newSingleThreadScheduledExecutor(VirtualThreads.threadFactory("tail-follow", false));
+        long poll = Math.max(1, properties.getTailFollowPollSeconds());
+        scheduler.scheduleWithFixedDelay(this::pollFollowedFiles, poll, poll, TimeUnit.SECONDS);
+        log.info("👁️ Suivi en continu activé pour {} (relecture toutes les {} s)",
+                properties.getTailFollowPattern(), poll);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public boolean isTailFollowed(Path filePath) {
+        return tailPattern != null && tailPattern.matcher(filePath.getFileName().toString()).matches();
+    }
+
+    /**
+     * Création ou modification d'un fichier suivi : les nouvelles lignes sont lues après le délai de regroupement.
+     */
+    public void onAppend(Path filePath) {
+        TailState state = followedFiles.computeIfAbsent(filePath, this::loadState);
+        state.lastActivityNanos = System.nanoTime();
+        schedule(state, properties.getTailFollowBatchDelayMillis());
+    }
+
+    private TailState loadState(Path filePath) {
+        TailState state = new TailState(filePath);
+        ingestionJournal.get(filePath).map(IngestionJournal.Entry::checkpoint).ifPresent(checkpoint -> {
+            state.offset = checkpoint.offset();
+            state.lineNumber = checkpoint.lineNumber();
+            state.totalLines = checkpoint.totalLines();
+        });
+        log.info("👁️ Suivi en continu de {} à partir de l'octet {}", filePath.getFileName(), state.offset);
+        return state;
+    }
+
+    private void schedule(TailState state, long delayMillis) {
+        if (scheduler != null && state.scheduled.compareAndSet(false, true)) {
+            scheduler.schedule(() -> drain(state), delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void pollFollowedFiles() {
+        long idleNanos = TimeUnit.MINUTES.toNanos(Math.max(1, properties.getTailFollowIdleMinutes()));
+        for (TailState state : followedFiles.values()) {
+            if (System.nanoTime() - state.lastActivityNanos > idleNanos) {
+                // L'offset reste journalisé : un nouvel ajout relance le suivi
+                followedFiles.remove(state.path, state);
+                log.info("💤 Suivi suspendu (inactif): {} à l'octet {}", state.path.getFileName(), state.offset);
+            } else {
+                schedule(state, 0);
+            }
+        }
+    }
+
+    /**
+     * Lit et traite les lignes complètes ajoutées depuis l'offset validé. Exécuté sur le seul thread de suivi.
+     */
+    void drain(TailState state) {
+        state.scheduled.set(false);
+        try (FileChannel channel = FileChannel.open(state.path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < state.offset) {
+                truncations.increment();
+                log.warn("⚠️ {} a été tronqué ou remplacé ({} < {} octets), relecture depuis le début",
+                        state.path.getFileName(), size, state.offset);
+                state.offset = 0;
+                state.lineNumber = 0;
+                state.totalLines = 0;
+            }
+            if (size > state.offset) {
+                state.lastActivityNanos = System.nanoTime();
+                readAppendedLines(channel, state, size);
+            }
+        } catch (NoSuchFileException e) {
+            followedFiles.remove(state.path, state);
+            ingestionJournal.recordAbandoned(state.path);
+            log.info("Fichier suivi supprimé: {}", state.path.getFileName());
+        } catch (IOException e) {
+            log.error("Erreur lors de la lecture des ajouts de {}", state.path, e);
+        }
+    }
+
+    private void readAppendedLines(FileChannel channel, TailState state, long size) throws IOException {
+        String fileName = state.path.getFileName().toString();
+        int chunkSize = Math.max(1, ingestionProperties.getChunkSize());
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        // Début de ligne à cheval sur deux lectures
+        ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+        List<RawFeedLine> batch = new ArrayList<>();
+
+        long position = state.offset;
+        long committed = state.offset;
+        int lineNumber = state.lineNumber;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            byte[] bytes = buffer.array();
+            int lineStart = 0;
+            for (int i = 0; i < read; i++) {
+                if (bytes[i] != '\n') {
+                    continue;
+                }
+                String content;
+                if (partialLine.size() > 0) {
+                    partialLine.write(bytes, lineStart, i - lineStart);
+                    content = partialLine.toString(StandardCharsets.UTF_8);
+                    partialLine.reset();
+                } else {
+                    content = new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8);
+                }
+                lineStart = i + 1;
+                committed = position + lineStart;
+                lineNumber++;
+
+                String trimmed = content.trim();
+                if (!trimmed.isEmpty()) {
+                    batch.add(new RawFeedLine(trimmed, lineNumber, fileName));
+                }
+                if (batch.size() >= chunkSize) {
+                    commit(state, batch, committed, lineNumber);
+                    batch = new ArrayList<>();
+                }
+            }
+            partialLine.write(bytes, lineStart, read - lineStart);
+            position += read;
+        }
+
+        // Les octets après le dernier saut de ligne (ligne en cours d'écriture) seront relus au prochain ajout
+        if (!batch.isEmpty() || committed > state.offset) {
+            commit(state, batch, committed, lineNumber);
+        }
+    }
+
+    private void commit(TailState state, List<RawFeedLine> batch, long committed, int lineNumber) {
+        if (!batch.isEmpty()) {
+            try {
+                feedProcessingService.processAppendedLines(state.path, batch);
+                batches.increment();
+                linesProcessed.add(batch.size());
+            } catch (RuntimeException e) {
+                // Comme en traitement par fichier, un lot en erreur n'est pas retenté
+                failedBatches.increment();
+                log.error("❌ Erreur lors du traitement des lignes ajoutées à {} (lignes {} à {})",
+                        state.path.getFileName(), batch.get(0).getLineNumber(), lineNumber, e);
+            }
+        }
+        bytesRead.add(committed - state.offset);
+        state.offset = committed;
+        state.lineNumber = lineNumber;
+        state.totalLines += batch.size();
+        ingestionJournal.recordCheckpoint(state.path, new IngestionJournal.Checkpoint(state.offset, state.lineNumber,
+                state.totalLines, state.totalLines, false, List.of()));
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", tailPattern != null);
+        if (tailPattern == null) {
+            return stats;
+        }
+        Map<String, Long> offsets = new LinkedHashMap<>();
+        followedFiles.values().forEach(state -> offsets.put(state.path.getFileName().toString(), state.offset));
+        stats.put("pattern", properties.getTailFollowPattern());
+        stats.put("followedFiles", offsets);
+        stats.put("batches", batches.sum());
+        stats.put("linesProcessed", linesProcessed.sum());
+        stats.put("bytesRead", bytesRead.sum());
+        stats.put("failedBatches", failedBatches.sum());
+        stats.put("truncations", truncations.sum());
+        return stats;
+    }
+
+    TailState stateOf(Path filePath) {
+        return followedFiles.get(filePath);
+    }
+
+    static final class TailState {
+        private final Path path;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile long lastActivityNanos = System.nanoTime();
+        // Modifiés uniquement par le thread de suivi
+        private volatile long offset;
+        private volatile int lineNumber;
+        private int totalLines;
+
+        TailState(Path path) {
+            this.path = path;
+        }
+
+        long offset() {
+            return offset;
+        }
+
+        int lineNumber() {
+            return lineNumber;
+        }
+    }
+}
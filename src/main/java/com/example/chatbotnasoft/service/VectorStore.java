@@ -0,0 +1,27 @@
+package com.example.chatbotnasoft.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stockage des embeddings de mappings. Implémentations : {@link QdrantClient} (serveur Qdrant)
+ * et {@link InMemoryVectorStore} (index dans la JVM, sans serveur), choisies par {@code vector-store.type}.
+ * <p>
+ * Un point est une map {@code id / vector / payload}, au format de l'API Qdrant.
+ */
+public interface VectorStore {
+
+    void ensureCollectionExists(int vectorSize);
+
+    void upsertPoints(List<Map<String, Object>> points);
+
+    void deletePoints(List<String> pointIds);
+
+    /**
+     * Les {@code limit} points les plus proches, triés par score décroissant.
+     */
+    List<SearchHit> search(List<Double> queryVector, int limit);
+
+    record SearchHit(String id, double score, Map<String, Object> payload) {
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.chatbotnasoft.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Accès aux threads virtuels sans dépendre de Java 21 à la compilation (le projet cible Java 17) :
+ * l'API est résolue par réflexion, et à défaut des threads plateforme démons sont utilisés.
+ */
+@Slf4j
+public final class VirtualThreads {
+
+    private static final Method OF_VIRTUAL = findMethod(Thread.class, "ofVirtual");
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Fabrique de threads nommés {@code prefix-N} : virtuels si demandé et disponibles, plateforme démons sinon.
+     */
+    public static ThreadFactory threadFactory(String prefix, boolean virtual) {
+        if (virtual && isSupported()) {
+            try {
+                Object builder = OF_VIRTUAL.invoke(null);
+                Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+                builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix + "-", 1L);
+                return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            } catch (ReflectiveOperationException e) {
+                log.warn("⚠️ Threads virtuels indisponibles ({}), threads plateforme utilisés", e.getMessage());
+            }
+        }
+
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Un thread virtuel par tâche, ou un pool fixe de {@code platformThreads} threads plateforme.
+     */
+    public static ExecutorService newExecutor(String prefix, boolean virtual, int platformThreads) {
+        if (virtual && isSupported()) {
+            try {
+                Method perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+                return (ExecutorService) perTask.invoke(null, threadFactory(prefix, true));
+            } catch (ReflectiveOperationException e) {
+                log.warn("⚠️ Exécuteur de threads virtuels indisponible ({}), pool plateforme utilisé", e.getMessage());
+            }
+        }
+        return Executors.newFixedThreadPool(Math.max(1, platformThreads), threadFactory(prefix, false));
+    }
+
+    private static Method findMethod(Class<?> type, String name) {
+        try {
+            return type.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
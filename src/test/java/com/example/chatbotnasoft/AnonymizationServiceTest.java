@@ -120,6 +120,18 @@ class AnonymizationServiceTest {
         assertFalse(feedDetectionService.isMsgTypeKnown("unknown"));
     }
 
+    @Test
+    void testResolveKnownMsgTypesMatchesSingleLookups() {
+        List<String> msgTypes = List.of("20", "21", "99", "unknown");
+
+        Map<String, Boolean> known = feedDetectionService.resolveKnownMsgTypes(msgTypes);
+
+        assertEquals(msgTypes.size(), known.size());
+        for (String msgType : msgTypes) {
+            assertEquals(feedDetectionService.isMsgTypeKnown(msgType), known.get(msgType));
+        }
+    }
+
     @Test
     void testAnonymizationWithVariableFieldCount() {
         List<RawFeedLine> linesVariable = List.of(
@@ -4,11 +4,16 @@ import com.example.chatbotnasoft.dto.ParsedFeedGroup;
 import com.example.chatbotnasoft.dto.ParsingResult;
 import com.example.chatbotnasoft.dto.RawFeedLine;
 import com.example.chatbotnasoft.service.FeedParsingService;
+import com.example.chatbotnasoft.service.ParallelFeedParsingService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -20,6 +25,9 @@ class FeedParsingServiceTest {
     @Autowired
     private FeedParsingService feedParsingService;
 
+    @Autowired
+    private ParallelFeedParsingService parallelFeedParsingService;
+
     private List<RawFeedLine> testLines;
 
     @BeforeEach
@@ -95,6 +103,36 @@ class FeedParsingServiceTest {
         assertEquals(3, result.getParsingErrors().size());
     }
 
+    @Test
+    void testParallelParsingMatchesSequentialParsing() throws IOException {
+        StringBuilder content = new StringBuilder();
+        List<RawFeedLine> expectedLines = new ArrayList<>();
+        for (int i = 1; i <= 500; i++) {
+            String line = i % 50 == 0 ? "ligne invalide " + i
+                    : i % 17 == 0 ? "" : String.format("%03d;%d;23012025;VAL%d", i, i % 7, i);
+            content.append(line).append(i % 3 == 0 ? "\r\n" : "\n");
+            if (!line.isEmpty()) {
+                expectedLines.add(new RawFeedLine(line, i, "FEED_PARALLEL.txt"));
+            }
+        }
+        Path feedFile = Files.createTempDirectory("parallel").resolve("FEED_PARALLEL.txt");
+        Files.writeString(feedFile, content);
+
+        ParsingResult sequential = feedParsingService.parseAndGroupLines(expectedLines);
+        ParsingResult parallel = parallelFeedParsingService.parseFile(feedFile, Integer.MAX_VALUE, 8);
+
+        assertEquals(sequential.getTotalLinesProcessed(), parallel.getTotalLinesProcessed());
+        assertEquals(sequential.getValidLinesProcessed(), parallel.getValidLinesProcessed());
+        assertEquals(sequential.getParsingErrors(), parallel.getParsingErrors());
+        assertEquals(sequential.getGroupsByMsgType().keySet(), parallel.getGroupsByMsgType().keySet());
+        sequential.getGroupsByMsgType().forEach((msgType, group) -> {
+            ParsedFeedGroup parallelGroup = parallel.getGroupsByMsgType().get(msgType);
+            assertEquals(group.getTotalLines(), parallelGroup.getTotalLines());
+            assertEquals(group.getLines().stream().map(RawFeedLine::getLineNumber).toList(),
+                    parallelGroup.getLines().stream().map(RawFeedLine::getLineNumber).toList());
+        });
+    }
+
     @Test
     void testIsValidFeedLine() {
         assertTrue(feedParsingService.isValidFeedLine("077;20;23012025;XXXX;YYYY;ZZZZ"));
@@ -2,7 +2,9 @@ package com.example.chatbotnasoft;
 
 import com.example.chatbotnasoft.dto.ReadableFeedLine;
 import com.example.chatbotnasoft.entity.FeedMapping;
+import com.example.chatbotnasoft.config.MappingCacheProperties;
 import com.example.chatbotnasoft.repository.FeedMappingRepository;
+import com.example.chatbotnasoft.service.FeedMappingCache;
 import com.example.chatbotnasoft.service.FeedReadableService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,6 +12,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.File;
 import java.io.FileWriter;
@@ -37,6 +40,9 @@ class FeedReadableServiceTest {
 
     @BeforeEach
     void setUp() throws IOException {
+        ReflectionTestUtils.setField(feedReadableService, "feedMappingCache",
+                new FeedMappingCache(feedMappingRepository, new MappingCacheProperties()));
+
         // Créer un fichier FEED temporaire
         tempFeedFile = File.createTempFile("test_feed", ".txt");
         tempFeedFile.deleteOnExit();
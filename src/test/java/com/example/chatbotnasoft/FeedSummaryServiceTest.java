@@ -2,6 +2,7 @@ package com.example.chatbotnasoft.service;
 
 import com.example.chatbotnasoft.dto.ReadableFeedLine;
 import com.example.chatbotnasoft.entity.FeedMapping;
+import com.example.chatbotnasoft.config.MappingCacheProperties;
 import com.example.chatbotnasoft.repository.FeedMappingRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -9,6 +10,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.HashMap;
 import java.util.List;
@@ -35,6 +37,9 @@ class FeedSummaryServiceTest {
     
     @BeforeEach
     void setUp() {
+        ReflectionTestUtils.setField(feedSummaryService, "feedMappingCache",
+                new FeedMappingCache(feedMappingRepository, new MappingCacheProperties()));
+
         // Créer un mapping de test
         Map<String, String> mapping = new HashMap<>();
         mapping.put("Champ 1", "Type de Message");
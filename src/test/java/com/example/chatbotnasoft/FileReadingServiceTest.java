@@ -2,6 +2,7 @@ package com.example.chatbotnasoft;
 
 import com.example.chatbotnasoft.dto.RawFeedLine;
 import com.example.chatbotnasoft.service.FileReadingService;
+import com.example.chatbotnasoft.service.MappedFeedReader;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,6 +11,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -69,6 +71,58 @@ class FileReadingServiceTest {
         }
     }
 
+    @Test
+    void testReadFileInChunks() throws IOException {
+        List<RawFeedLine> collected = new ArrayList<>();
+        List<Long> offsets = new ArrayList<>();
+
+        long lineCount = fileReadingService.readFileInChunks(testFile, 2, (chunk, bytesRead, totalBytes) -> {
+            assertTrue(chunk.size() <= 2);
+            collected.addAll(chunk);
+            offsets.add(bytesRead);
+        });
+
+        assertEquals(5, lineCount);
+        assertEquals(5, collected.size());
+        assertEquals("Ligne 2 avec des espaces", collected.get(1).getTrimmedContent());
+        assertEquals(7, collected.get(4).getLineNumber());
+
+        // La progression est croissante et se termine à la taille du fichier
+        assertEquals(3, offsets.size());
+        assertTrue(offsets.get(0) < offsets.get(1));
+        assertEquals(Files.size(testFile), offsets.get(offsets.size() - 1));
+    }
+
+    @Test
+    void testMappedFeedReaderLineBounds() throws IOException {
+        Path feedFile = Files.createTempFile("FEED_MAPPED", ".txt");
+        Files.writeString(feedFile, "077; 20 ;23012025;;\r\n\n  ligne sans separateur  \n080;22");
+
+        try (MappedFeedReader reader = new MappedFeedReader(feedFile)) {
+            MappedFeedReader.LineView view = new MappedFeedReader.LineView();
+
+            assertTrue(reader.next(view));
+            assertEquals(1, view.lineNumber());
+            assertEquals("077; 20 ;23012025;;", view.content());
+            assertEquals(0, view.lineOffset());
+
+            assertTrue(reader.next(view));
+            assertTrue(view.isBlank());
+
+            assertTrue(reader.next(view));
+            assertEquals("ligne sans separateur", view.content());
+
+            assertTrue(reader.next(view));
+            assertEquals(4, view.lineNumber());
+            assertEquals("080;22", view.content());
+            assertEquals(Files.size(feedFile), view.nextLineOffset());
+
+            assertFalse(reader.next(view));
+        } finally {
+            Files.deleteIfExists(feedFile);
+        }
+    }
+
     @Test
     void testCountLines() throws IOException {
         long lineCount = fileReadingService.countLines(testFile);
@@ -3,11 +3,15 @@ package com.example.chatbotnasoft;
 import com.example.chatbotnasoft.dto.AnonymizedLine;
 import com.example.chatbotnasoft.dto.FieldMapping;
 import com.example.chatbotnasoft.dto.LLMAnalysisResult;
+import com.example.chatbotnasoft.service.LLMBatchPlanner;
 import com.example.chatbotnasoft.service.LLMService;
+import com.example.chatbotnasoft.service.LlmResponseCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -19,6 +23,9 @@ class LLMServiceTest {
     @Autowired
     private LLMService llmService;
 
+    @Autowired
+    private LlmResponseCache llmResponseCache;
+
     @Test
     void testAnalyzeAnonymizedLines() {
         // Créer des lignes de test
@@ -111,4 +118,56 @@ class LLMServiceTest {
             assertEquals(6, mappings.get(2).getFieldCount()); // 6 champs
         }
     }
+
+    @Test
+    void testPlanBatchesRespectsBudgets() {
+        Map<String, List<AnonymizedLine>> linesByMsgType = new LinkedHashMap<>();
+        for (int i = 1; i <= 10; i++) {
+            String msgType = String.valueOf(i);
+            linesByMsgType.put(msgType, List.of(new AnonymizedLine("077;" + msgType + ";A;B",
+                    "077;" + msgType + ";xxxxx;xxxxx", msgType, i, "test.txt", false)));
+        }
+
+        // 4 champs par ligne -> 90 tokens de réponse estimés par msg-type
+        List<List<String>> batches = LLMBatchPlanner.planBatches(linesByMsgType, 8000, 300, 20);
+        assertEquals(4, batches.size());
+        assertEquals(List.of("1", "2", "3"), batches.get(0));
+        assertEquals(10, batches.stream().mapToInt(List::size).sum());
+
+        batches = LLMBatchPlanner.planBatches(linesByMsgType, 8000, 10000, 4);
+        assertEquals(3, batches.size());
+        assertEquals(List.of("9", "10"), batches.get(2));
+    }
+
+    @Test
+    void testSplitBatchResponseKeepsCompleteEntriesOfTruncatedJson() {
+        String response = """
+                ```json
+                {
+                  "20": {"Champ 1": "Code", "Champ 2": "Msg-type"},
+                  "21": {"Champ 1": "Code", "Champ 2": "Msg-type", "Champ 3": "Date"},
+                  "22": {"Champ 1": "Co
+                """;
+
+        Map<String, Map<String, String>> mappings = LLMBatchPlanner.splitBatchResponse(new ObjectMapper(), response);
+
+        assertEquals(2, mappings.size());
+        assertEquals("Msg-type", mappings.get("20").get("Champ 2"));
+        assertEquals(3, mappings.get("21").size());
+        assertFalse(mappings.containsKey("22"));
+    }
+
+    @Test
+    void testLlmResponseCacheIsKeyedByModelAndPrompt() {
+        String prompt = "Analyse cette ligne de feed anonymisée : " + System.nanoTime();
+        String response = "{\"Champ 1\": \"Code\"}";
+
+        assertTrue(llmResponseCache.get("gemini-2.5-flash", prompt).isEmpty());
+
+        llmResponseCache.put("gemini-2.5-flash", prompt, response);
+
+        assertEquals(response, llmResponseCache.get("gemini-2.5-flash", prompt).orElse(null));
+        assertTrue(llmResponseCache.get("gemini-2.0-flash", prompt).isEmpty());
+        assertTrue((double) llmResponseCache.getStatistics().get("hitRate") > 0.0);
+    }
 }
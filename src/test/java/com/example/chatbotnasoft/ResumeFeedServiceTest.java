@@ -4,7 +4,9 @@ import com.example.chatbotnasoft.dto.ResumeData;
 import com.example.chatbotnasoft.dto.ResumeResponse;
 import com.example.chatbotnasoft.dto.ResumeStatistiques;
 import com.example.chatbotnasoft.entity.FeedMapping;
+import com.example.chatbotnasoft.config.MappingCacheProperties;
 import com.example.chatbotnasoft.repository.FeedMappingRepository;
+import com.example.chatbotnasoft.service.FeedMappingCache;
 import com.example.chatbotnasoft.service.ResumeFeedService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,6 +14,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.File;
 import java.io.FileWriter;
@@ -40,6 +43,9 @@ class ResumeFeedServiceTest {
 
     @BeforeEach
     void setUp() throws IOException {
+        ReflectionTestUtils.setField(resumeFeedService, "feedMappingCache",
+                new FeedMappingCache(feedMappingRepository, new MappingCacheProperties()));
+
         // Créer un fichier FEED temporaire
         tempFeedFile = File.createTempFile("test_resume_feed", ".txt");
         tempFeedFile.deleteOnExit();
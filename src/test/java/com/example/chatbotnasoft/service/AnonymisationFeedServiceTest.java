@@ -0,0 +1,139 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.dto.ChampAnonymise;
+import com.example.chatbotnasoft.dto.TypeChamp;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Équivalence entre la détection en un seul parcours et l'ancienne détection par expressions régulières
+ * (recopiée ci-dessous comme référence).
+ */
+class AnonymisationFeedServiceTest {
+
+    private static final String ALPHABET = "0123456789012345678901234567890123456789ABCZabcziI-_ ./ßıéﬁſ";
+
+    @Test
+    void testExemples() {
+        assertChamp("20240131", TypeChamp.DATE, "20240131");
+        assertChamp("235959", TypeChamp.HEURE, "235959");
+        assertChamp("245959", TypeChamp.NOMBRE, "NUM_XXXXXX");
+        assertChamp("30240131", TypeChamp.IDENTIFIANT, "ID_3024XXXX");
+        assertChamp("abCd1234x", TypeChamp.IDENTIFIANT, "ID_ABCDXXXXX");
+        assertChamp("ßßßß", TypeChamp.IDENTIFIANT, "ID_SSSSXXXX");
+        assertChamp("a-b", TypeChamp.CODE, "CODE_a-b");
+        assertChamp("CODE_XX", TypeChamp.CODE, "CODE_XX");
+        assertChamp("   ", TypeChamp.VIDE, "   ");
+    }
+
+    @Test
+    void testEquivalentALAncienneDetection() {
+        Random random = new Random(42);
+        for (int n = 0; n < 50_000; n++) {
+            String valeur = valeurAleatoire(random);
+            ChampAnonymise attendu = ancienAnonymiserChamp("Champ 4", valeur);
+            ChampAnonymise obtenu = AnonymisationFeedService.anonymiserChamp("Champ 4", valeur, 4);
+
+            assertEquals(attendu.getTypeChamp(), obtenu.getTypeChamp(), valeur);
+            assertEquals(attendu.getValeurAnonymisee(), obtenu.getValeurAnonymisee(), valeur);
+            assertEquals(attendu.getRegleAppliquee(), obtenu.getRegleAppliquee(), valeur);
+            assertEquals(valeur, obtenu.getValeurOriginale());
+            assertEquals("Champ 4", obtenu.getNomChamp());
+        }
+    }
+
+    @Test
+    void testTroisPremiersChampsConserves() {
+        ChampAnonymise champ = AnonymisationFeedService.anonymiserChamp("Champ 2", "ABCDEFGH12", 2);
+        assertEquals(TypeChamp.INCONNU, champ.getTypeChamp());
+        assertEquals("ABCDEFGH12", champ.getValeurAnonymisee());
+    }
+
+    private static String valeurAleatoire(Random random) {
+        // Formes proches des cas limites (dates, heures, longueur 8) plus souvent que le hasard pur
+        String prefixe = List.of("", "", "19", "20", "23", "24", " ").get(random.nextInt(7));
+        int longueur = random.nextInt(random.nextBoolean() ? 7 : 14);
+        StringBuilder valeur = new StringBuilder(prefixe);
+        boolean chiffresSeulement = random.nextInt(3) == 0;
+        for (int i = 0; i < longueur; i++) {
+            valeur.append(chiffresSeulement
+                    ? (char) ('0' + random.nextInt(10))
+                    : ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return valeur.toString();
+    }
+
+    private static void assertChamp(String valeur, TypeChamp type, String anonymisee) {
+        ChampAnonymise champ = AnonymisationFeedService.anonymiserChamp("Champ 5", valeur, 5);
+        assertEquals(type, champ.getTypeChamp(), valeur);
+        assertEquals(anonymisee, champ.getValeurAnonymisee(), valeur);
+    }
+
+    // --- Ancienne implémentation (référence) ---
+
+    private static ChampAnonymise ancienAnonymiserChamp(String nomChamp, String valeurOriginale) {
+        if (valeurOriginale == null || valeurOriginale.trim().isEmpty()) {
+            return new ChampAnonymise(nomChamp, valeurOriginale, valeurOriginale,
+                    TypeChamp.VIDE, "Champ vide - laissé vide");
+        }
+        String valeurTrim = valeurOriginale.trim();
+        TypeChamp typeChamp = ancienDetecterTypeChamp(valeurTrim);
+        String valeurAnonymisee = ancienneRegle(valeurTrim, typeChamp);
+        String regle = valeurTrim.equals(valeurAnonymisee) ? "Aucune modification (valeur conservée)"
+                : switch (typeChamp) {
+                    case DATE -> "Date conservée (format YYYYMMDD)";
+                    case HEURE -> "Heure conservée (format HHMMSS)";
+                    case IDENTIFIANT -> "Identifiant anonymisé (ID_XXXXX)";
+                    case NOMBRE -> "Nombre anonymisé (NUM_XXXX...)";
+                    case CODE -> "Code anonymisé (CODE_XX)";
+                    case VIDE -> "Champ vide - laissé vide";
+                    default -> "Type inconnu - valeur conservée";
+                };
+        return new ChampAnonymise(nomChamp, valeurOriginale, valeurAnonymisee, typeChamp, regle);
+    }
+
+    private static TypeChamp ancienDetecterTypeChamp(String valeur) {
+        String valeurTrim = valeur.trim().toUpperCase();
+        if (valeurTrim.matches("\\d{8}") && (valeurTrim.startsWith("20") || valeurTrim.startsWith("19"))) {
+            return TypeChamp.DATE;
+        }
+        if (valeurTrim.matches("\\d{6}")
+                && Integer.parseInt(valeurTrim.substring(0, 2)) <= 23
+                && Integer.parseInt(valeurTrim.substring(2, 4)) <= 59
+                && Integer.parseInt(valeurTrim.substring(4, 6)) <= 59) {
+            return TypeChamp.HEURE;
+        }
+        if (valeurTrim.matches("[A-Z0-9]{8,}")) {
+            return TypeChamp.IDENTIFIANT;
+        }
+        if (valeurTrim.matches("\\d+")) {
+            return TypeChamp.NOMBRE;
+        }
+        return TypeChamp.CODE;
+    }
+
+    private static String ancienneRegle(String valeur, TypeChamp typeChamp) {
+        switch (typeChamp) {
+            case DATE:
+            case HEURE:
+                return valeur;
+            case IDENTIFIANT:
+                String valeurUpper = valeur.toUpperCase();
+                if (valeurUpper.matches("[A-Z0-9]{8,}")) {
+                    int longueur = valeurUpper.length();
+                    return "ID_" + valeurUpper.substring(0, Math.min(4, longueur)) + "X".repeat(Math.max(1, longueur - 4));
+                }
+                return valeur;
+            case NOMBRE:
+                return valeur.matches("\\d+") ? "NUM_" + "X".repeat(valeur.length()) : valeur;
+            case CODE:
+                return valeur.trim().length() <= 3 ? "CODE_" + valeur.trim() : "CODE_XX";
+            default:
+                return valeur;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.config.QdrantProperties;
+import com.example.chatbotnasoft.entity.EmbeddingIndexState;
+import com.example.chatbotnasoft.entity.FeedMapping;
+import com.example.chatbotnasoft.entity.MappingStatus;
+import com.example.chatbotnasoft.repository.EmbeddingIndexStateRepository;
+import com.example.chatbotnasoft.repository.FeedMappingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmbeddingIndexationServiceTest {
+
+    @Mock
+    private FeedMappingRepository feedMappingRepository;
+
+    @Mock
+    private EmbeddingIndexStateRepository embeddingIndexStateRepository;
+
+    @Mock
+    private GeminiEmbeddingService geminiEmbeddingService;
+
+    @Mock
+    private VectorStore vectorStore;
+
+    @Mock
+    private QdrantProperties qdrantProperties;
+
+    @Mock
+    private NlpAnonymizationService nlpAnonymizationService;
+
+    @InjectMocks
+    private EmbeddingIndexationService embeddingIndexationService;
+
+    private FeedMapping mapping53;
+    private FeedMapping mapping54;
+
+    @BeforeEach
+    void setUp() {
+        mapping53 = validMapping("a53", "53", Map.of("Champ 1", "Type de message", "Champ 2", "Code"));
+        mapping54 = validMapping("a54", "54", Map.of("Champ 1", "Type de message", "Champ 2", "Date"));
+
+        when(feedMappingRepository.findByStatusAndIsActive(MappingStatus.VALIDE, true))
+                .thenReturn(List.of(mapping53, mapping54));
+        when(geminiEmbeddingService.getMaxBatchSize()).thenReturn(100);
+        when(qdrantProperties.getIndexBatchSize()).thenReturn(32);
+        when(nlpAnonymizationService.anonymize(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(geminiEmbeddingService.embedBatch(anyList())).thenAnswer(invocation -> {
+            List<String> texts = invocation.getArgument(0);
+            List<List<Double>> vectors = new ArrayList<>();
+            texts.forEach(text -> vectors.add(List.of(0.1, 0.2, 0.3)));
+            return vectors;
+        });
+    }
+
+    @Test
+    void testIncrementalIndexingOnlyReembedsChangedMappingsAndDeletesStalePoints() {
+        // Indexation complète initiale : l'état de chaque mapping est enregistré
+        when(embeddingIndexStateRepository.findAll()).thenReturn(List.of());
+        embeddingIndexationService.indexAllValidatedActive();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<EmbeddingIndexState>> savedStates = ArgumentCaptor.forClass(List.class);
+        verify(embeddingIndexStateRepository).saveAll(savedStates.capture());
+        List<EmbeddingIndexState> states = new ArrayList<>(savedStates.getValue());
+        assertEquals(2, states.size());
+
+        // 54 a changé de version, un ancien mapping a été désactivé
+        states.stream().filter(state -> "a54".equals(state.getMappingId())).findFirst().orElseThrow().setVersion(0);
+        EmbeddingIndexState removed = new EmbeddingIndexState("a99", "99", "point-99", "x", 1, LocalDateTime.now());
+        states.add(removed);
+        when(embeddingIndexStateRepository.findAll()).thenReturn(states);
+        clearInvocations(geminiEmbeddingService, vectorStore);
+
+        EmbeddingIndexationService.IndexationResult result = embeddingIndexationService.indexIncremental();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<String>> embeddedTexts = ArgumentCaptor.forClass(List.class);
+        verify(geminiEmbeddingService).embedBatch(embeddedTexts.capture());
+        assertEquals(1, embeddedTexts.getValue().size());
+        assertTrue(embeddedTexts.getValue().get(0).contains("Message de type 54"));
+
+        verify(vectorStore).deletePoints(List.of("point-99"));
+        verify(embeddingIndexStateRepository).deleteAll(List.of(removed));
+
+        assertEquals(2, result.total());
+        assertEquals(1, result.indexed());
+        assertEquals(1, result.skipped());
+        assertEquals(1, result.deleted());
+    }
+
+    @Test
+    void testEchecDEnregistrementDeLEtatCompteEnEchecSansInterrompreLaSynchronisation() {
+        // Un batch Qdrant par mapping : l'enregistrement de l'état échoue pour le premier seulement
+        when(qdrantProperties.getIndexBatchSize()).thenReturn(1);
+        when(embeddingIndexStateRepository.findAll()).thenReturn(List.of());
+        when(embeddingIndexStateRepository.saveAll(anyList()))
+                .thenThrow(new IllegalStateException("Mongo indisponible"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        EmbeddingIndexationService.IndexationResult result = embeddingIndexationService.indexAllValidatedActive();
+
+        verify(vectorStore, times(2)).upsertPoints(anyList());
+        verify(embeddingIndexStateRepository, times(2)).saveAll(anyList());
+        assertEquals(1, result.indexed());
+        assertEquals(1, result.failed());
+    }
+
+    private FeedMapping validMapping(String id, String msgType, Map<String, String> fields) {
+        FeedMapping mapping = new FeedMapping(msgType, fields);
+        mapping.setId(id);
+        mapping.setStatus(MappingStatus.VALIDE);
+        mapping.setIsActive(true);
+        return mapping;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.config.EmbeddingSyncProperties;
+import com.example.chatbotnasoft.dto.FeedMappingChangedEvent;
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmbeddingSyncServiceTest {
+
+    @Mock
+    private EmbeddingIndexationService embeddingIndexationService;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private MongoCollection<Document> feedCollection;
+
+    @Mock
+    private ChangeStreamIterable<Document> changeStream;
+
+    @Mock
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+
+    private final EmbeddingSyncProperties properties = new EmbeddingSyncProperties();
+    private EmbeddingSyncService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new EmbeddingSyncService(embeddingIndexationService, properties, mongoTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    void testEvenementsRegroupesEnUneSeuleSynchronisation() {
+        service.onMappingChanged(new FeedMappingChangedEvent("m1", "53"));
+        service.onMappingChanged(new FeedMappingChangedEvent("m1", "53"));
+        service.onMappingChanged(new FeedMappingChangedEvent("m1", "53"));
+        service.onMappingChanged(new FeedMappingChangedEvent("m2", "54"));
+        service.onMappingChanged(new FeedMappingChangedEvent(null, "55"));
+
+        service.flushPendingChanges();
+        service.flushPendingChanges();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<String>> synced = ArgumentCaptor.forClass(Collection.class);
+        verify(embeddingIndexationService, times(1)).syncMappings(synced.capture());
+        assertEquals(Set.of("m1", "m2"), Set.copyOf(synced.getValue()));
+        assertEquals(0, service.getStatus().get("pendingChanges"));
+    }
+
+    @Test
+    void testSynchronisationEnEchecReproposeeAuPassageSuivant() {
+        when(embeddingIndexationService.syncMappings(anyCollection()))
+                .thenThrow(new IllegalStateException("Qdrant indisponible"))
+                .thenReturn(null);
+        service.onMappingChanged(new FeedMappingChangedEvent("m1", "53"));
+
+        service.flushPendingChanges();
+        assertEquals(1, service.getStatus().get("pendingChanges"));
+        service.flushPendingChanges();
+
+        verify(embeddingIndexationService, times(2)).syncMappings(List.of("m1"));
+        assertEquals(0, service.getStatus().get("pendingChanges"));
+    }
+
+    @Test
+    void testScrutationUniquementQuandLeChangeStreamEstArrete() throws Exception {
+        CountDownLatch streamClosed = new CountDownLatch(1);
+        @SuppressWarnings("unchecked")
+        ChangeStreamDocument<Document> change = mock(ChangeStreamDocument.class);
+        when(change.getDocumentKey()).thenReturn(new BsonDocument("_id", new BsonString("m7")));
+        when(mongoTemplate.getCollection("feed")).thenReturn(feedCollection);
+        when(feedCollection.watch()).thenReturn(changeStream);
+        when(changeStream.cursor()).thenReturn(cursor);
+        // Un changement, puis le curseur attend jusqu'à la coupure du flux
+        when(cursor.hasNext()).thenReturn(true).thenAnswer(invocation -> {
+            streamClosed.await(10, TimeUnit.SECONDS);
+            return false;
+        });
+        when(cursor.next()).thenReturn(change);
+
+        service.startChangeStream();
+        waitUntil(() -> (boolean) service.getStatus().get("changeStreamActive")
+                && (int) service.getStatus().get("pendingChanges") == 1);
+
+        service.pollWhenChangeStreamUnavailable();
+        verify(embeddingIndexationService, never()).indexIncremental();
+        service.flushPendingChanges();
+        verify(embeddingIndexationService).syncMappings(List.of("m7"));
+
+        // Flux coupé : la scrutation prend le relais
+        streamClosed.countDown();
+        waitUntil(() -> !(boolean) service.getStatus().get("changeStreamActive"));
+        service.pollWhenChangeStreamUnavailable();
+        verify(embeddingIndexationService, times(1)).indexIncremental();
+    }
+
+    @Test
+    void testScrutationSansReplicaSet() throws Exception {
+        when(mongoTemplate.getCollection("feed")).thenReturn(feedCollection);
+        when(feedCollection.watch()).thenThrow(new MongoCommandException(
+                new BsonDocument("ok", new BsonInt32(0))
+                        .append("code", new BsonInt32(40573))
+                        .append("errmsg", new BsonString("The $changeStream stage is only supported on replica sets")),
+                new ServerAddress()));
+
+        service.startChangeStream();
+        waitUntil(() -> !mockingDetails(feedCollection).getInvocations().isEmpty());
+        service.pollWhenChangeStreamUnavailable();
+
+        assertFalse((boolean) service.getStatus().get("changeStreamActive"));
+        verify(embeddingIndexationService, times(1)).indexIncremental();
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Condition non atteinte");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.dto.RawFeedLine;
+import com.github.luben.zstd.ZstdOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeedCompressionTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final FileReadingService fileReadingService = new FileReadingService();
+
+    @Test
+    void testNomsDeFichiersCompresses() {
+        assertEquals("FEED_1.txt", FeedCompression.baseName("FEED_1.txt.gz"));
+        assertTrue(FeedCompression.isFeedFileName("FEED_1.txt"));
+        assertTrue(FeedCompression.isFeedFileName("FEED_1.txt.gz"));
+        assertFalse(FeedCompression.isFeedFileName("FEED_1.csv.gz"));
+        assertFalse(FeedCompression.isFeedFileName("AUTRE.txt.gz"));
+        assertTrue(FeedCompression.isFeedFileName("FEED_1.txt.zst"));
+        assertEquals(FeedCompression.Codec.ZSTD, FeedCompression.codecOf("FEED_1.txt.zst"));
+        assertTrue(FeedCompression.hasFeedExtension("FEED_1.txt.gz"));
+        assertFalse(FeedCompression.hasFeedExtension("FEED_1"));
+    }
+
+    @Test
+    void testLectureEnFluxDUnGzipAPlusieursMembres() throws IOException {
+        // Deux membres gzip concaténés (ex. ajouts successifs par un partenaire)
+        Path file = tempDir.resolve("FEED_ARCHIVE.txt.gz");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write(gzip("1;A;x\n\n2;B;y\n"));
+            out.write(gzip("3;A;z\r\n"));
+        }
+        assertTrue(fileReadingService.isValidFeedFile(file));
+
+        List<RawFeedLine> lines = new ArrayList<>();
+        List<Long> progress = new ArrayList<>();
+        long read = fileReadingService.readFileInChunks(file, 2, (chunk, bytesRead, totalBytes) -> {
+            lines.addAll(chunk);
+            progress.add(bytesRead);
+        });
+
+        assertEquals(3, read);
+        assertEquals(List.of("1;A;x", "2;B;y", "3;A;z"), lines.stream().map(RawFeedLine::getContent).toList());
+        assertEquals(List.of(1, 3, 4), lines.stream().map(RawFeedLine::getLineNumber).toList());
+        assertEquals(Files.size(file), progress.get(progress.size() - 1));
+        assertEquals(3, fileReadingService.countLines(file));
+
+        try (Stream<RawFeedLine> stream = fileReadingService.readFileLines(file)) {
+            assertEquals(3, stream.count());
+        }
+        try (BufferedReader reader = FeedCompression.newReader(file)) {
+            assertEquals("1;A;x", reader.readLine());
+        }
+    }
+
+    @Test
+    void testLectureEnFluxDUnFichierZstd() throws IOException {
+        Path file = tempDir.resolve("FEED_ARCHIVE.txt.zst");
+        StringBuilder content = new StringBuilder();
+        for (int i = 1; i <= 5_000; i++) {
+            content.append(i).append(';').append(i % 2 == 0 ? "A" : "B").append(";valeur ").append(i).append('\n');
+            if (i % 1_000 == 0) {
+                content.append('\n');
+            }
+        }
+        try (OutputStream out = new ZstdOutputStream(Files.newOutputStream(file))) {
+            out.write(content.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        assertTrue(fileReadingService.isValidFeedFile(file));
+
+        List<RawFeedLine> lines = new ArrayList<>();
+        List<Long> progress = new ArrayList<>();
+        long read = fileReadingService.readFileInChunks(file, 1_000, (chunk, bytesRead, totalBytes) -> {
+            lines.addAll(chunk);
+            progress.add(bytesRead);
+        });
+
+        assertEquals(5_000, read);
+        assertEquals("1;B;valeur 1", lines.get(0).getContent());
+        assertEquals("5000;A;valeur 5000", lines.get(lines.size() - 1).getContent());
+        // Les lignes vides sont comptées dans la numérotation
+        assertEquals(1_002, lines.get(1_000).getLineNumber());
+        assertEquals(Files.size(file), progress.get(progress.size() - 1));
+        assertEquals(5_000, fileReadingService.countLines(file));
+
+        try (BufferedReader reader = FeedCompression.newReader(file)) {
+            assertEquals("1;B;valeur 1", reader.readLine());
+        }
+    }
+
+    private static byte[] gzip(String content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+}
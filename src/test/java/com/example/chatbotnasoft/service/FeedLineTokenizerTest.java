@@ -0,0 +1,118 @@
+package com.example.chatbotnasoft.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.function.ToIntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class FeedLineTokenizerTest {
+
+    // String + byte[] du msg-type, avec ou sans compressed oops
+    private static final int MAX_TOKENIZER_BYTES_PER_LINE = 64;
+
+    @Test
+    void testCasLimites() {
+        FeedLineTokenizer fields = FeedLineTokenizer.of(" 1 ; A ;;x;;");
+        assertEquals(6, fields.fieldCount());
+        assertEquals(4, fields.fieldCountWithoutTrailingEmpty());
+        assertEquals(" A ", fields.field(1));
+        assertEquals("A", fields.trimmedField(1));
+        assertEquals("A", fields.msgType());
+        assertTrue(fields.isBlank(2));
+        assertEquals(" 1 ; A ".length(), fields.fieldEnd(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> fields.field(6));
+
+        assertNull(FeedLineTokenizer.of("sans-separateur").msgType());
+        assertNull(FeedLineTokenizer.of("1;;;").msgType());
+        assertNull(FeedLineTokenizer.msgTypeOf("1;;;"));
+        assertEquals("", FeedLineTokenizer.msgTypeOf("1;;x"));
+        assertEquals("A", FeedLineTokenizer.msgTypeOf("1; A ;x;y"));
+        assertEquals(0, FeedLineTokenizer.of(";;").fieldCountWithoutTrailingEmpty());
+        assertEquals(1, FeedLineTokenizer.of("").fieldCountWithoutTrailingEmpty());
+    }
+
+    @Test
+    void testEquivalentASplitSurDesLignesAleatoires() {
+        Random random = new Random(42);
+        char[] alphabet = {';', ';', 'a', 'B', '1', ' ', '\t', 'é'};
+        FeedLineTokenizer fields = new FeedLineTokenizer();
+
+        for (int n = 0; n < 10_000; n++) {
+            StringBuilder line = new StringBuilder();
+            for (int i = random.nextInt(80); i > 0; i--) {
+                line.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            String content = line.toString();
+            fields.reset(content);
+
+            String[] all = content.split(";", -1);
+            assertEquals(all.length, fields.fieldCount(), content);
+            for (int i = 0; i < all.length; i++) {
+                assertEquals(all[i], fields.field(i), content);
+                assertEquals(all[i].trim(), fields.trimmedField(i), content);
+                assertEquals(all[i].isBlank(), fields.isBlank(i), content);
+            }
+
+            String[] split = content.split(";");
+            assertEquals(split.length, fields.fieldCountWithoutTrailingEmpty(), content);
+            assertEquals(split.length >= 2 ? split[1].trim() : null, fields.msgType(), content);
+            assertEquals(fields.msgType(), FeedLineTokenizer.msgTypeOf(content), content);
+        }
+    }
+
+    @Test
+    void testAllocationsParLigneBornees() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean, "Mesure d'allocation non disponible");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled(),
+                "Mesure d'allocation non disponible");
+
+        String[] lines = new String[10_000];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = "077;" + (20 + i % 7) + ";23012025;AB_" + (1000 + i) + ";1500.00;EUR;client " + i + ";;";
+        }
+        // Extraction du msg-type, avant (split) et après (tokenizer)
+        ToIntFunction<String> split = line -> {
+            String[] parts = line.split(";");
+            return parts.length >= 2 ? parts[1].trim().length() : 0;
+        };
+        ToIntFunction<String> tokenizer = line -> {
+            String msgType = FeedLineTokenizer.of(line).msgType();
+            return msgType != null ? msgType.length() : 0;
+        };
+
+        double splitBytes = allocatedBytesPerLine(threads, lines, split);
+        double tokenizerBytes = allocatedBytesPerLine(threads, lines, tokenizer);
+
+        // Seul le msg-type est alloué (une chaîne de 2 caractères), contre un tableau et une chaîne par champ
+        // avec split : plafond fixe, indépendant de la compilation JIT
+        assertTrue(tokenizerBytes <= MAX_TOKENIZER_BYTES_PER_LINE, String.format(
+                "Octets alloués par ligne : FeedLineTokenizer %.1f (plafond %d), split(\";\") %.1f",
+                tokenizerBytes, MAX_TOKENIZER_BYTES_PER_LINE, splitBytes));
+    }
+
+    private static double allocatedBytesPerLine(com.sun.management.ThreadMXBean threads, String[] lines,
+                                                ToIntFunction<String> extractor) {
+        long sink = 0;
+        // Préchauffage JIT
+        for (int round = 0; round < 20; round++) {
+            for (String line : lines) {
+                sink += extractor.applyAsInt(line);
+            }
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int round = 0; round < 10; round++) {
+            for (String line : lines) {
+                sink += extractor.applyAsInt(line);
+            }
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        assertTrue(sink > 0);
+        return (double) allocated / (10L * lines.length);
+    }
+}
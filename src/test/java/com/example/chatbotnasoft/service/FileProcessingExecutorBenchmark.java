@@ -0,0 +1,82 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.config.ConcurrencyProperties;
+import com.example.chatbotnasoft.config.IngestionProperties;
+
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Mesure de débit de {@link FileProcessingExecutor} sur un traitement synthétique limité par les E/S :
+ * chaque fichier fait {@code CALLS_PER_FILE} appels bloquants de {@code CALL_MILLIS} ms (appels Gemini/Mongo
+ * simulés), sans régulateur ni pool de connexions. Lancement manuel (hors suite de tests), JDK 21 pour
+ * le mode threads virtuels :
+ * <pre>
+ * java -cp target/test-classes:target/classes:&lt;classpath de test&gt; \
+ *     com.example.chatbotnasoft.service.FileProcessingExecutorBenchmark [fichiers] [workers-virtuels]
+ * </pre>
+ */
+public final class FileProcessingExecutorBenchmark {
+
+    private static final int CALLS_PER_FILE = 10;
+    private static final long CALL_MILLIS = 20;
+
+    private FileProcessingExecutorBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int virtualWorkers = args.length > 1 ? Integer.parseInt(args[1]) : files;
+
+        System.out.printf("JDK %s, %d fichiers, %d appels de %d ms par fichier%n",
+                Runtime.version(), files, CALLS_PER_FILE, CALL_MILLIS);
+        run("threads plateforme", false, new ConcurrencyProperties().getFileProcessingThreads(), files);
+        if (VirtualThreads.isSupported()) {
+            run("threads virtuels", true, virtualWorkers, files);
+        } else {
+            System.out.println("threads virtuels: indisponibles sur cette JVM");
+        }
+    }
+
+    private static void run(String label, boolean virtual, int workers, int files) throws Exception {
+        ConcurrencyProperties properties = new ConcurrencyProperties();
+        properties.setVirtualThreads(virtual);
+        properties.setFileProcessingThreads(workers);
+        properties.setQueueCapacity(files);
+        properties.setShutdownTimeoutSeconds(1);
+
+        CountDownLatch done = new CountDownLatch(files);
+        FeedProcessingService feedProcessingService = mock(FeedProcessingService.class);
+        doAnswer(invocation -> {
+            for (int i = 0; i < CALLS_PER_FILE; i++) {
+                Thread.sleep(CALL_MILLIS);
+            }
+            done.countDown();
+            return null;
+        }).when(feedProcessingService).processFeedFile(any());
+
+        FileProcessingExecutor executor = new FileProcessingExecutor(properties, feedProcessingService,
+                new FileProcessingService(), new IngestionJournal(new IngestionProperties()));
+        executor.initialize();
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < files; i++) {
+                if (!executor.offer(Path.of("bench", "FEED_" + i + ".txt"))) {
+                    throw new IllegalStateException("Fichier refusé par la file: " + i);
+                }
+            }
+            if (!done.await(10, TimeUnit.MINUTES)) {
+                throw new IllegalStateException("Benchmark non terminé");
+            }
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            System.out.printf("%s (%d workers): %.2f s, %.1f fichiers/s%n", label, workers, seconds, files / seconds);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
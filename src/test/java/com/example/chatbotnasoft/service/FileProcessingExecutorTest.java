@@ -0,0 +1,83 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.config.ConcurrencyProperties;
+import com.example.chatbotnasoft.config.IngestionProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FileProcessingExecutorTest {
+
+    private final FeedProcessingService feedProcessingService = mock(FeedProcessingService.class);
+    private final FileProcessingService fileProcessingService = new FileProcessingService();
+    private FileProcessingExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testFileBorneeDedoublonnageEtAnnulationParInterruption() throws Exception {
+        ConcurrencyProperties properties = new ConcurrencyProperties();
+        properties.setVirtualThreads(true); // threads plateforme si la JVM ne les supporte pas
+        properties.setFileProcessingThreads(1);
+        properties.setQueueCapacity(1);
+        properties.setShutdownTimeoutSeconds(1);
+
+        CountDownLatch started = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                throw new CancellationException("interrompu");
+            }
+            return null;
+        }).when(feedProcessingService).processFeedFile(any());
+
+        executor = new FileProcessingExecutor(properties, feedProcessingService, fileProcessingService,
+                new IngestionJournal(new IngestionProperties()));
+        executor.initialize();
+        Path first = Path.of("input/feeds/FEED_1.txt");
+        Path second = Path.of("input/feeds/FEED_2.txt");
+        Path third = Path.of("input/feeds/FEED_3.txt");
+
+        assertTrue(executor.offer(first));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertFalse(executor.offer(first), "Un fichier en cours ne doit pas être traité deux fois");
+
+        // Un seul worker occupé, file de capacité 1 : le troisième fichier est refusé (contre-pression)
+        assertTrue(executor.offer(second));
+        assertFalse(executor.offer(third));
+        assertEquals(List.of("FEED_2.txt"), executor.getStatistics().get("queued"));
+        assertEquals(1L, executor.getStatistics().get("rejectedQueueFull"));
+        assertTrue(fileProcessingService.isFileReady(second));
+        assertFalse(fileProcessingService.isFileReady(third));
+
+        // Annulation d'un fichier en file puis du fichier en cours
+        assertTrue(executor.cancel(second));
+        assertFalse(fileProcessingService.isFileReady(second));
+        assertTrue(executor.cancel(first));
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (executor.isClaimed(first) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertFalse(executor.isClaimed(first));
+        assertFalse(fileProcessingService.isFileReady(first));
+        assertEquals(2L, executor.getStatistics().get("cancelled"));
+        verify(feedProcessingService, times(1)).processFeedFile(first);
+        verify(feedProcessingService, never()).processFeedFile(second);
+    }
+}
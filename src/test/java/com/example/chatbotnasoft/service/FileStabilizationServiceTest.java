@@ -0,0 +1,116 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.config.FileWatcherProperties;
+import com.example.chatbotnasoft.config.IngestionProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FileStabilizationServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final FileProcessingExecutor fileProcessingExecutor = mock(FileProcessingExecutor.class);
+    private FileWatcherProperties properties;
+    private FileStabilizationService service;
+
+    @BeforeEach
+    void setUp() {
+        properties = new FileWatcherProperties();
+        properties.setStabilizationDelayMinutes(0.005); // 300 ms
+        properties.setCheckIntervalSeconds(1);
+        service = new FileStabilizationService(properties, fileProcessingExecutor,
+                new IngestionJournal(new IngestionProperties()));
+        service.startTimer();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stopTimer();
+    }
+
+    @Test
+    void testModificationsRepoussentLEcheanceSansRelireLeFichier() throws Exception {
+        // Délai large devant l'écart entre modifications (100 ms) : pas d'échéance intermédiaire même sur machine chargée
+        properties.setStabilizationDelayMinutes(2.0 / 60); // 2 s
+        when(fileProcessingExecutor.offer(any())).thenReturn(true);
+        Path file = Files.writeString(tempDir.resolve("FEED_1.txt"), "ligne 1\n");
+
+        service.startStabilization(file);
+        for (int i = 0; i < 5; i++) {
+            Thread.sleep(100);
+            Files.writeString(file, "ligne\n", StandardOpenOption.APPEND);
+            service.handleFileModification(file);
+        }
+        verify(fileProcessingExecutor, never()).offer(any());
+
+        verify(fileProcessingExecutor, timeout(5_000)).offer(file);
+        assertFalse(service.getStabilizingFiles().containsKey(file));
+        // Une seule relecture de la taille, à l'échéance finale
+        assertEquals(1L, service.getStatistics().get("sizeChecks"));
+        assertEquals(5L, service.getStatistics().get("modifications"));
+    }
+
+    @Test
+    void testMarqueurDeFinLibereImmediatementEtFilePleineGardeLeFichier() throws Exception {
+        properties.setStabilizationDelayMinutes(10);
+        properties.setRequireCompletionMarker(true);
+        when(fileProcessingExecutor.offer(any())).thenReturn(false, true);
+        Path file = Files.writeString(tempDir.resolve("FEED_2.txt"), "ligne 1\n");
+
+        service.startStabilization(file);
+        Thread.sleep(200);
+        verify(fileProcessingExecutor, never()).offer(any());
+
+        service.handleCompletionMarker(file);
+        verify(fileProcessingExecutor, timeout(1_000)).offer(file);
+        // File d'ingestion pleine : le fichier reste en stabilisation puis est reproposé
+        assertTrue(service.getStabilizingFiles().containsKey(file));
+        verify(fileProcessingExecutor, timeout(3_000).times(2)).offer(file);
+        assertEquals(0L, service.getStatistics().get("sizeChecks"));
+        assertEquals(1L, service.getStatistics().get("backpressureDelays"));
+    }
+
+    @Test
+    void testMarqueurApresLiberationParLeDelaiNeRelancePasLeTraitement() throws Exception {
+        when(fileProcessingExecutor.offer(any())).thenReturn(true);
+        Path file = Files.writeString(tempDir.resolve("FEED_3.txt"), "ligne 1\n");
+
+        service.startStabilization(file);
+        verify(fileProcessingExecutor, timeout(2_000)).offer(file);
+
+        service.handleCompletionMarker(file);
+        Thread.sleep(500);
+
+        verify(fileProcessingExecutor, times(1)).offer(file);
+        assertFalse(service.getStabilizingFiles().containsKey(file));
+        assertEquals(1L, service.getStatistics().get("ignoredMarkers"));
+    }
+
+    @Test
+    void testMarqueurPourFichierConnuAuDemarrageIgnoreSaufSiModifie() throws Exception {
+        when(fileProcessingExecutor.offer(any())).thenReturn(true);
+        Path file = Files.writeString(tempDir.resolve("FEED_4.txt"), "ligne 1\n");
+        service.markAlreadyHandled(file, Files.getLastModifiedTime(file).toMillis());
+
+        service.handleCompletionMarker(file);
+        Thread.sleep(300);
+        verify(fileProcessingExecutor, never()).offer(any());
+
+        // Fichier réécrit depuis : le marqueur le libère à nouveau
+        Files.setLastModifiedTime(file, FileTime.fromMillis(
+                Files.getLastModifiedTime(file).toMillis() + 10_000));
+        service.handleCompletionMarker(file);
+        verify(fileProcessingExecutor, timeout(1_000)).offer(file);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.config.FileWatcherProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FileWatcherServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final FileStabilizationService stabilizationService = mock(FileStabilizationService.class);
+    private final TailFollowService tailFollowService = mock(TailFollowService.class);
+    private FileWatcherService watcher;
+
+    @AfterEach
+    void tearDown() {
+        if (watcher != null) {
+            watcher.cleanup();
+        }
+    }
+
+    @Test
+    void testSousRepertoiresEtRacinesMultiplesEtRelectureApresOverflow() throws Exception {
+        Path root = Files.createDirectories(tempDir.resolve("feeds"));
+        Path otherRoot = Files.createDirectories(tempDir.resolve("other"));
+        Path existing = Files.writeString(root.resolve("FEED_EXISTANT.txt"), "deja la\n");
+
+        FileWatcherProperties properties = new FileWatcherProperties();
+        properties.setInputDirectory(root.toString());
+        properties.setAdditionalDirectories(List.of(otherRoot.toString()));
+        properties.setWatcherThreads(3);
+        watcher = new FileWatcherService(properties, stabilizationService, tailFollowService);
+        watcher.initializeWatcher();
+        assertTrue(watcher.isWatching());
+
+        // Nouveau sous-répertoire partenaire : enregistré dynamiquement, son contenu est pris en compte
+        Path partner = Files.createDirectories(root.resolve("partenaire-a"));
+        Path partnerFile = Files.writeString(partner.resolve("FEED_A.txt"), "ligne\n");
+        verify(stabilizationService, timeout(10_000).atLeastOnce()).startStabilization(partnerFile);
+
+        Path otherFile = Files.writeString(otherRoot.resolve("FEED_B.txt"), "ligne\n");
+        verify(stabilizationService, timeout(10_000).atLeastOnce()).startStabilization(otherFile);
+
+        // Relecture après OVERFLOW : seuls les fichiers inconnus repartent en stabilisation
+        clearInvocations(stabilizationService);
+        Path missed = Files.writeString(root.resolve("FEED_MANQUE.txt"), "ligne\n");
+        watcher.rescan(root);
+        verify(stabilizationService, timeout(5_000).atLeastOnce()).startStabilization(missed);
+        verify(stabilizationService, never()).startStabilization(existing);
+        assertEquals(3, watcher.getStatistics().get("watchedDirectories"));
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.config.GeminiProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GeminiEmbeddingServiceTest {
+
+    @Mock
+    private OutboundHttpClient outboundHttpClient;
+
+    @Mock
+    private GeminiRateGovernor geminiRateGovernor;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final GeminiProperties geminiProperties = new GeminiProperties();
+    private GeminiEmbeddingService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        service = new GeminiEmbeddingService(geminiProperties, outboundHttpClient, objectMapper, geminiRateGovernor);
+        // Régulateur transparent : l'appel est exécuté immédiatement
+        when(geminiRateGovernor.executeAsync(anyString(), any())).thenAnswer(invocation ->
+                ((Supplier<CompletableFuture<?>>) invocation.getArgument(1)).get().join());
+    }
+
+    @Test
+    void testResultatsDansLOrdreEtTextesVidesANull() {
+        geminiProperties.setEmbeddingBatchSize(2);
+        // Vecteur = longueur du texte, pour relier chaque résultat à son texte
+        when(outboundHttpClient.post(eq(OutboundHttpClient.Target.GEMINI), contains(":batchEmbedContents"), any()))
+                .thenAnswer(invocation -> Mono.just(batchResponse(requestTexts(invocation.getArgument(2)))));
+
+        List<List<Double>> vectors = service.embedBatch(Arrays.asList("a", null, "  ", "bb", "ccc", "dddd"));
+
+        assertEquals(Arrays.asList(List.of(1.0), null, null, List.of(2.0), List.of(3.0), List.of(4.0)), vectors);
+        // Lots [a], [bb], [ccc, dddd] : les textes vides ne sont pas envoyés
+        verify(outboundHttpClient, times(3)).post(any(), contains(":batchEmbedContents"), any());
+        verify(outboundHttpClient, never()).post(any(), contains(":embedContent"), any());
+    }
+
+    @Test
+    void testLotEnEchecRepliSurDesAppelsUnitaires() {
+        when(outboundHttpClient.post(eq(OutboundHttpClient.Target.GEMINI), contains(":batchEmbedContents"), any()))
+                .thenReturn(Mono.error(new IllegalStateException("503")));
+        stubUnitEmbed();
+
+        List<List<Double>> vectors = service.embedBatch(Arrays.asList("a", "", "ccc"));
+
+        assertEquals(Arrays.asList(List.of(1.0), null, List.of(3.0)), vectors);
+        verify(outboundHttpClient, times(2)).post(any(), contains(":embedContent"), any());
+    }
+
+    @Test
+    void testReponseIncompleteRepliSurDesAppelsUnitaires() {
+        // Un seul vecteur pour deux textes : la réponse groupée est ignorée
+        when(outboundHttpClient.post(eq(OutboundHttpClient.Target.GEMINI), contains(":batchEmbedContents"), any()))
+                .thenReturn(Mono.just(batchResponse(List.of("zzzzz"))));
+        stubUnitEmbed();
+
+        List<List<Double>> vectors = service.embedBatch(List.of("a", "bb"));
+
+        assertEquals(List.of(List.of(1.0), List.of(2.0)), vectors);
+        verify(outboundHttpClient, times(2)).post(any(), contains(":embedContent"), any());
+    }
+
+    private void stubUnitEmbed() {
+        when(outboundHttpClient.post(eq(OutboundHttpClient.Target.GEMINI), contains(":embedContent"), any()))
+                .thenAnswer(invocation -> {
+                    Map<?, ?> body = invocation.getArgument(2);
+                    String text = textOf(body.get("content"));
+                    return Mono.just(objectMapper.valueToTree(
+                            Map.of("embedding", Map.of("values", List.of((double) text.length())))));
+                });
+    }
+
+    private JsonNode batchResponse(List<String> texts) {
+        List<Map<String, Object>> embeddings = new ArrayList<>();
+        for (String text : texts) {
+            embeddings.add(Map.of("values", List.of((double) text.length())));
+        }
+        return objectMapper.valueToTree(Map.of("embeddings", embeddings));
+    }
+
+    private static List<String> requestTexts(Map<?, ?> body) {
+        List<String> texts = new ArrayList<>();
+        for (Object request : (List<?>) body.get("requests")) {
+            texts.add(textOf(((Map<?, ?>) request).get("content")));
+        }
+        return texts;
+    }
+
+    private static String textOf(Object content) {
+        Object part = ((List<?>) ((Map<?, ?>) content).get("parts")).get(0);
+        return (String) ((Map<?, ?>) part).get("text");
+    }
+}
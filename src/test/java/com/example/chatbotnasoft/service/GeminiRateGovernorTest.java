@@ -0,0 +1,154 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.config.ConcurrencyProperties;
+import com.example.chatbotnasoft.config.GeminiProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeminiRateGovernorTest {
+
+    private static final String MODEL = "gemini-test";
+
+    private final GeminiProperties geminiProperties = new GeminiProperties();
+    private GeminiRateGovernor governor;
+
+    @BeforeEach
+    void setUp() {
+        geminiProperties.setMaxRetries(3);
+        geminiProperties.setBackoffInitialMs(20);
+        geminiProperties.setBackoffMaxMs(50);
+        GeminiProperties.ModelQuota quota = new GeminiProperties.ModelQuota();
+        quota.setRequestsPerMinute(6_000);
+        quota.setMaxConcurrent(2);
+        geminiProperties.getQuotas().put(MODEL, quota);
+
+        governor = new GeminiRateGovernor(geminiProperties, new ConcurrencyProperties());
+        governor.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        governor.shutdown();
+    }
+
+    @Test
+    void testLimiteDAppelsSimultanesRespectee() throws Exception {
+        List<CompletableFuture<String>> started = new CopyOnWriteArrayList<>();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        Supplier<CompletableFuture<String>> call = () -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            CompletableFuture<String> attempt = new CompletableFuture<>();
+            started.add(attempt);
+            return attempt.whenComplete((result, error) -> inFlight.decrementAndGet());
+        };
+
+        List<CompletableFuture<String>> futures = List.of(
+                governor.submitAsync(MODEL, call), governor.submitAsync(MODEL, call), governor.submitAsync(MODEL, call),
+                governor.submitAsync(MODEL, call), governor.submitAsync(MODEL, call), governor.submitAsync(MODEL, call));
+
+        waitUntil(() -> started.size() == 2);
+        Thread.sleep(100);
+        assertEquals(2, started.size(), "Au plus maxConcurrent appels démarrés");
+        assertEquals(4, stats().get("queued"));
+
+        // Chaque fin d'appel libère un créneau pour le suivant
+        for (int i = 0; i < 6; i++) {
+            int index = i;
+            waitUntil(() -> started.size() > index);
+            started.get(i).complete("ok-" + i);
+        }
+        for (CompletableFuture<String> future : futures) {
+            assertTrue(future.get(5, TimeUnit.SECONDS).startsWith("ok-"));
+        }
+        assertEquals(2, maxInFlight.get());
+        assertEquals(6L, stats().get("completed"));
+    }
+
+    @Test
+    void testDebitDiviseParDeuxSurThrottleEtRegagneSurSucces() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        String result = governor.submitAsync(MODEL, () -> attempts.incrementAndGet() == 1
+                ? CompletableFuture.<String>failedFuture(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE))
+                : CompletableFuture.completedFuture("ok")).get(5, TimeUnit.SECONDS);
+
+        assertEquals("ok", result);
+        assertEquals(2, attempts.get());
+        // 6000 → 3000 sur le 503, puis +5 % du quota sur le succès
+        assertEquals(3_300.0, stats().get("requestsPerMinute"));
+        assertEquals(1L, stats().get("throttled"));
+
+        for (int i = 0; i < 10; i++) {
+            governor.submitAsync(MODEL, () -> CompletableFuture.completedFuture("ok")).get(5, TimeUnit.SECONDS);
+        }
+        // Remonté jusqu'au quota, sans le dépasser
+        assertEquals(6_000.0, stats().get("requestsPerMinute"));
+    }
+
+    @Test
+    void testRetryAfterRespecte() throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Retry-After", "1");
+        List<Long> attemptTimes = new CopyOnWriteArrayList<>();
+
+        String result = governor.submitAsync(MODEL, () -> {
+            attemptTimes.add(System.nanoTime());
+            return attemptTimes.size() == 1
+                    ? CompletableFuture.<String>failedFuture(new HttpClientErrorException(
+                            HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", headers, null, null))
+                    : CompletableFuture.completedFuture("ok");
+        }).get(5, TimeUnit.SECONDS);
+
+        assertEquals("ok", result);
+        assertEquals(2, attemptTimes.size());
+        // Le Retry-After (1 s) remplace le backoff configuré (20 à 50 ms)
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(attemptTimes.get(1) - attemptTimes.get(0));
+        assertTrue(waitedMs >= 950, "Attente de " + waitedMs + " ms");
+    }
+
+    @Test
+    void testEchecApresEpuisementDesNouvellesTentatives() {
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<String> future = governor.submitAsync(MODEL, () -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.failedFuture(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+        });
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(HttpServerErrorException.class, error.getCause());
+        // Tentative initiale + max-retries nouvelles tentatives
+        assertEquals(4, attempts.get());
+        assertEquals(4L, stats().get("throttled"));
+        assertEquals(1L, stats().get("failed"));
+        assertEquals(0L, stats().get("completed"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> stats() {
+        return (Map<String, Object>) governor.getStatistics().get(MODEL);
+    }
+
+    private static void waitUntil(Supplier<Boolean> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.get()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Condition non atteinte");
+            Thread.sleep(5);
+        }
+    }
+}
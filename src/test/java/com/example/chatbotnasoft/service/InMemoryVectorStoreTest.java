@@ -0,0 +1,58 @@
+package com.example.chatbotnasoft.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryVectorStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSearchReturnsNearestPointsAndSnapshotRoundTrip() {
+        InMemoryVectorStore store = new InMemoryVectorStore("Cosine", new ObjectMapper());
+        store.ensureCollectionExists(3);
+        store.upsertPoints(List.of(
+                point("p53", List.of(1.0, 0.0, 0.0), "53"),
+                point("p54", List.of(0.7, 0.7, 0.0), "54"),
+                point("p16", List.of(0.0, 0.0, 1.0), "16")
+        ));
+
+        List<VectorStore.SearchHit> hits = store.search(List.of(0.9, 0.1, 0.0), 2);
+        assertEquals(List.of("p53", "p54"), hits.stream().map(VectorStore.SearchHit::id).toList());
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+        assertEquals("53", hits.get(0).payload().get("msgType"));
+
+        // Suppression : le dernier point prend la place libérée
+        store.deletePoints(List.of("p53"));
+        assertEquals(2, store.size());
+        assertEquals("p54", store.search(List.of(0.9, 0.1, 0.0), 1).get(0).id());
+
+        Path snapshot = tempDir.resolve("vector-store.snapshot");
+        store.snapshotIfDirty(snapshot);
+
+        InMemoryVectorStore reloaded = new InMemoryVectorStore("Cosine", new ObjectMapper());
+        reloaded.loadSnapshot(snapshot);
+        assertEquals(2, reloaded.size());
+        VectorStore.SearchHit top = reloaded.search(List.of(0.0, 0.1, 0.9), 1).get(0);
+        assertEquals("p16", top.id());
+        assertEquals("16", top.payload().get("msgType"));
+        assertInstanceOf(String.class, top.payload().get("indexedAt"));
+    }
+
+    private Map<String, Object> point(String id, List<Double> vector, String msgType) {
+        return Map.of(
+                "id", id,
+                "vector", vector,
+                "payload", Map.of("msgType", msgType, "status", "Validé", "indexedAt", LocalDateTime.now())
+        );
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.config.IngestionProperties;
+import com.example.chatbotnasoft.dto.ParsedFeedGroup;
+import com.example.chatbotnasoft.dto.RawFeedLine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestionJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private IngestionProperties properties;
+    private IngestionJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        properties = new IngestionProperties();
+        properties.setJournalPath(tempDir.resolve("ingestion.journal").toString());
+        journal = reopen();
+    }
+
+    @AfterEach
+    void tearDown() {
+        journal.close();
+    }
+
+    @Test
+    void testPointDeRepriseRelueApresRedemarrage() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("FEED_1.txt"), "1;A;x\n2;B;y\n3;A;z\n");
+        journal.recordDetected(file);
+        journal.recordStabilized(file, Files.size(file), Files.getLastModifiedTime(file).toMillis());
+
+        ParsedFeedGroup group = new ParsedFeedGroup("A", new ArrayList<>(List.of(
+                new RawFeedLine("1;A;x", 1, "FEED_1.txt"))));
+        group.setTotalLines(2);
+        journal.recordCheckpoint(file, IngestionJournal.Checkpoint.of(12, 2, Map.of("A", group), 2, 2, false));
+
+        journal = reopen();
+        IngestionJournal.Entry entry = journal.resumable(file).orElseThrow();
+        assertEquals(IngestionJournal.State.PARSING, entry.state());
+        assertEquals(12, entry.checkpoint().offset());
+        assertEquals(2, entry.checkpoint().lineNumber());
+        ParsedFeedGroup restored = entry.checkpoint().toGroups().get("A");
+        assertEquals(2, restored.getTotalLines());
+        assertEquals("1;A;x", restored.getLines().get(0).getContent());
+
+        // Fichier réécrit depuis : le point de reprise n'est plus utilisable
+        Files.setLastModifiedTime(file, FileTime.fromMillis(entry.lastModified() + 60_000));
+        assertTrue(journal.resumable(file).isEmpty());
+    }
+
+    @Test
+    void testFinTronqueeIgnoreeEtFichiersTerminesCompactes() throws Exception {
+        Path done = Files.writeString(tempDir.resolve("FEED_FINI.txt"), "1;A;x\n");
+        Path pending = Files.writeString(tempDir.resolve("FEED_EN_COURS.txt"), "1;A;x\n");
+        journal.recordStabilized(done, 6, Files.getLastModifiedTime(done).toMillis());
+        journal.recordStabilized(pending, 6, Files.getLastModifiedTime(pending).toMillis());
+        journal.recordCompleted(done);
+        journal.close();
+
+        // Ecriture interrompue : en-tête d'enregistrement sans contenu
+        Path journalFile = Path.of(properties.getJournalPath());
+        Files.write(journalFile, new byte[]{0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+        long sizeBefore = Files.size(journalFile);
+
+        journal = reopen();
+        assertEquals(List.of(pending.toAbsolutePath().normalize()),
+                journal.getPendingEntries().stream().map(IngestionJournal.Entry::path).toList());
+        assertEquals(IngestionJournal.State.STABILIZED, journal.get(pending).orElseThrow().state());
+        assertEquals(true, journal.getStatistics().get("tornTailIgnored"));
+        assertTrue(Files.size(journalFile) < sizeBefore);
+
+        // Les ajouts reprennent après la partie valide
+        journal.recordLlmDone(pending);
+        journal = reopen();
+        assertEquals(IngestionJournal.State.LLM_DONE, journal.get(pending).orElseThrow().state());
+        assertEquals(false, journal.getStatistics().get("tornTailIgnored"));
+    }
+
+    private IngestionJournal reopen() {
+        if (journal != null) {
+            journal.close();
+        }
+        IngestionJournal reopened = new IngestionJournal(properties);
+        reopened.open();
+        return reopened;
+    }
+}
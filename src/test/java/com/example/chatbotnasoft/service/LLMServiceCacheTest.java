@@ -0,0 +1,84 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.config.GeminiProperties;
+import com.example.chatbotnasoft.dto.AnonymizedLine;
+import com.example.chatbotnasoft.dto.LLMAnalysisResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LLMServiceCacheTest {
+
+    private static final String RESPONSE = "{\"Champ 1\": \"Code\", \"Champ 2\": \"Msg-type\"}";
+
+    @Mock
+    private OutboundHttpClient outboundHttpClient;
+
+    @Mock
+    private LlmResponseCache llmResponseCache;
+
+    @Mock
+    private GeminiRateGovernor geminiRateGovernor;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private LLMService llmService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        llmService = new LLMService(new GeminiProperties(), outboundHttpClient, objectMapper,
+                llmResponseCache, geminiRateGovernor);
+        // Régulateur transparent : l'appel est exécuté immédiatement
+        lenient().when(geminiRateGovernor.submitAsync(anyString(), any())).thenAnswer(invocation ->
+                ((Supplier<CompletableFuture<?>>) invocation.getArgument(1)).get());
+        lenient().when(llmResponseCache.get(anyString(), anyString())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void testReponseDuModeleDeRepliMiseEnCacheSousCeModele() throws Exception {
+        when(outboundHttpClient.post(eq(OutboundHttpClient.Target.GEMINI), contains("gemini-2.5-flash"), any()))
+                .thenReturn(Mono.error(new IllegalStateException("503")));
+        when(outboundHttpClient.post(eq(OutboundHttpClient.Target.GEMINI), contains("gemini-2.0-flash"), any()))
+                .thenReturn(Mono.just(objectMapper.readTree(geminiBody(RESPONSE))));
+
+        LLMAnalysisResult result = llmService.analyzeAnonymizedLines(Map.of("99", List.of(line())), "test.txt");
+
+        assertEquals(1, result.getResultsByMsgType().get("99").size());
+        verify(llmResponseCache).put(eq("gemini-2.0-flash"), anyString(), eq(RESPONSE));
+        verify(llmResponseCache, never()).put(eq("gemini-2.5-flash"), anyString(), anyString());
+    }
+
+    @Test
+    void testReponseServieDuCacheNonReecrite() {
+        when(llmResponseCache.get(eq("gemini-2.5-flash"), anyString())).thenReturn(Optional.of(RESPONSE));
+
+        llmService.analyzeAnonymizedLines(Map.of("99", List.of(line())), "test.txt");
+
+        verifyNoInteractions(outboundHttpClient);
+        verify(llmResponseCache, never()).put(anyString(), anyString(), anyString());
+    }
+
+    private static AnonymizedLine line() {
+        return new AnonymizedLine("077;99;XXXX", "077;99;xxxxx", "99", 1, "test.txt", true);
+    }
+
+    private static String geminiBody(String text) throws Exception {
+        return new ObjectMapper().writeValueAsString(
+                Map.of("candidates", List.of(Map.of("content", Map.of("parts", List.of(Map.of("text", text)))))));
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.config.LlmCacheProperties;
+import com.example.chatbotnasoft.entity.LlmResponseCacheEntry;
+import com.example.chatbotnasoft.repository.LlmResponseCacheRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LlmResponseCacheTest {
+
+    @Mock
+    private LlmResponseCacheRepository repository;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private final LlmCacheProperties properties = new LlmCacheProperties();
+    private LlmResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        properties.setMaxEntries(10);
+        cache = new LlmResponseCache(repository, mongoTemplate, properties);
+    }
+
+    @Test
+    void testEcritureSansComptageTantQueLaLimiteNEstPasAtteinte() {
+        for (int i = 0; i < 10; i++) {
+            cache.put("gemini-2.5-flash", "prompt " + i, "{}");
+        }
+
+        verify(repository, times(10)).save(any(LlmResponseCacheEntry.class));
+        verify(repository, never()).count();
+    }
+
+    @Test
+    void testSurplusSupprimeQuandLeCompteurDepasseLaLimite() {
+        when(repository.count()).thenReturn(11L);
+
+        for (int i = 0; i < 11; i++) {
+            cache.put("gemini-2.5-flash", "prompt " + i, "{}");
+        }
+
+        // Une seule recompte, et on descend sous la limite avec une marge
+        verify(repository, times(1)).count();
+        verify(repository).findAllByOrderByLastAccessedAtAsc(argThat(page -> page.getPageSize() == 2));
+    }
+
+    @Test
+    void testLectureMongoSansReecritureEtAccesEcritsParLot() {
+        String key = LlmResponseCache.key("gemini-2.5-flash", "prompt");
+        LocalDateTime now = LocalDateTime.now();
+        when(repository.findById(key)).thenReturn(Optional.of(
+                new LlmResponseCacheEntry(key, "gemini-2.5-flash", "{}", now, now, 0)));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, LlmResponseCacheEntry.class))
+                .thenReturn(bulkOperations);
+
+        assertEquals("{}", cache.get("gemini-2.5-flash", "prompt").orElse(null));
+        // Deuxième lecture servie par le LRU mémoire
+        assertEquals("{}", cache.get("gemini-2.5-flash", "prompt").orElse(null));
+        verify(repository, never()).save(any());
+
+        cache.flushHits();
+
+        verify(bulkOperations, times(1)).updateOne(any(Query.class), any(UpdateDefinition.class));
+        verify(bulkOperations).execute();
+        verify(repository, times(1)).findById(key);
+    }
+
+    @Test
+    void testAucunAccesPerduPendantUnFlushConcurrent() throws Exception {
+        String key = LlmResponseCache.key("gemini-2.5-flash", "prompt");
+        LocalDateTime now = LocalDateTime.now();
+        when(repository.findById(key)).thenReturn(Optional.of(
+                new LlmResponseCacheEntry(key, "gemini-2.5-flash", "{}", now, now, 0)));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, LlmResponseCacheEntry.class))
+                .thenReturn(bulkOperations);
+        cache.get("gemini-2.5-flash", "prompt");
+
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        List<Future<?>> done = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            done.add(readers.submit(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    cache.get("gemini-2.5-flash", "prompt");
+                }
+            }));
+        }
+        // Flushs pendant les lectures
+        while (!done.stream().allMatch(Future::isDone)) {
+            cache.flushHits();
+        }
+        for (Future<?> future : done) {
+            future.get();
+        }
+        readers.shutdown();
+        cache.flushHits();
+
+        ArgumentCaptor<UpdateDefinition> updates = ArgumentCaptor.forClass(UpdateDefinition.class);
+        verify(bulkOperations, atLeastOnce()).updateOne(any(Query.class), updates.capture());
+        long flushedHits = 0;
+        for (UpdateDefinition update : updates.getAllValues()) {
+            flushedHits += ((Number) update.getUpdateObject().get("$inc", Document.class).get("hitCount")).longValue();
+        }
+        assertEquals(1 + 4 * 20_000, flushedHits);
+    }
+}
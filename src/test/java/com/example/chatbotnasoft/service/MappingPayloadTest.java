@@ -0,0 +1,53 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.config.MappingCacheProperties;
+import com.example.chatbotnasoft.entity.FeedMapping;
+import com.example.chatbotnasoft.entity.MappingStatus;
+import com.example.chatbotnasoft.repository.FeedMappingRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class MappingPayloadTest {
+
+    private final FeedMappingRepository feedMappingRepository = mock(FeedMappingRepository.class);
+    private final FeedMappingCache feedMappingCache = new FeedMappingCache(feedMappingRepository, new MappingCacheProperties());
+
+    @Test
+    void testResolutionSelonLEtatDuCache() {
+        FeedMapping indexed = mapping(3);
+        Map<String, Object> payload = MappingPayload.of(indexed);
+
+        // Non en cache : le payload fait foi, sans lecture MongoDB
+        assertEquals(FeedMappingCache.Lookup.Status.MISS, feedMappingCache.getIfPresent("53").status());
+        assertEquals(3, MappingPayload.resolve(payload, feedMappingCache).getVersion());
+        verifyNoInteractions(feedMappingRepository);
+
+        // Version plus récente en cache : elle remplace le payload
+        when(feedMappingRepository.findByMsgType("53")).thenReturn(Optional.of(mapping(4)));
+        feedMappingCache.findByMsgType("53");
+        assertEquals(FeedMappingCache.Lookup.Status.PRESENT, feedMappingCache.getIfPresent("53").status());
+        assertEquals(4, MappingPayload.resolve(payload, feedMappingCache).getVersion());
+
+        // Mapping supprimé, absence en cache : le payload n'est plus utilisé
+        feedMappingCache.invalidate("53");
+        when(feedMappingRepository.findByMsgType("53")).thenReturn(Optional.empty());
+        feedMappingCache.findByMsgType("53");
+        assertEquals(FeedMappingCache.Lookup.Status.ABSENT, feedMappingCache.getIfPresent("53").status());
+        assertNull(MappingPayload.resolve(payload, feedMappingCache));
+        verify(feedMappingRepository, times(2)).findByMsgType("53");
+    }
+
+    private static FeedMapping mapping(int version) {
+        FeedMapping mapping = new FeedMapping("53", Map.of("Champ 3", "Identifiant unique"));
+        mapping.setId("m-53");
+        mapping.setVersion(version);
+        mapping.setStatus(MappingStatus.VALIDE);
+        mapping.setIsActive(true);
+        return mapping;
+    }
+}
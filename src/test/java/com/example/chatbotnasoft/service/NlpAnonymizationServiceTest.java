@@ -0,0 +1,67 @@
+package com.example.chatbotnasoft.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NlpAnonymizationServiceTest {
+
+    private static final List<String> WORDS = List.of(
+            "ref", "REF", "Reference", "sku", "ID_CLIENT", "client_id", "Id_Transaction", "OPERATEUR", "REFS",
+            "AB_1234", "abcdef_123456", "ABCDEFG_1234", "A_1234", "AB_123", "123456", "12345", "12345678",
+            "ABCD1234", "abcdefgh", "abcdefg", "Message", "type", "champs", "_", "x_1", "", "2024");
+    private static final String SEPARATORS = "  ,.;:-/\n'(";
+
+    private final NlpAnonymizationService service = new NlpAnonymizationService();
+
+    @Test
+    void testPrioriteDeterministe() {
+        assertEquals("REFERENCE_X : CODE_X, NUMERO_X et ALPHANUM_X",
+                service.anonymize("ref : AB_1234, 1234567890 et ABCD1234"));
+        // Un mot de 8 chiffres ou plus est un numéro avant d'être un alphanumérique
+        assertEquals("NUMERO_X", service.anonymize("12345678"));
+        assertEquals("Champ 1 : Date", service.anonymize("Champ 1 : Date"));
+        assertNull(service.anonymize(null));
+        assertEquals("  ", service.anonymize("  "));
+    }
+
+    @Test
+    void testEquivalentAuxExpressionsRegulieres() {
+        Random random = new Random(42);
+        for (int n = 0; n < 20_000; n++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = random.nextInt(12); i >= 0; i--) {
+                text.append(WORDS.get(random.nextInt(WORDS.size())));
+                text.append(SEPARATORS.charAt(random.nextInt(SEPARATORS.length())));
+            }
+            String raw = text.toString();
+            assertEquals(referenceAnonymize(raw), service.anonymize(raw), raw);
+        }
+    }
+
+    /**
+     * Ancienne implémentation par expressions régulières, motifs appliqués dans l'ordre de priorité.
+     */
+    private static String referenceAnonymize(String text) {
+        if (text.isBlank()) {
+            return text;
+        }
+        Map<String, String> tokens = Map.of(
+                "ID_TRANSACTION", "TRANSACTION_ID_X", "TRANSACTION_ID", "TRANSACTION_ID_X",
+                "SKU", "ARTICLE_ID_X", "OPERATEUR", "OPERATEUR_ID_X",
+                "ID_CLIENT", "CLIENT_ID_X", "CLIENT_ID", "CLIENT_ID_X",
+                "REFERENCE", "REFERENCE_X", "REF", "REFERENCE_X");
+        String result = text;
+        for (Map.Entry<String, String> entry : tokens.entrySet()) {
+            result = result.replaceAll("(?i)\\b" + Pattern.quote(entry.getKey()) + "\\b", entry.getValue());
+        }
+        result = Pattern.compile("\\b[A-Z]{2,6}_\\d{4,}\\b", Pattern.CASE_INSENSITIVE).matcher(result).replaceAll("CODE_X");
+        result = Pattern.compile("\\b\\d{6,}\\b").matcher(result).replaceAll("NUMERO_X");
+        return Pattern.compile("\\b[A-Za-z0-9]{8,}\\b").matcher(result).replaceAll("ALPHANUM_X");
+    }
+}
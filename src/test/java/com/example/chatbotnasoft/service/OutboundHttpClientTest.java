@@ -0,0 +1,61 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.config.HttpClientProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboundHttpClientTest {
+
+    private HttpServer server;
+    private OutboundHttpClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] body = "{\"ok\":true}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        client = new OutboundHttpClient(new HttpClientProperties(), new ObjectMapper());
+        client.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void testSuitesExecuteesHorsDesThreadsNetty() throws Exception {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+
+        String thread = client.post(OutboundHttpClient.Target.GEMINI, url, Map.of("q", 1))
+                .toFuture()
+                .thenApply(node -> {
+                    assertTrue(node.path("ok").asBoolean());
+                    return Thread.currentThread().getName();
+                })
+                .get(10, TimeUnit.SECONDS);
+
+        assertFalse(thread.startsWith("reactor-http"), thread);
+        assertTrue(thread.startsWith("boundedElastic"), thread);
+    }
+}
@@ -1,15 +1,18 @@
 package com.example.chatbotnasoft.service;
 
+import com.example.chatbotnasoft.dto.FeedMappingChangedEvent;
 import com.example.chatbotnasoft.entity.FeedMapping;
 import com.example.chatbotnasoft.entity.MappingStatus;
+import com.example.chatbotnasoft.config.MappingCacheProperties;
+import com.example.chatbotnasoft.config.RagCacheProperties;
 import com.example.chatbotnasoft.repository.FeedMappingRepository;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.List;
 import java.util.Map;
@@ -26,7 +29,7 @@ class RagServiceErrorHandlingTest {
     private GeminiEmbeddingService geminiEmbeddingService;
 
     @Mock
-    private QdrantClient qdrantClient;
+    private VectorStore vectorStore;
 
     @Mock
     private SimpleLlmService simpleLlmService;
@@ -38,9 +41,16 @@ class RagServiceErrorHandlingTest {
     private RagService ragService;
 
     private FeedMapping validMapping;
+    private FeedMappingCache feedMappingCache;
+    private RagCache ragCache;
 
     @BeforeEach
     void setUp() {
+        feedMappingCache = new FeedMappingCache(feedMappingRepository, new MappingCacheProperties());
+        ragCache = new RagCache(new RagCacheProperties());
+        ReflectionTestUtils.setField(ragService, "feedMappingCache", feedMappingCache);
+        ReflectionTestUtils.setField(ragService, "ragCache", ragCache);
+
         validMapping = new FeedMapping();
         validMapping.setMsgType("53");
         validMapping.setMapping(Map.of(
@@ -56,7 +66,7 @@ class RagServiceErrorHandlingTest {
     void testMessageInconnu_QdrantVide() {
         // Given
         when(geminiEmbeddingService.embed(anyString())).thenReturn(List.of(0.1, 0.2));
-        when(qdrantClient.search(any(), anyInt())).thenReturn("{\"result\":[]}");
+        when(vectorStore.search(any(), anyInt())).thenReturn(List.of());
 
         // When
         var response = ragService.ask("question inconnue", 3);
@@ -70,9 +80,9 @@ class RagServiceErrorHandlingTest {
     void testSeuilConfiance_TropBas() {
         // Given
         when(geminiEmbeddingService.embed(anyString())).thenReturn(List.of(0.1, 0.2));
-        String lowScoreResponse = "{\"result\":[{\"id\":\"1\",\"score\":0.5,\"payload\":{\"msgType\":\"53\",\"status\":\"Validé\"}}]}";
-        when(qdrantClient.search(any(), anyInt())).thenReturn(lowScoreResponse);
-        when(feedMappingRepository.findByMsgTypeAndIsActive(eq("53"), eq(true))).thenReturn(validMapping);
+        var lowScoreHits = List.of(new VectorStore.SearchHit("1", 0.5, Map.<String, Object>of("msgType", "53", "status", "Validé")));
+        when(vectorStore.search(any(), anyInt())).thenReturn(lowScoreHits);
+        when(feedMappingRepository.findByMsgType("53")).thenReturn(Optional.of(validMapping));
 
         // When
         var response = ragService.ask("Explique msgType 53", 3);
@@ -86,9 +96,9 @@ class RagServiceErrorHandlingTest {
     void testReponseVide_LLMRetourneNull() {
         // Given
         when(geminiEmbeddingService.embed(anyString())).thenReturn(List.of(0.1, 0.2));
-        String validResponse = "{\"result\":[{\"id\":\"1\",\"score\":0.8,\"payload\":{\"msgType\":\"53\",\"status\":\"Validé\"}}]}";
-        when(qdrantClient.search(any(), anyInt())).thenReturn(validResponse);
-        when(feedMappingRepository.findByMsgTypeAndIsActive(eq("53"), eq(true))).thenReturn(validMapping);
+        var validHits = List.of(new VectorStore.SearchHit("1", 0.8, Map.<String, Object>of("msgType", "53", "status", "Validé")));
+        when(vectorStore.search(any(), anyInt())).thenReturn(validHits);
+        when(feedMappingRepository.findByMsgType("53")).thenReturn(Optional.of(validMapping));
         when(simpleLlmService.generate(any(), any())).thenReturn(null);
 
         // When
@@ -103,9 +113,9 @@ class RagServiceErrorHandlingTest {
     void testReponseIncoherente_MsgTypeNonCorrespondant() {
         // Given
         when(geminiEmbeddingService.embed(anyString())).thenReturn(List.of(0.1, 0.2));
-        String validResponse = "{\"result\":[{\"id\":\"1\",\"score\":0.8,\"payload\":{\"msgType\":\"53\",\"status\":\"Validé\"}}]}";
-        when(qdrantClient.search(any(), anyInt())).thenReturn(validResponse);
-        when(feedMappingRepository.findByMsgTypeAndIsActive(eq("53"), eq(true))).thenReturn(validMapping);
+        var validHits = List.of(new VectorStore.SearchHit("1", 0.8, Map.<String, Object>of("msgType", "53", "status", "Validé")));
+        when(vectorStore.search(any(), anyInt())).thenReturn(validHits);
+        when(feedMappingRepository.findByMsgType("53")).thenReturn(Optional.of(validMapping));
         when(simpleLlmService.generate(any(), any())).thenReturn("Réponse pour msgType 16"); // Incohérent
 
         // When
@@ -116,6 +126,83 @@ class RagServiceErrorHandlingTest {
         assertTrue(response.error().contains("Désolé, la question est ambiguë ou la réponse n'est pas fiable"));
     }
 
+    @Test
+    void testCacheRag_QuestionRepeteeServieDuCacheJusquaNouvelleVersion() {
+        // Given
+        when(geminiEmbeddingService.embed(anyString())).thenReturn(List.of(0.1, 0.2));
+        var validHits = List.of(new VectorStore.SearchHit("1", 0.8, Map.<String, Object>of("msgType", "53", "status", "Validé")));
+        when(vectorStore.search(any(), anyInt())).thenReturn(validHits);
+        when(feedMappingRepository.findByMsgType("53")).thenReturn(Optional.of(validMapping));
+        when(simpleLlmService.generate(any(), any())).thenReturn("Le Champ 3 du msgType 53 est l'identifiant unique.");
+
+        // When
+        var first = ragService.ask("Explique msgType 53", 3);
+        var second = ragService.ask("  explique   MSGTYPE 53 ", 3);
+
+        // Then
+        assertTrue(first.success());
+        assertFalse(first.metadata().cache().answerCacheHit());
+        assertTrue(second.success());
+        assertTrue(second.metadata().cache().embeddingCacheHit());
+        assertTrue(second.metadata().cache().answerCacheHit());
+        assertEquals(first.answer(), second.answer());
+        verify(geminiEmbeddingService, times(1)).embed(anyString());
+        verify(simpleLlmService, times(1)).generate(any(), any());
+
+        // Nouvelle version du mapping, publiée comme le fait FeedMappingService : la réponse est régénérée
+        FeedMapping nextVersion = new FeedMapping("53", validMapping.getMapping());
+        nextVersion.setVersion(validMapping.getVersion() + 1);
+        nextVersion.setStatus(MappingStatus.VALIDE);
+        when(feedMappingRepository.findByMsgType("53")).thenReturn(Optional.of(nextVersion));
+        feedMappingCache.invalidate("53");
+        ragCache.onMappingChanged(new FeedMappingChangedEvent(null, "53"));
+
+        var third = ragService.ask("Explique msgType 53", 3);
+        assertTrue(third.success());
+        assertTrue(third.metadata().cache().embeddingCacheHit());
+        assertFalse(third.metadata().cache().answerCacheHit());
+        assertEquals(nextVersion.getVersion(), third.contexts().get(0).version());
+        verify(simpleLlmService, times(2)).generate(any(), any());
+        verify(feedMappingRepository, times(2)).findByMsgType("53");
+    }
+
+    @Test
+    void testCheminDirect_MsgTypeEtChampExplicites() {
+        // Given
+        when(feedMappingRepository.findByMsgType("53")).thenReturn(Optional.of(validMapping));
+
+        // When
+        var response = ragService.ask("Que signifie le champ 3 du msgType 53 ?", 3);
+
+        // Then
+        assertTrue(response.success());
+        assertTrue(response.answer().contains("Identifiant unique"));
+        assertTrue(response.metadata().directAnswer());
+        verifyNoInteractions(geminiEmbeddingService, vectorStore, simpleLlmService);
+    }
+
+    @Test
+    void testContexteConstruitDepuisLePayload_SansLectureMongo() {
+        // Given
+        when(geminiEmbeddingService.embed(anyString())).thenReturn(List.of(0.1, 0.2));
+        Map<String, Object> payload = Map.of(
+                "msgType", "53",
+                "status", "Validé",
+                "version", 3,
+                "mapping", Map.of("Champ 1", "Type de message", "Champ 3", "Identifiant unique"));
+        when(vectorStore.search(any(), anyInt())).thenReturn(List.of(new VectorStore.SearchHit("1", 0.8, payload)));
+        when(simpleLlmService.generate(any(), any())).thenReturn("Le msgType 53 décrit un message avec un identifiant unique.");
+
+        // When
+        var response = ragService.ask("Explique msgType 53", 3);
+
+        // Then
+        assertTrue(response.success());
+        assertEquals(3, response.contexts().get(0).version());
+        assertEquals("Identifiant unique", response.contexts().get(0).mapping().get("Champ 3"));
+        verifyNoInteractions(feedMappingRepository);
+    }
+
     @Test
     void testFeedCorrompu_LigneVide() {
         // Given
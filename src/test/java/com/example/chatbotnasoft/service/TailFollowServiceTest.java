@@ -0,0 +1,71 @@
+package com.example.chatbotnasoft.service;
+
+import com.example.chatbotnasoft.config.FileWatcherProperties;
+import com.example.chatbotnasoft.config.IngestionProperties;
+import com.example.chatbotnasoft.dto.RawFeedLine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TailFollowServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final FeedProcessingService feedProcessingService = mock(FeedProcessingService.class);
+
+    @Test
+    void testSeulesLesLignesCompletesAjouteesSontTraitees() throws Exception {
+        TailFollowService service = new TailFollowService(new FileWatcherProperties(), new IngestionProperties(),
+                feedProcessingService, new IngestionJournal(new IngestionProperties()));
+        Path file = Files.writeString(tempDir.resolve("FEED_DAILY.txt"), "1;A;x\n\n2;B");
+
+        // La dernière ligne est en cours d'écriture : elle attend l'ajout suivant
+        service.onAppend(file);
+        TailFollowService.TailState state = service.stateOf(file);
+        service.drain(state);
+        assertEquals(List.of("1;A;x"), processedLines(1));
+        assertEquals(7, state.offset());
+        assertEquals(2, state.lineNumber());
+
+        Files.writeString(file, ";y\r\n3;A;z\n", StandardOpenOption.APPEND);
+        service.drain(state);
+        ArgumentCaptor<List<RawFeedLine>> captor = captor();
+        verify(feedProcessingService, times(2)).processAppendedLines(eq(file), captor.capture());
+        List<RawFeedLine> appended = captor.getAllValues().get(1);
+        assertEquals(List.of("2;B;y", "3;A;z"), appended.stream().map(RawFeedLine::getContent).toList());
+        assertEquals(List.of(3, 4), appended.stream().map(RawFeedLine::getLineNumber).toList());
+        assertEquals(Files.size(file), state.offset());
+
+        // Aucun ajout : rien n'est relu
+        service.drain(state);
+        verify(feedProcessingService, times(2)).processAppendedLines(any(), any());
+
+        // Fichier remplacé par une version plus courte : relecture depuis le début
+        Files.writeString(file, "9;C;z\n");
+        service.drain(state);
+        verify(feedProcessingService, times(3)).processAppendedLines(any(), any());
+        assertEquals(6, state.offset());
+    }
+
+    private List<String> processedLines(int invocations) {
+        ArgumentCaptor<List<RawFeedLine>> captor = captor();
+        verify(feedProcessingService, times(invocations)).processAppendedLines(any(), captor.capture());
+        return captor.getValue().stream().map(RawFeedLine::getContent).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<RawFeedLine>> captor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+}